@@ -96,6 +96,74 @@ public final class ConfigurationProperties
      */
     public static final String DEFAULT_HTTP_CREDENTIAL_ENCODING = "ISO-8859-1";
 
+    /**
+     * A flag indicating whether repository connectors and the metadata resolver should run their transfers on the
+     * shared, system-wide transfer scheduler instead of creating their own thread pools.
+     *
+     * @see #DEFAULT_SHARED_TRANSFER_EXECUTOR
+     */
+    public static final String SHARED_TRANSFER_EXECUTOR = PREFIX_AETHER + "transfer.shared";
+
+    /**
+     * The default mode if {@link #SHARED_TRANSFER_EXECUTOR} isn't set.
+     */
+    public static final boolean DEFAULT_SHARED_TRANSFER_EXECUTOR = false;
+
+    /**
+     * The maximum number of transfers that may run concurrently on the shared transfer scheduler, counting the
+     * transfers of all sessions. A session will not start a new transfer while the scheduler is running this many or
+     * more transfers.
+     *
+     * @see #DEFAULT_TRANSFER_THREADS
+     */
+    public static final String TRANSFER_THREADS = PREFIX_AETHER + "transfer.threads";
+
+    /**
+     * The default number of concurrent transfers to use if {@link #TRANSFER_THREADS} isn't set.
+     */
+    public static final int DEFAULT_TRANSFER_THREADS = 20;
+
+    /**
+     * The maximum number of transfers that may run concurrently on the shared transfer scheduler against a single
+     * host, counting the transfers of all sessions.
+     *
+     * @see #DEFAULT_TRANSFER_THREADS_PER_HOST
+     */
+    public static final String TRANSFER_THREADS_PER_HOST = PREFIX_AETHER + "transfer.threadsPerHost";
+
+    /**
+     * The default number of concurrent transfers per host to use if {@link #TRANSFER_THREADS_PER_HOST} isn't set.
+     */
+    public static final int DEFAULT_TRANSFER_THREADS_PER_HOST = 6;
+
+    /**
+     * A flag indicating whether repository connectors and the metadata resolver should run each transfer on its own
+     * virtual thread. This mode requires a Java 21+ runtime and is silently ignored on older runtimes. If enabled, it
+     * takes precedence over {@link #SHARED_TRANSFER_EXECUTOR}.
+     *
+     * @see #DEFAULT_VIRTUAL_THREADS
+     * @see #VIRTUAL_THREADS_CONCURRENCY
+     */
+    public static final String VIRTUAL_THREADS = PREFIX_AETHER + "transfer.virtualThreads";
+
+    /**
+     * The default mode if {@link #VIRTUAL_THREADS} isn't set.
+     */
+    public static final boolean DEFAULT_VIRTUAL_THREADS = false;
+
+    /**
+     * The maximum number of transfers that a single connector or metadata resolution may run concurrently when using
+     * {@link #VIRTUAL_THREADS virtual threads}.
+     *
+     * @see #DEFAULT_VIRTUAL_THREADS_CONCURRENCY
+     */
+    public static final String VIRTUAL_THREADS_CONCURRENCY = PREFIX_AETHER + "transfer.virtualThreads.concurrency";
+
+    /**
+     * The default concurrency to use if {@link #VIRTUAL_THREADS_CONCURRENCY} isn't set.
+     */
+    public static final int DEFAULT_VIRTUAL_THREADS_CONCURRENCY = 64;
+
     private ConfigurationProperties()
     {
         // hide constructor
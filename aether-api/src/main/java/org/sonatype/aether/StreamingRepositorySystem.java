@@ -0,0 +1,47 @@
+package org.sonatype.aether;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.Collection;
+import java.util.List;
+
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
+import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.resolution.ArtifactResultListener;
+
+/**
+ * A repository system that can report the results of an artifact resolution while the resolution is still in progress.
+ * This is a separate interface to not break existing implementations of {@link RepositorySystem}, clients should check
+ * whether the repository system at hand implements it.
+ */
+public interface StreamingRepositorySystem
+    extends RepositorySystem
+{
+
+    /**
+     * Resolves the paths for a collection of artifacts and reports the result for each request to the specified
+     * listener as soon as it is available. This allows clients to process resolved artifacts while the downloads of the
+     * remaining artifacts are still in progress. Apart from the notifications, this method behaves like
+     * {@link #resolveArtifacts(RepositorySystemSession, Collection)}.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param requests The resolution requests, must not be {@code null}
+     * @param listener The listener to notify of the individual results, may be {@code null}.
+     * @return The resolution results (in request order), never {@code null}.
+     * @throws ArtifactResolutionException If any artifact could not be resolved.
+     * @see Artifact#getFile()
+     */
+    List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                           Collection<? extends ArtifactRequest> requests,
+                                           ArtifactResultListener listener )
+        throws ArtifactResolutionException;
+
+}
@@ -16,6 +16,7 @@ import org.sonatype.aether.RepositorySystem;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.RequestTrace;
 import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.repository.RemoteRepository;
 
 /**
@@ -43,6 +44,8 @@ public class CollectRequest
 
     private RequestTrace trace;
 
+    private DependencyNode previousRoot;
+
     /**
      * Creates an unitialized request.
      */
@@ -307,6 +310,36 @@ public class CollectRequest
         return this;
     }
 
+    /**
+     * Gets the root node of a previously collected dependency graph whose unaffected parts may be reused by this
+     * request.
+     * 
+     * @return The root node of the previous dependency graph or {@code null} if none.
+     */
+    public DependencyNode getPreviousRoot()
+    {
+        return previousRoot;
+    }
+
+    /**
+     * Sets the root node of a previously collected dependency graph whose unaffected parts may be reused by this
+     * request. This allows to efficiently re-collect the dependencies after an edit to the original request, e.g. a
+     * changed direct dependency, since only the subgraphs whose inputs differ need to be collected again. The graph
+     * transformation is still applied to the entire graph. Note that only graphs which were collected with the
+     * configuration property {@code aether.collector.incremental} enabled or which were themselves collected
+     * incrementally carry the required information, for any other graph this request is processed like a regular
+     * collection.
+     * 
+     * @param previousRoot The root node of the previous dependency graph, e.g. {@link CollectResult#getRoot()}, may be
+     *            {@code null}.
+     * @return This request for chaining, never {@code null}.
+     */
+    public CollectRequest setPreviousRoot( DependencyNode previousRoot )
+    {
+        this.previousRoot = previousRoot;
+        return this;
+    }
+
     @Override
     public String toString()
     {
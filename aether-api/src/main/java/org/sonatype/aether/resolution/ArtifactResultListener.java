@@ -0,0 +1,38 @@
+package org.sonatype.aether.resolution;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.Collection;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.StreamingRepositorySystem;
+
+/**
+ * A listener being notified of the result for each request of an artifact resolution as soon as it is available, i.e.
+ * while the downloads of other artifacts are still in progress. This allows clients to start processing an artifact
+ * right after its file has been placed in the local repository. The listener is notified exactly once per request,
+ * results of successfully resolved artifacts are reported when the artifact's download completes, results of failed
+ * requests are reported once all repositories for the artifact have been tried. The listener may be called
+ * concurrently from arbitrary threads like those of a repository connector and should hence hand off expensive work
+ * and not throw any exceptions.
+ *
+ * @see StreamingRepositorySystem#resolveArtifacts(RepositorySystemSession, Collection, ArtifactResultListener)
+ */
+public interface ArtifactResultListener
+{
+
+    /**
+     * Notifies the listener about the result for an artifact request.
+     *
+     * @param result The result of the artifact request, never {@code null}. If the artifact was resolved,
+     *            {@link ArtifactResult#getArtifact()} provides the artifact along with its local file.
+     */
+    void artifactResolved( ArtifactResult result );
+
+}
@@ -56,7 +56,7 @@ public class FileRepositoryConnector
         this.fileProcessor = fileProcessor;
         this.logger = logger;
 
-        initExecutor( session.getConfigProperties() );
+        initExecutor( session, repository );
     }
 
     public void get( Collection<? extends ArtifactDownload> artifactDownloads,
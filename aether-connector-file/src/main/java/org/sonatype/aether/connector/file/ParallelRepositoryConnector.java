@@ -10,7 +10,6 @@ package org.sonatype.aether.connector.file;
 
 import static org.sonatype.aether.connector.file.FileRepositoryConnectorFactory.*;
 
-import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -19,7 +18,11 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.repository.RemoteRepository;
 import org.sonatype.aether.util.ConfigUtils;
+import org.sonatype.aether.util.concurrency.TransferScheduler;
+import org.sonatype.aether.util.concurrency.VirtualThreadExecutor;
 
 /**
  * Provides methods to configure the used {@link ThreadPoolExecutor}.
@@ -43,11 +46,11 @@ abstract class ParallelRepositoryConnector
      */
     protected Executor executor;
 
-    protected void initExecutor( Map<String, Object> config )
+    protected void initExecutor( RepositorySystemSession session, RemoteRepository repository )
     {
         if ( executor == null )
         {
-            int threads = ConfigUtils.getInteger( config, MAX_POOL_SIZE, CFG_PREFIX + ".threads" );
+            int threads = ConfigUtils.getInteger( session, MAX_POOL_SIZE, CFG_PREFIX + ".threads" );
 
             if ( threads <= 1 )
             {
@@ -61,11 +64,21 @@ abstract class ParallelRepositoryConnector
             }
             else
             {
-                ThreadFactory threadFactory = new RepositoryConnectorThreadFactory( getClass().getSimpleName() );
+                executor = VirtualThreadExecutor.getExecutor( session );
 
-                executor =
-                    new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
-                                            threadFactory );
+                if ( executor == null )
+                {
+                    executor = TransferScheduler.getExecutor( session, repository.getHost(), threads );
+                }
+
+                if ( executor == null )
+                {
+                    ThreadFactory threadFactory = new RepositoryConnectorThreadFactory( getClass().getSimpleName() );
+
+                    executor =
+                        new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS,
+                                                new LinkedBlockingQueue<Runnable>(), threadFactory );
+                }
             }
         }
     }
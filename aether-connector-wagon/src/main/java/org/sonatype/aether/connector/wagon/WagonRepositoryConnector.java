@@ -65,6 +65,8 @@ import org.sonatype.aether.transfer.TransferListener;
 import org.sonatype.aether.util.ChecksumUtils;
 import org.sonatype.aether.util.ConfigUtils;
 import org.sonatype.aether.util.concurrency.RunnableErrorForwarder;
+import org.sonatype.aether.util.concurrency.TransferScheduler;
+import org.sonatype.aether.util.concurrency.VirtualThreadExecutor;
 import org.sonatype.aether.util.layout.MavenDefaultLayout;
 import org.sonatype.aether.util.layout.RepositoryLayout;
 import org.sonatype.aether.util.listener.DefaultTransferEvent;
@@ -163,7 +165,7 @@ class WagonRepositoryConnector
         wagonProxy = getProxy( repository );
 
         int threads = ConfigUtils.getInteger( session, 5, PROP_THREADS, "maven.artifact.threads" );
-        executor = getExecutor( threads );
+        executor = getExecutor( session, repository, threads );
 
         checksumAlgos = new LinkedHashMap<String, String>();
         checksumAlgos.put( "SHA-1", ".sha1" );
@@ -181,7 +183,7 @@ class WagonRepositoryConnector
         }
     }
 
-    private Executor getExecutor( int threads )
+    private Executor getExecutor( RepositorySystemSession session, RemoteRepository repository, int threads )
     {
         if ( threads <= 1 )
         {
@@ -193,10 +195,17 @@ class WagonRepositoryConnector
                 }
             };
         }
-        else
+
+        Executor executor = VirtualThreadExecutor.getExecutor( session );
+        if ( executor == null )
+        {
+            executor = TransferScheduler.getExecutor( session, repository.getHost(), threads );
+        }
+        if ( executor != null )
         {
-            return new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
+            return executor;
         }
+        return new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
     }
 
     private static RepositoryPermissions getPermissions( String repoId, RepositorySystemSession session )
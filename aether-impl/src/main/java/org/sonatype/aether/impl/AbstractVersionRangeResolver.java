@@ -0,0 +1,52 @@
+package org.sonatype.aether.impl;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+
+/**
+ * A skeleton implementation for version range resolvers. The batch method in this class simply delegates to
+ * {@link #resolveVersionRange(RepositorySystemSession, VersionRangeRequest)} for each request, subclasses can override
+ * it to process the requests more efficiently.
+ */
+public abstract class AbstractVersionRangeResolver
+    implements BatchVersionRangeResolver
+{
+
+    public List<VersionRangeResult> resolveVersionRanges( RepositorySystemSession session,
+                                                          Collection<? extends VersionRangeRequest> requests )
+    {
+        List<VersionRangeResult> results = new ArrayList<VersionRangeResult>( requests.size() );
+
+        for ( VersionRangeRequest request : requests )
+        {
+            VersionRangeResult result;
+            try
+            {
+                result = resolveVersionRange( session, request );
+            }
+            catch ( VersionRangeResolutionException e )
+            {
+                result = ( e.getResult() != null ) ? e.getResult() : new VersionRangeResult( request );
+                result.addException( e );
+            }
+            results.add( result );
+        }
+
+        return results;
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.sonatype.aether.impl;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.resolution.VersionRequest;
+import org.sonatype.aether.resolution.VersionResolutionException;
+import org.sonatype.aether.resolution.VersionResult;
+
+/**
+ * A skeleton implementation for version resolvers. The batch method in this class simply delegates to
+ * {@link #resolveVersion(RepositorySystemSession, VersionRequest)} for each request, subclasses can override it to
+ * process the requests more efficiently.
+ */
+public abstract class AbstractVersionResolver
+    implements BatchVersionResolver
+{
+
+    public List<VersionResult> resolveVersions( RepositorySystemSession session,
+                                                Collection<? extends VersionRequest> requests )
+    {
+        List<VersionResult> results = new ArrayList<VersionResult>( requests.size() );
+
+        for ( VersionRequest request : requests )
+        {
+            VersionResult result;
+            try
+            {
+                result = resolveVersion( session, request );
+            }
+            catch ( VersionResolutionException e )
+            {
+                result = ( e.getResult() != null ) ? e.getResult() : new VersionResult( request );
+                result.addException( e );
+            }
+            results.add( result );
+        }
+
+        return results;
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.sonatype.aether.impl;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.Collection;
+import java.util.List;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+
+/**
+ * A version range resolver that can process multiple requests at once, e.g. to fetch the metadata for all of them with
+ * a single call to {@link MetadataResolver#resolveMetadata(RepositorySystemSession, Collection)}. <em>Note:</em>
+ * Implementors are strongly advised to inherit from {@link AbstractVersionRangeResolver} instead of directly
+ * implementing this interface.
+ */
+public interface BatchVersionRangeResolver
+    extends VersionRangeResolver
+{
+
+    /**
+     * Expands several version ranges to lists of matching versions. A request whose range could not be resolved does
+     * not fail the whole batch, instead its result holds the {@link VersionRangeResolutionException} that
+     * {@link #resolveVersionRange(RepositorySystemSession, VersionRangeRequest)} would have thrown.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param requests The version range requests, must not be {@code null}
+     * @return The version range results (in request order), never {@code null}.
+     */
+    List<VersionRangeResult> resolveVersionRanges( RepositorySystemSession session,
+                                                   Collection<? extends VersionRangeRequest> requests );
+
+}
@@ -0,0 +1,42 @@
+package org.sonatype.aether.impl;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.Collection;
+import java.util.List;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.resolution.VersionRequest;
+import org.sonatype.aether.resolution.VersionResolutionException;
+import org.sonatype.aether.resolution.VersionResult;
+
+/**
+ * A version resolver that can process multiple requests at once, e.g. to fetch the metadata for all of them with a
+ * single call to {@link MetadataResolver#resolveMetadata(RepositorySystemSession, Collection)}. <em>Note:</em>
+ * Implementors are strongly advised to inherit from {@link AbstractVersionResolver} instead of directly implementing
+ * this interface.
+ */
+public interface BatchVersionResolver
+    extends VersionResolver
+{
+
+    /**
+     * Resolves the meta versions (if any) of several artifacts to concrete versions. A request whose version could not
+     * be resolved does not fail the whole batch, instead its result has no version and holds the
+     * {@link VersionResolutionException} that {@link #resolveVersion(RepositorySystemSession, VersionRequest)} would
+     * have thrown.
+     * 
+     * @param session The repository session, must not be {@code null}.
+     * @param requests The version requests, must not be {@code null}
+     * @return The version results (in request order), never {@code null}.
+     */
+    List<VersionResult> resolveVersions( RepositorySystemSession session,
+                                         Collection<? extends VersionRequest> requests );
+
+}
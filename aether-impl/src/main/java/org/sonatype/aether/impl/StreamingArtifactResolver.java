@@ -0,0 +1,37 @@
+package org.sonatype.aether.impl;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.Collection;
+import java.util.List;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
+import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.resolution.ArtifactResultListener;
+
+/**
+ * An artifact resolver that can report the result for each request while the remaining artifacts are still being
+ * resolved.
+ */
+public interface StreamingArtifactResolver
+    extends ArtifactResolver
+{
+
+    /**
+     * Resolves the paths for a collection of artifacts and notifies the specified listener about the result for each
+     * request as soon as it is available.
+     */
+    List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                           Collection<? extends ArtifactRequest> requests,
+                                           ArtifactResultListener listener )
+        throws ArtifactResolutionException;
+
+}
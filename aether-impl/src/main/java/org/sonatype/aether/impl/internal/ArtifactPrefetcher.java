@@ -0,0 +1,349 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.RequestTrace;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.DependencyFilter;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.impl.ArtifactResolver;
+import org.sonatype.aether.repository.ArtifactRepository;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
+import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.util.artifact.ArtifactProperties;
+import org.sonatype.aether.util.concurrency.VirtualThreadExecutor;
+import org.sonatype.aether.util.graph.DefaultDependencyNode;
+
+/**
+ * Resolves the artifacts that are known before the collection of a dependency graph starts in the background, i.e.
+ * the root artifact and the direct dependencies of a collect request. Unless subject to dependency management, a
+ * direct dependency with a fixed version is nearest by definition and hence usually survives the conflict resolution,
+ * so its download can overlap the collection rather than follow it. Once the graph has been collected, the prefetched
+ * results are matched against the actual artifact requests. As the collector aggregates the repositories of the root
+ * with those of the collect request, a prefetched result matches a request for the same artifact and request context
+ * if it was resolved from one of the request's repositories. Prefetched results without a matching request, e.g.
+ * because the corresponding node got pruned by the graph transformer, are discarded, requests without a matching
+ * prefetched result are resolved as usual. The background resolution merely drives the artifact resolver and waits
+ * for its downloads, so it runs on a virtual thread if configured or a private thread but never occupies a slot of the
+ * shared transfer scheduler, the downloads it triggers are scheduled like those of any other resolution.
+ *
+ * @see DefaultRepositorySystem
+ */
+final class ArtifactPrefetcher
+{
+
+    private final RepositorySystemSession session;
+
+    private final ArtifactResolver artifactResolver;
+
+    private final List<ArtifactRequest> requests = new ArrayList<ArtifactRequest>();
+
+    private FutureTask<List<ArtifactResult>> task;
+
+    private int hits;
+
+    /**
+     * Creates a new prefetcher for the specified collect request.
+     *
+     * @param session The repository system session, must not be {@code null}.
+     * @param artifactResolver The artifact resolver, must not be {@code null}.
+     * @param collectRequest The collect request whose root and direct dependencies should be prefetched, must not be
+     *            {@code null}.
+     * @param filter The filter that will be applied to the collected graph, may be {@code null}.
+     * @param trace The trace information for the artifact requests, may be {@code null}.
+     */
+    public ArtifactPrefetcher( RepositorySystemSession session, ArtifactResolver artifactResolver,
+                               CollectRequest collectRequest, DependencyFilter filter, RequestTrace trace )
+    {
+        this.session = session;
+        this.artifactResolver = artifactResolver;
+
+        Set<String> managed = new HashSet<String>();
+        for ( Dependency dependency : collectRequest.getManagedDependencies() )
+        {
+            managed.add( getManagementKey( dependency.getArtifact() ) );
+        }
+
+        DependencyNode root = new DefaultDependencyNode( collectRequest.getRoot() );
+        if ( collectRequest.getRoot() != null )
+        {
+            addRequest( root, Collections.<DependencyNode> emptyList(), collectRequest, filter, trace );
+        }
+
+        List<DependencyNode> parents = Collections.singletonList( root );
+        for ( Dependency dependency : collectRequest.getDependencies() )
+        {
+            if ( !managed.contains( getManagementKey( dependency.getArtifact() ) ) )
+            {
+                addRequest( new DefaultDependencyNode( dependency ), parents, collectRequest, filter, trace );
+            }
+        }
+    }
+
+    private static String getManagementKey( Artifact artifact )
+    {
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getExtension() + ':'
+            + artifact.getClassifier();
+    }
+
+    private static boolean isRange( Artifact artifact )
+    {
+        String version = artifact.getVersion();
+        return version.length() <= 0 || version.charAt( 0 ) == '[' || version.charAt( 0 ) == '(';
+    }
+
+    private void addRequest( DependencyNode node, List<DependencyNode> parents, CollectRequest collectRequest,
+                             DependencyFilter filter, RequestTrace trace )
+    {
+        Artifact artifact = node.getDependency().getArtifact();
+        if ( artifact.getProperty( ArtifactProperties.LOCAL_PATH, null ) != null || isRange( artifact ) )
+        {
+            return;
+        }
+        if ( filter != null && !filter.accept( node, parents ) )
+        {
+            return;
+        }
+
+        ArtifactRequest request =
+            new ArtifactRequest( artifact, collectRequest.getRepositories(), collectRequest.getRequestContext() );
+        request.setTrace( trace );
+        requests.add( request );
+    }
+
+    /**
+     * Starts the background resolution of the eligible artifacts.
+     */
+    public void start()
+    {
+        if ( requests.isEmpty() )
+        {
+            return;
+        }
+
+        Executor executor = VirtualThreadExecutor.getExecutor( session );
+        if ( executor != null )
+        {
+            start( executor );
+        }
+        else
+        {
+            ThreadPoolExecutor pool =
+                new ThreadPoolExecutor( 1, 1, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
+            try
+            {
+                start( pool );
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Starts the background resolution of the eligible artifacts using the specified executor.
+     *
+     * @param executor The executor to run the resolution, must not be {@code null}.
+     */
+    void start( Executor executor )
+    {
+        if ( requests.isEmpty() )
+        {
+            return;
+        }
+
+        task = new FutureTask<List<ArtifactResult>>( new Callable<List<ArtifactResult>>()
+        {
+            public List<ArtifactResult> call()
+            {
+                try
+                {
+                    return artifactResolver.resolveArtifacts( session, requests );
+                }
+                catch ( ArtifactResolutionException e )
+                {
+                    return e.getResults();
+                }
+            }
+        } );
+
+        executor.execute( task );
+    }
+
+    /**
+     * Waits for the background resolution to finish.
+     *
+     * @return The prefetched results, never {@code null}.
+     */
+    public List<ArtifactResult> close()
+    {
+        if ( task == null )
+        {
+            return Collections.emptyList();
+        }
+
+        boolean interrupted = false;
+        try
+        {
+            while ( true )
+            {
+                try
+                {
+                    return task.get();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+                catch ( ExecutionException e )
+                {
+                    // ignore, the artifacts will simply be resolved again
+                    return Collections.emptyList();
+                }
+            }
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Resolves the specified artifact requests, reusing the matching results of the background resolution.
+     *
+     * @param requests The artifact requests for the collected graph, must not be {@code null}.
+     * @return The resolution results (in request order), never {@code null}.
+     * @throws ArtifactResolutionException If any artifact could not be resolved.
+     */
+    public List<ArtifactResult> resolve( List<ArtifactRequest> requests )
+        throws ArtifactResolutionException
+    {
+        List<ArtifactResult> prefetched = close();
+
+        List<ArtifactResult> results = new ArrayList<ArtifactResult>( requests.size() );
+        List<ArtifactRequest> remaining = new ArrayList<ArtifactRequest>( requests.size() );
+        for ( ArtifactRequest request : requests )
+        {
+            ArtifactResult match = findMatch( request, prefetched );
+            if ( match != null )
+            {
+                ArtifactResult result = new ArtifactResult( request );
+                result.setArtifact( match.getArtifact() );
+                result.setRepository( match.getRepository() );
+                results.add( result );
+                hits++;
+            }
+            else
+            {
+                results.add( null );
+                remaining.add( request );
+            }
+        }
+
+        if ( remaining.isEmpty() )
+        {
+            return results;
+        }
+
+        List<ArtifactResult> resolved;
+        ArtifactResolutionException failure = null;
+        try
+        {
+            resolved = artifactResolver.resolveArtifacts( session, remaining );
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            failure = e;
+            resolved = e.getResults();
+        }
+
+        for ( int i = 0, j = 0; i < results.size(); i++ )
+        {
+            if ( results.get( i ) == null )
+            {
+                results.set( i, resolved.get( j++ ) );
+            }
+        }
+
+        if ( failure != null )
+        {
+            throw new ArtifactResolutionException( results );
+        }
+
+        return results;
+    }
+
+    private static ArtifactResult findMatch( ArtifactRequest request, List<ArtifactResult> prefetched )
+    {
+        for ( ArtifactResult result : prefetched )
+        {
+            ArtifactRequest other = result.getRequest();
+            if ( result.isResolved() && request.getArtifact().equals( other.getArtifact() )
+                && request.getRequestContext().equals( other.getRequestContext() )
+                && isAvailable( request, result.getRepository() ) )
+            {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAvailable( ArtifactRequest request, ArtifactRepository repository )
+    {
+        if ( repository instanceof RemoteRepository )
+        {
+            return request.getRepositories().contains( repository );
+        }
+        // local or workspace repository, available regardless of the remote repositories
+        return true;
+    }
+
+    /**
+     * Gets the number of artifacts that were prefetched.
+     *
+     * @return The number of prefetched artifacts.
+     */
+    public int getScheduled()
+    {
+        return requests.size();
+    }
+
+    /**
+     * Gets the number of artifact requests that were satisfied by a prefetched result.
+     *
+     * @return The number of hits.
+     */
+    public int getHits()
+    {
+        return hits;
+    }
+
+}
@@ -12,6 +12,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -25,6 +27,7 @@ import org.sonatype.aether.collection.DependencyManager;
 import org.sonatype.aether.collection.DependencySelector;
 import org.sonatype.aether.collection.DependencyTraverser;
 import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.repository.ArtifactRepository;
 import org.sonatype.aether.repository.RemoteRepository;
 import org.sonatype.aether.resolution.ArtifactDescriptorException;
@@ -32,6 +35,7 @@ import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
 import org.sonatype.aether.resolution.ArtifactDescriptorResult;
 import org.sonatype.aether.resolution.VersionRangeRequest;
 import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.util.ConfigUtils;
 import org.sonatype.aether.version.Version;
 import org.sonatype.aether.version.VersionConstraint;
 
@@ -45,8 +49,28 @@ final class DataPool
 
     private static final String DEPENDENCY_POOL = DataPool.class.getName() + "$Dependency";
 
+    private static final String ATTRIBUTE_POOL = DataPool.class.getName() + "$Attributes";
+
     private static final String DESCRIPTORS = DataPool.class.getName() + "$Descriptors";
 
+    private static final String CONSTRAINTS = DataPool.class.getName() + "$Constraints";
+
+    private static final String NODES = DataPool.class.getName() + "$Nodes";
+
+    private static final String CONFIG_PROP_SHARE_NODES = "aether.collector.pool.shareSubgraphs";
+
+    private static final String CONFIG_PROP_MAX_SHARED_NODES = "aether.collector.pool.maxSharedSubgraphs";
+
+    private static final String CONFIG_PROP_CONSTRAINT_TTL = "aether.collector.pool.constraintTtl";
+
+    private static final String CONFIG_PROP_MAX_CONSTRAINTS = "aether.collector.pool.maxConstraints";
+
+    private static final String CONFIG_PROP_MAX_OBJECTS = "aether.collector.pool.maxObjects";
+
+    private static final String CONFIG_PROP_MAX_DESCRIPTORS = "aether.collector.pool.maxDescriptors";
+
+    private static final String CONFIG_PROP_MAX_DESCRIPTOR_BYTES = "aether.collector.pool.maxDescriptorBytes";
+
     public static final ArtifactDescriptorResult NO_DESCRIPTOR =
         new ArtifactDescriptorResult( new ArtifactDescriptorRequest() );
 
@@ -54,14 +78,39 @@ final class DataPool
 
     private ObjectPool<Dependency> dependencies;
 
+    private ObjectPool<GraphEdge.Attributes> attributes;
+
     private Map<Object, Descriptor> descriptors;
 
-    private Map<Object, Constraint> constraints = new WeakHashMap<Object, Constraint>();
+    private LruCache<Object, Descriptor> boundedDescriptors;
+
+    private PersistentDescriptorCache persistentDescriptors;
+
+    private Map<Object, Constraint> constraints;
+
+    private ConstraintCache sharedConstraints;
+
+    private long constraintTtl;
 
     private Map<Object, GraphNode> nodes = new HashMap<Object, GraphNode>( 256 );
 
-    @SuppressWarnings( "unchecked" )
+    private StripedLruCache<Object, GraphNode> sharedNodes;
+
+    private Map<Object, GraphNode> previousNodes;
+
+    private Map<GraphNode, Boolean> reusedPreviousNodes;
+
+    private Map<GraphNode, Boolean> unshareableNodes;
+
+    private int reusedNodes;
+
     public DataPool( RepositorySystemSession session )
+    {
+        this( session, PersistentDescriptorCache.newInstance( session ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public DataPool( RepositorySystemSession session, PersistentDescriptorCache persistentDescriptors )
     {
         RepositoryCache cache = session.getCache();
 
@@ -69,12 +118,40 @@ final class DataPool
         {
             artifacts = (ObjectPool<Artifact>) cache.get( session, ARTIFACT_POOL );
             dependencies = (ObjectPool<Dependency>) cache.get( session, DEPENDENCY_POOL );
-            descriptors = (Map<Object, Descriptor>) cache.get( session, DESCRIPTORS );
+            attributes = (ObjectPool<GraphEdge.Attributes>) cache.get( session, ATTRIBUTE_POOL );
+            Object cached = cache.get( session, DESCRIPTORS );
+            if ( cached instanceof LruCache<?, ?> )
+            {
+                boundedDescriptors = (LruCache<Object, Descriptor>) cached;
+            }
+            else
+            {
+                descriptors = (Map<Object, Descriptor>) cached;
+            }
+        }
+
+        constraintTtl = ConfigUtils.getInteger( session, 0, CONFIG_PROP_CONSTRAINT_TTL );
+        if ( constraintTtl > 0 && cache != null )
+        {
+            sharedConstraints = (ConstraintCache) cache.get( session, CONSTRAINTS );
+            if ( sharedConstraints == null )
+            {
+                int maxConstraints = ConfigUtils.getInteger( session, 10000, CONFIG_PROP_MAX_CONSTRAINTS );
+                sharedConstraints = new ConstraintCache( Math.max( maxConstraints, 1 ) );
+                cache.put( session, CONSTRAINTS, sharedConstraints );
+            }
+        }
+        else
+        {
+            constraintTtl = 0;
+            constraints = new WeakHashMap<Object, Constraint>();
         }
 
+        int maxObjects = ConfigUtils.getInteger( session, 0, CONFIG_PROP_MAX_OBJECTS );
+
         if ( artifacts == null )
         {
-            artifacts = new ObjectPool<Artifact>();
+            artifacts = new ObjectPool<Artifact>( maxObjects );
             if ( cache != null )
             {
                 cache.put( session, ARTIFACT_POOL, artifacts );
@@ -83,21 +160,71 @@ final class DataPool
 
         if ( dependencies == null )
         {
-            dependencies = new ObjectPool<Dependency>();
+            dependencies = new ObjectPool<Dependency>( maxObjects );
             if ( cache != null )
             {
                 cache.put( session, DEPENDENCY_POOL, dependencies );
             }
         }
 
-        if ( descriptors == null )
+        if ( attributes == null )
         {
-            descriptors = Collections.synchronizedMap( new WeakHashMap<Object, Descriptor>( 256 ) );
+            attributes = new ObjectPool<GraphEdge.Attributes>( maxObjects );
             if ( cache != null )
             {
-                cache.put( session, DESCRIPTORS, descriptors );
+                cache.put( session, ATTRIBUTE_POOL, attributes );
+            }
+        }
+
+        if ( descriptors == null && boundedDescriptors == null )
+        {
+            boundedDescriptors = newBoundedDescriptors( session );
+            if ( boundedDescriptors == null )
+            {
+                descriptors = Collections.synchronizedMap( new WeakHashMap<Object, Descriptor>( 256 ) );
+            }
+            if ( cache != null )
+            {
+                cache.put( session, DESCRIPTORS, ( boundedDescriptors != null ) ? boundedDescriptors : descriptors );
+            }
+        }
+
+        if ( cache != null && ConfigUtils.getBoolean( session, false, CONFIG_PROP_SHARE_NODES ) )
+        {
+            sharedNodes = (StripedLruCache<Object, GraphNode>) cache.get( session, NODES );
+            if ( sharedNodes == null )
+            {
+                // each entry retains a whole subgraph, so keep the number of entries in check
+                int maxNodes = ConfigUtils.getInteger( session, 2048, CONFIG_PROP_MAX_SHARED_NODES );
+                sharedNodes = new StripedLruCache<Object, GraphNode>( Math.max( maxNodes, 1 ) );
+                cache.put( session, NODES, sharedNodes );
             }
+            unshareableNodes = new IdentityHashMap<GraphNode, Boolean>();
         }
+
+        this.persistentDescriptors = persistentDescriptors;
+    }
+
+    private static LruCache<Object, Descriptor> newBoundedDescriptors( RepositorySystemSession session )
+    {
+        int maxDescriptors = ConfigUtils.getInteger( session, 0, CONFIG_PROP_MAX_DESCRIPTORS );
+        int maxBytes = ConfigUtils.getInteger( session, 0, CONFIG_PROP_MAX_DESCRIPTOR_BYTES );
+
+        if ( maxDescriptors <= 0 && maxBytes <= 0 )
+        {
+            return null;
+        }
+
+        return new LruCache<Object, Descriptor>( maxDescriptors, maxBytes )
+        {
+
+            @Override
+            protected int weigh( Object key, Descriptor value )
+            {
+                return value.getWeight();
+            }
+
+        };
     }
 
     public Artifact intern( Artifact artifact )
@@ -110,6 +237,14 @@ final class DataPool
         return dependencies.intern( dependency );
     }
 
+    public GraphEdge.Attributes newAttributes( String context, String premanagedScope, String premanagedVersion,
+                                               List<Artifact> relocations, VersionConstraint versionConstraint,
+                                               Version version )
+    {
+        return attributes.intern( new GraphEdge.Attributes( attributes, context, premanagedScope, premanagedVersion,
+                                                            relocations, versionConstraint, version ) );
+    }
+
     public Object toKey( ArtifactDescriptorRequest request )
     {
         return request.getArtifact();
@@ -117,22 +252,52 @@ final class DataPool
 
     public ArtifactDescriptorResult getDescriptor( Object key, ArtifactDescriptorRequest request )
     {
-        Descriptor descriptor = descriptors.get( key );
+        Descriptor descriptor = lookupDescriptor( key );
         if ( descriptor != null )
         {
             return descriptor.toResult( request );
         }
+        if ( persistentDescriptors != null )
+        {
+            ArtifactDescriptorResult result = persistentDescriptors.get( request );
+            if ( result != null )
+            {
+                storeDescriptor( key, new GoodDescriptor( result ) );
+                return result;
+            }
+        }
         return null;
     }
 
     public void putDescriptor( Object key, ArtifactDescriptorResult result )
     {
-        descriptors.put( key, new GoodDescriptor( result ) );
+        storeDescriptor( key, new GoodDescriptor( result ) );
+        if ( persistentDescriptors != null )
+        {
+            persistentDescriptors.put( result );
+        }
     }
 
     public void putDescriptor( Object key, ArtifactDescriptorException e )
     {
-        descriptors.put( key, BadDescriptor.INSTANCE );
+        storeDescriptor( key, BadDescriptor.INSTANCE );
+    }
+
+    private Descriptor lookupDescriptor( Object key )
+    {
+        return ( boundedDescriptors != null ) ? boundedDescriptors.get( key ) : descriptors.get( key );
+    }
+
+    private void storeDescriptor( Object key, Descriptor descriptor )
+    {
+        if ( boundedDescriptors != null )
+        {
+            boundedDescriptors.put( key, descriptor );
+        }
+        else
+        {
+            descriptors.put( key, descriptor );
+        }
     }
 
     public Object toKey( VersionRangeRequest request )
@@ -142,6 +307,20 @@ final class DataPool
 
     public VersionRangeResult getConstraint( Object key, VersionRangeRequest request )
     {
+        if ( sharedConstraints != null )
+        {
+            Constraint constraint = sharedConstraints.get( key );
+            if ( constraint != null )
+            {
+                if ( System.currentTimeMillis() - constraint.timestamp > constraintTtl )
+                {
+                    sharedConstraints.remove( key );
+                    return null;
+                }
+                return constraint.toResult( request );
+            }
+            return null;
+        }
         Constraint constraint = constraints.get( key );
         if ( constraint != null )
         {
@@ -152,7 +331,40 @@ final class DataPool
 
     public void putConstraint( Object key, VersionRangeResult result )
     {
-        constraints.put( key, new Constraint( result ) );
+        if ( sharedConstraints != null )
+        {
+            sharedConstraints.put( key, new Constraint( result ) );
+        }
+        else
+        {
+            constraints.put( key, new Constraint( result ) );
+        }
+    }
+
+    /**
+     * Discards the version range results of the specified artifact that have been memoized for the given session, e.g.
+     * because the metadata they originate from has been updated.
+     * 
+     * @param session The repository session whose memoized results should be invalidated, must not be {@code null}.
+     * @param groupId The group identifier of the updated artifact, must not be {@code null}.
+     * @param artifactId The artifact identifier of the updated artifact, may be empty to invalidate the results for
+     *            all artifacts of the group.
+     */
+    public static void invalidateConstraints( RepositorySystemSession session, String groupId, String artifactId )
+    {
+        RepositoryCache cache = session.getCache();
+        if ( cache == null )
+        {
+            return;
+        }
+
+        ConstraintCache constraints = (ConstraintCache) cache.get( session, CONSTRAINTS );
+        if ( constraints == null )
+        {
+            return;
+        }
+
+        constraints.invalidate( groupId, artifactId );
     }
 
     public Object toKey( Artifact artifact, List<RemoteRepository> repositories )
@@ -166,6 +378,37 @@ final class DataPool
         return new GraphKey( artifact, repositories, selector, manager, traverser );
     }
 
+    /**
+     * Gets a summary of the hit/miss/eviction statistics of the session-scoped pools, intended for diagnostics.
+     * 
+     * @return The statistics of the pools, never {@code null}.
+     */
+    public String getStatistics()
+    {
+        StringBuilder buffer = new StringBuilder( 256 );
+        buffer.append( "artifacts {" ).append( artifacts ).append( "}, dependencies {" ).append( dependencies );
+        buffer.append( "}, attributes {" ).append( attributes );
+        buffer.append( "}, descriptors {" );
+        if ( boundedDescriptors != null )
+        {
+            buffer.append( boundedDescriptors );
+        }
+        else
+        {
+            buffer.append( "size=" ).append( descriptors.size() );
+        }
+        buffer.append( "}" );
+        if ( sharedConstraints != null )
+        {
+            buffer.append( ", constraints {" ).append( sharedConstraints ).append( "}" );
+        }
+        if ( sharedNodes != null )
+        {
+            buffer.append( ", subgraphs {" ).append( sharedNodes ).append( "}" );
+        }
+        return buffer.toString();
+    }
+
     public GraphNode getNode( Object key )
     {
         return nodes.get( key );
@@ -176,11 +419,222 @@ final class DataPool
         nodes.put( key, node );
     }
 
+    public boolean isSharingNodes()
+    {
+        return unshareableNodes != null;
+    }
+
+    /**
+     * Enables the tracking of reusable subgraphs for an incremental collection.
+     * 
+     * @param previousNodes The subgraphs published by the previous collection (cf. {@link #snapshotNodes()}) that may
+     *            be reused, may be {@code null}.
+     */
+    public void setIncremental( Map<Object, GraphNode> previousNodes )
+    {
+        this.previousNodes = previousNodes;
+        reusedPreviousNodes = new IdentityHashMap<GraphNode, Boolean>();
+        if ( unshareableNodes == null )
+        {
+            unshareableNodes = new IdentityHashMap<GraphNode, Boolean>();
+        }
+    }
+
+    /**
+     * Looks up a subgraph that was expanded by a previous collection of the session. The shared subgraph itself is
+     * never handed out, the caller receives a private copy that is registered with this pool.
+     * 
+     * @param key The graph key of the node to look up, must not be {@code null}.
+     * @param requestContext The request context to use for the copied edges, may be {@code null}.
+     * @return A copy of the shared node or {@code null} if none.
+     */
+    public GraphNode getSharedNode( Object key, String requestContext )
+    {
+        if ( !( key instanceof GraphKey ) )
+        {
+            return null;
+        }
+        GraphNode shared = null;
+        if ( previousNodes != null )
+        {
+            shared = previousNodes.get( key );
+        }
+        if ( shared == null && sharedNodes != null )
+        {
+            shared = sharedNodes.get( key );
+        }
+        if ( shared == null )
+        {
+            return null;
+        }
+        Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+        GraphNode node = copy( shared, requestContext, copies );
+        if ( reusedPreviousNodes != null )
+        {
+            for ( Object original : copies.keySet() )
+            {
+                if ( original instanceof GraphNode )
+                {
+                    reusedPreviousNodes.put( (GraphNode) original, Boolean.TRUE );
+                }
+            }
+        }
+        nodes.put( key, node );
+        reusedNodes++;
+        return node;
+    }
+
+    public void markUnshareable( GraphNode node )
+    {
+        if ( unshareableNodes != null )
+        {
+            unshareableNodes.put( node, Boolean.TRUE );
+        }
+    }
+
+    public boolean isUnshareable( GraphNode node )
+    {
+        return unshareableNodes != null && unshareableNodes.containsKey( node );
+    }
+
+    /**
+     * Publishes the fully expanded subgraphs of this collection to the session such that later collections can reuse
+     * them. Only subgraphs that are self-contained, were collected without errors and do not involve version ranges
+     * are published, and they are copied to protect them from modifications by graph transformers. Shared subgraphs
+     * live as long as the session, so unlike the memoized range results they would never pick up newer versions.
+     */
+    public void shareNodes()
+    {
+        if ( sharedNodes == null )
+        {
+            return;
+        }
+        Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+        Map<GraphNode, Boolean> ranges = new IdentityHashMap<GraphNode, Boolean>();
+        for ( Map.Entry<Object, GraphNode> entry : nodes.entrySet() )
+        {
+            Object key = entry.getKey();
+            GraphNode node = entry.getValue();
+            if ( key instanceof GraphKey && !isUnshareable( node ) && !sharedNodes.containsKey( key )
+                && !hasRanges( node, ranges ) )
+            {
+                sharedNodes.put( key, copy( node, null, copies ) );
+            }
+        }
+    }
+
+    private static boolean hasRanges( GraphNode node, Map<GraphNode, Boolean> ranges )
+    {
+        Boolean result = ranges.get( node );
+        if ( result != null )
+        {
+            return result.booleanValue();
+        }
+        // subgraphs with cycles are unshareable anyway, the preliminary result merely stops the recursion
+        ranges.put( node, Boolean.FALSE );
+        boolean found = false;
+        for ( DependencyNode child : node.getOutgoingEdges() )
+        {
+            GraphEdge edge = (GraphEdge) child;
+            VersionConstraint constraint = edge.getVersionConstraint();
+            if ( ( constraint != null && !constraint.getRanges().isEmpty() ) || hasRanges( edge.getTarget(), ranges ) )
+            {
+                found = true;
+                break;
+            }
+        }
+        ranges.put( node, Boolean.valueOf( found ) );
+        return found;
+    }
+
+    /**
+     * Creates a snapshot of the reusable subgraphs of this collection for a later incremental collection. Besides the
+     * subgraphs expanded by this collection, the snapshot retains those subgraphs of the previous snapshot that were
+     * reused, subgraphs that became obsolete are dropped.
+     * 
+     * @return The reusable subgraphs, never {@code null}.
+     */
+    public Map<Object, GraphNode> snapshotNodes()
+    {
+        Map<Object, GraphNode> snapshot = new HashMap<Object, GraphNode>( nodes.size() * 2 );
+        if ( previousNodes != null )
+        {
+            for ( Map.Entry<Object, GraphNode> entry : previousNodes.entrySet() )
+            {
+                if ( reusedPreviousNodes.containsKey( entry.getValue() ) )
+                {
+                    snapshot.put( entry.getKey(), entry.getValue() );
+                }
+            }
+        }
+        Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+        for ( Map.Entry<Object, GraphNode> entry : nodes.entrySet() )
+        {
+            Object key = entry.getKey();
+            if ( key instanceof GraphKey && !isUnshareable( entry.getValue() ) && !snapshot.containsKey( key ) )
+            {
+                snapshot.put( key, copy( entry.getValue(), null, copies ) );
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the number of subgraphs that this pool reused from previous collections.
+     * 
+     * @return The number of reused subgraphs.
+     */
+    public int getReusedNodes()
+    {
+        return reusedNodes;
+    }
+
+    private GraphNode copy( GraphNode node, String requestContext, Map<Object, Object> copies )
+    {
+        GraphNode copy = (GraphNode) copies.get( node );
+        if ( copy == null )
+        {
+            copy = new GraphNode();
+            copies.put( node, copy );
+            copy.setAliases( node.getAliases() );
+            copy.setRepositories( node.getRepositories() );
+            List<DependencyNode> edges = copy.getOutgoingEdges();
+            for ( DependencyNode edge : node.getOutgoingEdges() )
+            {
+                edges.add( copy( (GraphEdge) edge, requestContext, copies ) );
+            }
+        }
+        return copy;
+    }
+
+    private GraphEdge copy( GraphEdge edge, String requestContext, Map<Object, Object> copies )
+    {
+        GraphEdge copy = new GraphEdge( copy( edge.getTarget(), requestContext, copies ) );
+        copy.setDependency( edge.getDependency() );
+        copy.setAttributes( edge.getAttributes() );
+        if ( requestContext != null )
+        {
+            copy.setRequestContext( requestContext );
+        }
+        for ( Map.Entry<Object, Object> entry : edge.getData().entrySet() )
+        {
+            copy.setData( entry.getKey(), entry.getValue() );
+        }
+        return copy;
+    }
+
     static abstract class Descriptor
     {
 
         public abstract ArtifactDescriptorResult toResult( ArtifactDescriptorRequest request );
 
+        /**
+         * Gets a rough estimate of the number of bytes retained by this descriptor.
+         * 
+         * @return The estimated weight of this descriptor.
+         */
+        public abstract int getWeight();
+
     }
 
     static class GoodDescriptor
@@ -193,6 +647,8 @@ final class DataPool
 
         final List<Artifact> relocations;
 
+        final Collection<Artifact> aliases;
+
         final List<RemoteRepository> repositories;
 
         final List<Dependency> dependencies;
@@ -204,19 +660,31 @@ final class DataPool
             artifact = result.getArtifact();
             properties = result.getProperties();
             relocations = result.getRelocations();
+            aliases = result.getAliases();
             dependencies = result.getDependencies();
             managedDependencies = result.getManagedDependencies();
             repositories = clone( result.getRepositories() );
         }
 
+        public int getWeight()
+        {
+            int weight = 128;
+            weight += 64 * properties.size();
+            weight += 96 * ( relocations.size() + aliases.size() );
+            weight += 160 * ( dependencies.size() + managedDependencies.size() );
+            weight += 256 * repositories.size();
+            return weight;
+        }
+
         public ArtifactDescriptorResult toResult( ArtifactDescriptorRequest request )
         {
             ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
             result.setArtifact( artifact );
             result.setProperties( properties );
             result.setRelocations( relocations );
+            result.setAliases( aliases );
             result.setDependencies( dependencies );
-            result.setManagedDependencies( dependencies );
+            result.setManagedDependencies( managedDependencies );
             result.setRepositories( clone( repositories ) );
             return result;
         }
@@ -246,6 +714,11 @@ final class DataPool
             return NO_DESCRIPTOR;
         }
 
+        public int getWeight()
+        {
+            return 32;
+        }
+
     }
 
     static class Constraint
@@ -255,8 +728,11 @@ final class DataPool
 
         final VersionConstraint versionConstraint;
 
+        final long timestamp;
+
         public Constraint( VersionRangeResult result )
         {
+            timestamp = System.currentTimeMillis();
             versionConstraint = result.getVersionConstraint();
             repositories = new LinkedHashMap<Version, ArtifactRepository>();
             for ( Version version : result.getVersions() )
@@ -279,6 +755,135 @@ final class DataPool
 
     }
 
+    /**
+     * The session-scoped cache of version range results, indexed by groupId and artifactId such that invalidation upon
+     * metadata updates does not need to scan all entries.
+     */
+    static class ConstraintCache
+        extends StripedLruCache<Object, Constraint>
+    {
+
+        private final Map<String, Map<String, Collection<Object>>> index =
+            new HashMap<String, Map<String, Collection<Object>>>();
+
+        public ConstraintCache( int maxEntries )
+        {
+            super( maxEntries );
+        }
+
+        @Override
+        public Constraint put( Object key, Constraint value )
+        {
+            Constraint old = super.put( key, value );
+            index( (ConstraintKey) key );
+            return old;
+        }
+
+        @Override
+        public Constraint remove( Object key )
+        {
+            Constraint old = super.remove( key );
+            unindex( (ConstraintKey) key );
+            return old;
+        }
+
+        @Override
+        protected void evicted( Object key, Constraint value )
+        {
+            unindex( (ConstraintKey) key );
+        }
+
+        /**
+         * Removes the entries for the specified artifact.
+         * 
+         * @param groupId The group identifier of the artifact, must not be {@code null}.
+         * @param artifactId The artifact identifier, may be empty to remove the entries for all artifacts of the group.
+         */
+        public void invalidate( String groupId, String artifactId )
+        {
+            // collect the keys first, removing them locks the stripes which must not happen while holding the index
+            for ( Object key : getKeys( groupId, artifactId ) )
+            {
+                remove( key );
+            }
+        }
+
+        private synchronized Collection<Object> getKeys( String groupId, String artifactId )
+        {
+            Collection<Object> keys = new ArrayList<Object>();
+            Map<String, Collection<Object>> artifacts = index.get( groupId );
+            if ( artifacts != null )
+            {
+                if ( artifactId.length() <= 0 )
+                {
+                    for ( Collection<Object> artifactKeys : artifacts.values() )
+                    {
+                        keys.addAll( artifactKeys );
+                    }
+                }
+                else if ( artifacts.containsKey( artifactId ) )
+                {
+                    keys.addAll( artifacts.get( artifactId ) );
+                }
+            }
+            return keys;
+        }
+
+        /**
+         * Gets the number of keys held by the index, intended for testing.
+         * 
+         * @return The number of indexed keys.
+         */
+        synchronized int getIndexSize()
+        {
+            int size = 0;
+            for ( Map<String, Collection<Object>> artifacts : index.values() )
+            {
+                for ( Collection<Object> keys : artifacts.values() )
+                {
+                    size += keys.size();
+                }
+            }
+            return size;
+        }
+
+        private synchronized void index( ConstraintKey key )
+        {
+            Map<String, Collection<Object>> artifacts = index.get( key.artifact.getGroupId() );
+            if ( artifacts == null )
+            {
+                artifacts = new HashMap<String, Collection<Object>>();
+                index.put( key.artifact.getGroupId(), artifacts );
+            }
+            Collection<Object> keys = artifacts.get( key.artifact.getArtifactId() );
+            if ( keys == null )
+            {
+                keys = new HashSet<Object>();
+                artifacts.put( key.artifact.getArtifactId(), keys );
+            }
+            keys.add( key );
+        }
+
+        private synchronized void unindex( ConstraintKey key )
+        {
+            Map<String, Collection<Object>> artifacts = index.get( key.artifact.getGroupId() );
+            if ( artifacts == null )
+            {
+                return;
+            }
+            Collection<Object> keys = artifacts.get( key.artifact.getArtifactId() );
+            if ( keys != null && keys.remove( key ) && keys.isEmpty() )
+            {
+                artifacts.remove( key.artifact.getArtifactId() );
+                if ( artifacts.isEmpty() )
+                {
+                    index.remove( key.artifact.getGroupId() );
+                }
+            }
+        }
+
+    }
+
     static class ConstraintKey
     {
 
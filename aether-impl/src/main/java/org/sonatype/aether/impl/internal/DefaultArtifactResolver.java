@@ -13,8 +13,16 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.codehaus.plexus.component.annotations.Component;
@@ -27,6 +35,7 @@ import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.impl.ArtifactResolver;
 import org.sonatype.aether.impl.RemoteRepositoryManager;
 import org.sonatype.aether.impl.RepositoryEventDispatcher;
+import org.sonatype.aether.impl.StreamingArtifactResolver;
 import org.sonatype.aether.impl.SyncContextFactory;
 import org.sonatype.aether.impl.UpdateCheck;
 import org.sonatype.aether.impl.UpdateCheckManager;
@@ -43,11 +52,13 @@ import org.sonatype.aether.repository.WorkspaceReader;
 import org.sonatype.aether.resolution.ArtifactRequest;
 import org.sonatype.aether.resolution.ArtifactResolutionException;
 import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.resolution.ArtifactResultListener;
 import org.sonatype.aether.resolution.VersionRequest;
 import org.sonatype.aether.resolution.VersionResolutionException;
 import org.sonatype.aether.resolution.VersionResult;
 import org.sonatype.aether.spi.connector.ArtifactDownload;
 import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.Transfer;
 import org.sonatype.aether.spi.io.FileProcessor;
 import org.sonatype.aether.spi.locator.Service;
 import org.sonatype.aether.spi.locator.ServiceLocator;
@@ -59,6 +70,8 @@ import org.sonatype.aether.transfer.NoRepositoryConnectorException;
 import org.sonatype.aether.util.ConfigUtils;
 import org.sonatype.aether.util.DefaultRequestTrace;
 import org.sonatype.aether.util.artifact.ArtifactProperties;
+import org.sonatype.aether.util.concurrency.RunnableErrorForwarder;
+import org.sonatype.aether.util.concurrency.TransferScheduler;
 import org.sonatype.aether.util.listener.DefaultRepositoryEvent;
 
 /**
@@ -66,9 +79,18 @@ import org.sonatype.aether.util.listener.DefaultRepositoryEvent;
  */
 @Component( role = ArtifactResolver.class )
 public class DefaultArtifactResolver
-    implements ArtifactResolver, Service
+    implements StreamingArtifactResolver, Service
 {
 
+    /**
+     * The maximum number of remote repositories that are concurrently downloaded from by a single call to
+     * {@link #resolveArtifacts(RepositorySystemSession, Collection)}, defaults to {@code 1}. If greater than one, the
+     * downloads run on worker threads (taken from the shared transfer scheduler if enabled for the session) and so do
+     * the repository events fired for the downloads and the registration of the downloaded artifacts with the local
+     * repository manager. Listeners and local repository managers must hence be thread-safe when using this option.
+     */
+    static final String CONFIG_PROP_THREADS = "aether.artifactResolver.threads";
+
     @Requirement
     private Logger logger = NullLogger.INSTANCE;
 
@@ -196,6 +218,14 @@ public class DefaultArtifactResolver
     public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
                                                   Collection<? extends ArtifactRequest> requests )
         throws ArtifactResolutionException
+    {
+        return resolveArtifacts( session, requests, null );
+    }
+
+    public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                  Collection<? extends ArtifactRequest> requests,
+                                                  ArtifactResultListener listener )
+        throws ArtifactResolutionException
     {
         SyncContext syncContext = syncContextFactory.newInstance( session, false );
 
@@ -213,7 +243,7 @@ public class DefaultArtifactResolver
 
             syncContext.acquire( artifacts, null );
 
-            return resolve( session, requests );
+            return resolve( session, requests, listener );
         }
         finally
         {
@@ -222,7 +252,8 @@ public class DefaultArtifactResolver
     }
 
     private List<ArtifactResult> resolve( RepositorySystemSession session,
-                                          Collection<? extends ArtifactRequest> requests )
+                                          Collection<? extends ArtifactRequest> requests,
+                                          ArtifactResultListener listener )
         throws ArtifactResolutionException
     {
         List<ArtifactResult> results = new ArrayList<ArtifactResult>( requests.size() );
@@ -233,6 +264,9 @@ public class DefaultArtifactResolver
 
         List<ResolutionGroup> groups = new ArrayList<ResolutionGroup>();
 
+        List<VersionRequest> versionRequests = new ArrayList<VersionRequest>( requests.size() );
+        List<ArtifactResult> versionedResults = new ArrayList<ArtifactResult>( requests.size() );
+
         for ( ArtifactRequest request : requests )
         {
             RequestTrace trace = DefaultRequestTrace.newChild( request.getTrace(), request );
@@ -241,7 +275,6 @@ public class DefaultArtifactResolver
             results.add( result );
 
             Artifact artifact = request.getArtifact();
-            List<RemoteRepository> repos = request.getRepositories();
 
             artifactResolving( session, trace, artifact );
 
@@ -260,23 +293,38 @@ public class DefaultArtifactResolver
                     artifact = artifact.setFile( file );
                     result.setArtifact( artifact );
                     artifactResolved( session, trace, artifact, null, result.getExceptions() );
+                    artifactResolved( listener, result );
                 }
                 continue;
             }
 
-            VersionResult versionResult;
-            try
-            {
-                VersionRequest versionRequest = new VersionRequest( artifact, repos, request.getRequestContext() );
-                versionRequest.setTrace( trace );
-                versionResult = versionResolver.resolveVersion( session, versionRequest );
-            }
-            catch ( VersionResolutionException e )
+            VersionRequest versionRequest =
+                new VersionRequest( artifact, request.getRepositories(), request.getRequestContext() );
+            versionRequest.setTrace( trace );
+            versionRequests.add( versionRequest );
+            versionedResults.add( result );
+        }
+
+        List<VersionResult> versionResults =
+            Utils.toBatchVersionResolver( versionResolver ).resolveVersions( session, versionRequests );
+
+        for ( int i = 0; i < versionResults.size(); i++ )
+        {
+            VersionResult versionResult = versionResults.get( i );
+            ArtifactResult result = versionedResults.get( i );
+
+            VersionResolutionException versionException = Utils.getException( versionResult );
+            if ( versionException != null )
             {
-                result.addException( e );
+                result.addException( versionException );
                 continue;
             }
 
+            ArtifactRequest request = result.getRequest();
+            RequestTrace trace = versionResult.getRequest().getTrace();
+            Artifact artifact = request.getArtifact();
+            List<RemoteRepository> repos = request.getRepositories();
+
             artifact = artifact.setVersion( versionResult.getVersion() );
 
             if ( versionResult.getRepository() != null )
@@ -300,6 +348,7 @@ public class DefaultArtifactResolver
                     result.setArtifact( artifact );
                     result.setRepository( workspace.getRepository() );
                     artifactResolved( session, trace, artifact, result.getRepository(), null );
+                    artifactResolved( listener, result );
                     continue;
                 }
             }
@@ -321,6 +370,7 @@ public class DefaultArtifactResolver
                     artifact = artifact.setFile( getFile( session, artifact, local.getFile() ) );
                     result.setArtifact( artifact );
                     artifactResolved( session, trace, artifact, result.getRepository(), null );
+                    artifactResolved( listener, result );
                 }
                 catch ( ArtifactTransferException e )
                 {
@@ -381,164 +431,203 @@ public class DefaultArtifactResolver
             }
         }
 
-        for ( ResolutionGroup group : groups )
+        int threads = ConfigUtils.getInteger( session, 1, CONFIG_PROP_THREADS );
+        if ( threads > 1 && groups.size() > 1 )
+        {
+            new ResolutionScheduler( session, groups, listener ).run( Math.min( threads, groups.size() ) );
+        }
+        else
         {
-            List<ArtifactDownload> downloads = new ArrayList<ArtifactDownload>();
-            for ( ResolutionItem item : group.items )
+            for ( ResolutionGroup group : groups )
             {
-                Artifact artifact = item.artifact;
+                download( session, group, group.items, listener );
+            }
+        }
 
-                if ( item.resolved.get() )
-                {
-                    // resolved in previous resolution group
-                    continue;
-                }
+        for ( ArtifactResult result : results )
+        {
+            ArtifactRequest request = result.getRequest();
 
-                ArtifactDownload download = new ArtifactDownload();
-                download.setArtifact( artifact );
-                download.setRequestContext( item.request.getRequestContext() );
-                download.setTrace( item.trace );
-                if ( item.local.getFile() != null )
-                {
-                    download.setFile( item.local.getFile() );
-                    download.setExistenceCheck( true );
-                }
-                else
+            Artifact artifact = result.getArtifact();
+            if ( artifact == null || artifact.getFile() == null )
+            {
+                failures = true;
+                if ( result.getExceptions().isEmpty() )
                 {
-                    String path =
-                        lrm.getPathForRemoteArtifact( artifact, group.repository, item.request.getRequestContext() );
-                    download.setFile( new File( lrm.getRepository().getBasedir(), path ) );
+                    Exception exception = new ArtifactNotFoundException( request.getArtifact(), null );
+                    result.addException( exception );
                 }
+                RequestTrace trace = DefaultRequestTrace.newChild( request.getTrace(), request );
+                artifactResolved( session, trace, request.getArtifact(), null, result.getExceptions() );
+                artifactResolved( listener, result );
+            }
+        }
 
-                boolean snapshot = artifact.isSnapshot();
-                RepositoryPolicy policy =
-                    remoteRepositoryManager.getPolicy( session, group.repository, !snapshot, snapshot );
+        if ( failures )
+        {
+            throw new ArtifactResolutionException( results );
+        }
 
-                if ( session.isNotFoundCachingEnabled() || session.isTransferErrorCachingEnabled() )
-                {
-                    UpdateCheck<Artifact, ArtifactTransferException> check =
-                        new UpdateCheck<Artifact, ArtifactTransferException>();
-                    check.setItem( artifact );
-                    check.setFile( download.getFile() );
-                    check.setFileValid( !download.isExistenceCheck() );
-                    check.setRepository( group.repository );
-                    check.setPolicy( policy.getUpdatePolicy() );
-                    item.updateCheck = check;
-                    updateCheckManager.checkArtifact( session, check );
-                    if ( !check.isRequired() )
-                    {
-                        item.result.addException( check.getException() );
-                        continue;
-                    }
-                }
+        return results;
+    }
 
-                download.setChecksumPolicy( policy.getChecksumPolicy() );
-                download.setRepositories( item.repository.getMirroredRepositories() );
-                downloads.add( download );
-                item.download = download;
-            }
+    private void download( RepositorySystemSession session, ResolutionGroup group, List<ResolutionItem> items,
+                           ArtifactResultListener listener )
+    {
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+
+        List<ArtifactDownload> downloads = new ArrayList<ArtifactDownload>();
+        for ( ResolutionItem item : items )
+        {
+            Artifact artifact = item.artifact;
 
-            if ( downloads.isEmpty() )
+            if ( item.resolved.get() )
             {
+                // resolved in previous resolution group
                 continue;
             }
 
-            for ( ArtifactDownload download : downloads )
+            ArtifactDownload download;
+            if ( listener != null )
             {
-                artifactDownloading( session, download.getTrace(), download.getArtifact(), group.repository );
+                download = new ResolutionDownload( session, group, item, listener );
             }
-
-            try
+            else
             {
-                RepositoryConnector connector =
-                    remoteRepositoryManager.getRepositoryConnector( session, group.repository );
-                try
-                {
-                    connector.get( downloads, null );
-                }
-                finally
-                {
-                    connector.close();
-                }
+                download = new ArtifactDownload();
             }
-            catch ( NoRepositoryConnectorException e )
+            download.setArtifact( artifact );
+            download.setRequestContext( item.request.getRequestContext() );
+            download.setTrace( item.trace );
+            if ( item.local.getFile() != null )
             {
-                for ( ArtifactDownload download : downloads )
-                {
-                    download.setException( new ArtifactTransferException( download.getArtifact(), group.repository, e ) );
-                }
+                download.setFile( item.local.getFile() );
+                download.setExistenceCheck( true );
+            }
+            else
+            {
+                String path =
+                    lrm.getPathForRemoteArtifact( artifact, group.repository, item.request.getRequestContext() );
+                download.setFile( new File( lrm.getRepository().getBasedir(), path ) );
             }
 
-            for ( ResolutionItem item : group.items )
+            boolean snapshot = artifact.isSnapshot();
+            RepositoryPolicy policy =
+                remoteRepositoryManager.getPolicy( session, group.repository, !snapshot, snapshot );
+
+            if ( session.isNotFoundCachingEnabled() || session.isTransferErrorCachingEnabled() )
             {
-                ArtifactDownload download = item.download;
-                if ( download == null )
+                UpdateCheck<Artifact, ArtifactTransferException> check =
+                    new UpdateCheck<Artifact, ArtifactTransferException>();
+                check.setItem( artifact );
+                check.setFile( download.getFile() );
+                check.setFileValid( !download.isExistenceCheck() );
+                check.setRepository( group.repository );
+                check.setPolicy( policy.getUpdatePolicy() );
+                item.updateCheck = check;
+                updateCheckManager.checkArtifact( session, check );
+                if ( !check.isRequired() )
                 {
+                    item.result.addException( check.getException() );
                     continue;
                 }
+            }
 
-                if ( item.updateCheck != null )
-                {
-                    item.updateCheck.setException( download.getException() );
-                    updateCheckManager.touchArtifact( session, item.updateCheck );
-                }
-
-                if ( download.getException() == null )
-                {
-                    item.resolved.set( true );
-                    item.result.setRepository( group.repository );
-                    Artifact artifact = download.getArtifact();
-                    try
-                    {
-                        artifact = artifact.setFile( getFile( session, artifact, download.getFile() ) );
-                        item.result.setArtifact( artifact );
-                    }
-                    catch ( ArtifactTransferException e )
-                    {
-                        item.result.addException( e );
-                        continue;
-                    }
-                    lrm.add( session,
-                             new LocalArtifactRegistration( artifact, group.repository, download.getSupportedContexts() ) );
+            download.setChecksumPolicy( policy.getChecksumPolicy() );
+            download.setRepositories( item.repository.getMirroredRepositories() );
+            downloads.add( download );
+            item.download = download;
+        }
 
-                    artifactDownloaded( session, download.getTrace(), artifact, group.repository, null );
+        if ( downloads.isEmpty() )
+        {
+            return;
+        }
 
-                    artifactResolved( session, download.getTrace(), artifact, group.repository, null );
-                }
-                else
-                {
-                    item.result.addException( download.getException() );
+        for ( ArtifactDownload download : downloads )
+        {
+            artifactDownloading( session, download.getTrace(), download.getArtifact(), group.repository );
+        }
 
-                    artifactDownloaded( session, download.getTrace(), download.getArtifact(), group.repository,
-                                        download.getException() );
-                }
+        try
+        {
+            RepositoryConnector connector =
+                remoteRepositoryManager.getRepositoryConnector( session, group.repository );
+            try
+            {
+                connector.get( downloads, null );
+            }
+            finally
+            {
+                connector.close();
             }
         }
-
-        for ( ArtifactResult result : results )
+        catch ( NoRepositoryConnectorException e )
         {
-            ArtifactRequest request = result.getRequest();
+            for ( ArtifactDownload download : downloads )
+            {
+                download.setException( new ArtifactTransferException( download.getArtifact(), group.repository, e ) );
+            }
+        }
 
-            Artifact artifact = result.getArtifact();
-            if ( artifact == null || artifact.getFile() == null )
+        for ( ResolutionItem item : items )
+        {
+            if ( item.download != null )
             {
-                failures = true;
-                if ( result.getExceptions().isEmpty() )
-                {
-                    Exception exception = new ArtifactNotFoundException( request.getArtifact(), null );
-                    result.addException( exception );
-                }
-                RequestTrace trace = DefaultRequestTrace.newChild( request.getTrace(), request );
-                artifactResolved( session, trace, request.getArtifact(), null, result.getExceptions() );
+                evaluate( session, group, item, listener );
             }
         }
+    }
 
-        if ( failures )
+    void evaluate( RepositorySystemSession session, ResolutionGroup group, ResolutionItem item,
+                   ArtifactResultListener listener )
+    {
+        if ( !item.evaluated.compareAndSet( false, true ) )
         {
-            throw new ArtifactResolutionException( results );
+            // already processed at the completion of the transfer
+            return;
         }
 
-        return results;
+        ArtifactDownload download = item.download;
+
+        if ( item.updateCheck != null )
+        {
+            item.updateCheck.setException( download.getException() );
+            updateCheckManager.touchArtifact( session, item.updateCheck );
+        }
+
+        if ( download.getException() == null )
+        {
+            item.resolved.set( true );
+            item.result.setRepository( group.repository );
+            Artifact artifact = download.getArtifact();
+            try
+            {
+                artifact = artifact.setFile( getFile( session, artifact, download.getFile() ) );
+                item.result.setArtifact( artifact );
+            }
+            catch ( ArtifactTransferException e )
+            {
+                item.result.addException( e );
+                return;
+            }
+            LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+            lrm.add( session,
+                     new LocalArtifactRegistration( artifact, group.repository, download.getSupportedContexts() ) );
+
+            artifactDownloaded( session, download.getTrace(), artifact, group.repository, null );
+
+            artifactResolved( session, download.getTrace(), artifact, group.repository, null );
+
+            artifactResolved( listener, item.result );
+        }
+        else
+        {
+            item.result.addException( download.getException() );
+
+            artifactDownloaded( session, download.getTrace(), download.getArtifact(), group.repository,
+                                download.getException() );
+        }
     }
 
     private boolean isLocallyInstalled( LocalArtifactResult lar, VersionResult vr )
@@ -615,6 +704,14 @@ public class DefaultArtifactResolver
         repositoryEventDispatcher.dispatch( event );
     }
 
+    private void artifactResolved( ArtifactResultListener listener, ArtifactResult result )
+    {
+        if ( listener != null )
+        {
+            listener.artifactResolved( result );
+        }
+    }
+
     private void artifactDownloading( RepositorySystemSession session, RequestTrace trace, Artifact artifact,
                                       RemoteRepository repository )
     {
@@ -640,6 +737,205 @@ public class DefaultArtifactResolver
         repositoryEventDispatcher.dispatch( event );
     }
 
+    /**
+     * Dispatches the downloads of the resolution groups concurrently. The items of a request are still tried in the
+     * order of the request's repositories, i.e. the item for the next repository is only released once the download
+     * from the previous repository failed, and the remaining items are dropped once the artifact got resolved. Requests
+     * for equal artifacts are processed one after the other to not have different threads write the same local file.
+     */
+    class ResolutionScheduler
+    {
+
+        private final RepositorySystemSession session;
+
+        private final List<ResolutionGroup> groups;
+
+        private final ArtifactResultListener listener;
+
+        private final Map<ResolutionItem, ResolutionChain> chains =
+            new IdentityHashMap<ResolutionItem, ResolutionChain>();
+
+        private final Map<ResolutionGroup, List<ResolutionItem>> pending =
+            new IdentityHashMap<ResolutionGroup, List<ResolutionItem>>();
+
+        private final Map<ResolutionGroup, Boolean> active = new IdentityHashMap<ResolutionGroup, Boolean>();
+
+        private final RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+
+        private Executor executor;
+
+        ResolutionScheduler( RepositorySystemSession session, List<ResolutionGroup> groups,
+                             ArtifactResultListener listener )
+        {
+            this.session = session;
+            this.groups = groups;
+            this.listener = listener;
+
+            Map<ArtifactResult, ResolutionChain> requests = new IdentityHashMap<ArtifactResult, ResolutionChain>();
+            Map<Artifact, ResolutionChain> artifacts = new HashMap<Artifact, ResolutionChain>();
+            for ( ResolutionGroup group : groups )
+            {
+                pending.put( group, new ArrayList<ResolutionItem>() );
+                for ( ResolutionItem item : group.items )
+                {
+                    ResolutionChain chain = requests.get( item.result );
+                    if ( chain == null )
+                    {
+                        chain = new ResolutionChain();
+                        requests.put( item.result, chain );
+                        ResolutionChain previous = artifacts.put( item.artifact, chain );
+                        if ( previous != null )
+                        {
+                            previous.successor = chain;
+                            chain.blocked = true;
+                        }
+                    }
+                    chain.items.add( item );
+                    chain.groups.add( group );
+                    chains.put( item, chain );
+                }
+            }
+
+            for ( ResolutionGroup group : groups )
+            {
+                for ( ResolutionItem item : group.items )
+                {
+                    ResolutionChain chain = chains.get( item );
+                    if ( !chain.blocked && chain.items.get( 0 ) == item )
+                    {
+                        pending.get( group ).add( item );
+                    }
+                }
+            }
+        }
+
+        void run( int threads )
+        {
+            executor = TransferScheduler.getExecutor( session, null, threads );
+            ExecutorService pool = null;
+            if ( executor == null )
+            {
+                pool = new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS,
+                                               new LinkedBlockingQueue<Runnable>() );
+                executor = pool;
+            }
+            try
+            {
+                synchronized ( this )
+                {
+                    schedule();
+                }
+                errorForwarder.await();
+            }
+            finally
+            {
+                if ( pool != null )
+                {
+                    pool.shutdown();
+                }
+            }
+        }
+
+        private void schedule()
+        {
+            for ( final ResolutionGroup group : groups )
+            {
+                final List<ResolutionItem> items = pending.get( group );
+                if ( items.isEmpty() || active.containsKey( group ) )
+                {
+                    continue;
+                }
+                pending.put( group, new ArrayList<ResolutionItem>() );
+                active.put( group, Boolean.TRUE );
+
+                executor.execute( errorForwarder.wrap( new Runnable()
+                {
+                    public void run()
+                    {
+                        download( session, group, items, listener );
+                        completed( group, items );
+                    }
+                } ) );
+            }
+        }
+
+        synchronized void completed( ResolutionGroup group, List<ResolutionItem> items )
+        {
+            active.remove( group );
+
+            for ( ResolutionItem item : items )
+            {
+                ResolutionChain chain = chains.get( item );
+                chain.index++;
+                if ( !item.resolved.get() && chain.index < chain.items.size() )
+                {
+                    pending.get( chain.groups.get( chain.index ) ).add( chain.items.get( chain.index ) );
+                }
+                else if ( chain.successor != null )
+                {
+                    ResolutionChain successor = chain.successor;
+                    pending.get( successor.groups.get( 0 ) ).add( successor.items.get( 0 ) );
+                }
+            }
+
+            schedule();
+        }
+
+    }
+
+    static class ResolutionChain
+    {
+
+        final List<ResolutionItem> items = new ArrayList<ResolutionItem>();
+
+        final List<ResolutionGroup> groups = new ArrayList<ResolutionGroup>();
+
+        int index;
+
+        boolean blocked;
+
+        ResolutionChain successor;
+
+    }
+
+    /**
+     * A download that evaluates its outcome as soon as the repository connector marks the transfer as done, this allows
+     * to report the result for the artifact before the connector has finished the remaining transfers.
+     */
+    class ResolutionDownload
+        extends ArtifactDownload
+    {
+
+        private final RepositorySystemSession session;
+
+        private final ResolutionGroup group;
+
+        private final ResolutionItem item;
+
+        private final ArtifactResultListener listener;
+
+        ResolutionDownload( RepositorySystemSession session, ResolutionGroup group, ResolutionItem item,
+                            ArtifactResultListener listener )
+        {
+            this.session = session;
+            this.group = group;
+            this.item = item;
+            this.listener = listener;
+        }
+
+        @Override
+        public Transfer setState( State state )
+        {
+            super.setState( state );
+            if ( State.DONE.equals( state ) && item.download == this )
+            {
+                evaluate( session, group, item, listener );
+            }
+            return this;
+        }
+
+    }
+
     static class ResolutionGroup
     {
 
@@ -678,6 +974,8 @@ public class DefaultArtifactResolver
 
         final AtomicBoolean resolved;
 
+        final AtomicBoolean evaluated = new AtomicBoolean();
+
         ArtifactDownload download;
 
         UpdateCheck<Artifact, ArtifactTransferException> updateCheck;
@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
@@ -29,7 +30,9 @@ import org.sonatype.aether.collection.DependencyManager;
 import org.sonatype.aether.collection.DependencySelector;
 import org.sonatype.aether.collection.DependencyTraverser;
 import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.BatchVersionRangeResolver;
 import org.sonatype.aether.impl.DependencyCollector;
 import org.sonatype.aether.impl.RemoteRepositoryManager;
 import org.sonatype.aether.impl.VersionRangeResolver;
@@ -45,10 +48,12 @@ import org.sonatype.aether.spi.locator.Service;
 import org.sonatype.aether.spi.locator.ServiceLocator;
 import org.sonatype.aether.spi.log.Logger;
 import org.sonatype.aether.spi.log.NullLogger;
+import org.sonatype.aether.util.ConfigUtils;
 import org.sonatype.aether.util.DefaultRepositorySystemSession;
 import org.sonatype.aether.util.DefaultRequestTrace;
 import org.sonatype.aether.util.artifact.ArtifactProperties;
 import org.sonatype.aether.version.Version;
+import org.sonatype.aether.version.VersionConstraint;
 
 /**
  * @author Benjamin Bentmann
@@ -58,7 +63,8 @@ public class DefaultDependencyCollector
     implements DependencyCollector, Service
 {
 
-    @SuppressWarnings( "unused" )
+    private static final String REUSABLE_NODES = DefaultDependencyCollector.class.getName() + "$ReusableNodes";
+
     @Requirement
     private Logger logger = NullLogger.INSTANCE;
 
@@ -133,7 +139,9 @@ public class DefaultDependencyCollector
     public CollectResult collectDependencies( RepositorySystemSession session, CollectRequest request )
         throws DependencyCollectionException
     {
-        session = optimizeSession( session );
+        PersistentDescriptorCache descriptorCache = PersistentDescriptorCache.newInstance( session );
+
+        session = optimizeSession( session, descriptorCache );
 
         RequestTrace trace = DefaultRequestTrace.newChild( request.getTrace(), request );
 
@@ -225,9 +233,19 @@ public class DefaultDependencyCollector
 
         boolean traverse = ( root == null ) || depTraverser.traverseDependency( root );
 
+        DependencyNode previousRoot = request.getPreviousRoot();
+        boolean incremental =
+            previousRoot != null || ConfigUtils.getBoolean( session, false, "aether.collector.incremental" );
+        Map<Object, GraphNode> reusableNodes = null;
+
         if ( traverse && !dependencies.isEmpty() )
         {
-            DataPool pool = new DataPool( session );
+            DataPool pool = new DataPool( session, descriptorCache );
+
+            if ( incremental )
+            {
+                pool.setIncremental( getReusableNodes( previousRoot ) );
+            }
 
             EdgeStack edges = new EdgeStack();
             edges.push( edge );
@@ -235,10 +253,44 @@ public class DefaultDependencyCollector
             DefaultDependencyCollectionContext context =
                 new DefaultDependencyCollectionContext( session, root, managedDependencies );
 
-            Args args = new Args( result, session, trace, pool, edges, context );
+            DependencyPrefetcher prefetcher = newPrefetcher( session, pool );
+
+            Args args = new Args( result, session, trace, pool, edges, context, prefetcher );
+
+            try
+            {
+                process( args, dependencies, repositories, depSelector.deriveChildSelector( context ),
+                         depManager.deriveChildManager( context ), depTraverser.deriveChildTraverser( context ) );
+
+                pool.shareNodes();
+
+                if ( incremental )
+                {
+                    reusableNodes = pool.snapshotNodes();
+                }
+            }
+            finally
+            {
+                if ( prefetcher != null )
+                {
+                    prefetcher.close();
+
+                    if ( logger.isDebugEnabled() )
+                    {
+                        logger.debug( "Prefetched " + prefetcher.getScheduled() + " version ranges/descriptors, "
+                            + prefetcher.getHits() + " hits, " + prefetcher.getWasted() + " wasted" );
+                    }
+                }
 
-            process( args, dependencies, repositories, depSelector.deriveChildSelector( context ),
-                     depManager.deriveChildManager( context ), depTraverser.deriveChildTraverser( context ) );
+                if ( logger.isDebugEnabled() )
+                {
+                    logger.debug( "Data pool statistics: " + pool.getStatistics() );
+                    if ( pool.isSharingNodes() )
+                    {
+                        logger.debug( "Reused " + pool.getReusedNodes() + " subgraphs from previous collections" );
+                    }
+                }
+            }
         }
 
         DependencyGraphTransformer transformer = session.getDependencyGraphTransformer();
@@ -253,6 +305,11 @@ public class DefaultDependencyCollector
             result.addException( e );
         }
 
+        if ( reusableNodes != null && result.getRoot() != null )
+        {
+            result.getRoot().setData( REUSABLE_NODES, reusableNodes );
+        }
+
         if ( !result.getExceptions().isEmpty() )
         {
             throw new DependencyCollectionException( result );
@@ -261,10 +318,42 @@ public class DefaultDependencyCollector
         return result;
     }
 
-    private RepositorySystemSession optimizeSession( RepositorySystemSession session )
+    @SuppressWarnings( "unchecked" )
+    private Map<Object, GraphNode> getReusableNodes( DependencyNode previousRoot )
+    {
+        if ( previousRoot != null )
+        {
+            Object nodes = previousRoot.getData().get( REUSABLE_NODES );
+            if ( nodes instanceof Map<?, ?> )
+            {
+                return (Map<Object, GraphNode>) nodes;
+            }
+        }
+        return null;
+    }
+
+    private DependencyPrefetcher newPrefetcher( RepositorySystemSession session, DataPool pool )
+    {
+        int threads = ConfigUtils.getInteger( session, 1, "aether.collector.threads" );
+        if ( threads <= 1 )
+        {
+            return null;
+        }
+        int queueSize = ConfigUtils.getInteger( session, 1024, "aether.collector.prefetchQueueSize" );
+        boolean lookahead = ConfigUtils.getBoolean( session, true, "aether.collector.prefetchChildren" );
+        return new DependencyPrefetcher( session, versionRangeResolver, descriptorReader, remoteRepositoryManager,
+                                         pool, threads, queueSize, lookahead );
+    }
+
+    private RepositorySystemSession optimizeSession( RepositorySystemSession session,
+                                                     PersistentDescriptorCache descriptorCache )
     {
         DefaultRepositorySystemSession optimized = new DefaultRepositorySystemSession( session );
         optimized.setArtifactTypeRegistry( CachingArtifactTypeRegistry.newInstance( session ) );
+        if ( descriptorCache != null )
+        {
+            descriptorCache.install( optimized );
+        }
         return optimized;
     }
 
@@ -308,256 +397,509 @@ public class DefaultDependencyCollector
                           DependencySelector depSelector, DependencyManager depManager, DependencyTraverser depTraverser )
         throws DependencyCollectionException
     {
-        nextDependency: for ( Dependency dependency : dependencies )
-        {
-            boolean disableVersionManagement = false;
+        // depth-first processing using an explicit stack of frames, one frame per list of sibling dependencies
+        List<Frame> frames = new ArrayList<Frame>( 64 );
+        frames.add( newFrame( args, dependencies, repositories, depSelector, depManager, depTraverser, false ) );
 
-            List<Artifact> relocations = Collections.emptyList();
+        while ( !frames.isEmpty() )
+        {
+            Frame frame = frames.get( frames.size() - 1 );
 
-            thisDependency: while ( true )
+            if ( frame.versions == null )
             {
-                if ( !depSelector.selectDependency( dependency ) )
+                if ( frame.index >= frame.dependencies.size() )
                 {
-                    continue nextDependency;
+                    frames.remove( frames.size() - 1 );
+                    if ( frame.nested )
+                    {
+                        args.edges.pop();
+                    }
+                    continue;
                 }
 
-                DependencyManagement depMngt = depManager.manageDependency( dependency );
-                String premanagedVersion = null;
-                String premanagedScope = null;
+                frame.dependency = frame.dependencies.get( frame.index++ );
+                frame.disableVersionManagement = false;
+                frame.relocations = Collections.emptyList();
 
-                if ( depMngt != null )
+                processDependency( args, frame );
+            }
+            else if ( frame.version >= frame.versions.size() )
+            {
+                frame.versions = null;
+            }
+            else
+            {
+                Frame child = processVersion( args, frame, frame.versions.get( frame.version++ ) );
+                if ( child != null )
                 {
-                    if ( depMngt.getVersion() != null && !disableVersionManagement )
-                    {
-                        Artifact artifact = dependency.getArtifact();
-                        premanagedVersion = artifact.getVersion();
-                        dependency = dependency.setArtifact( artifact.setVersion( depMngt.getVersion() ) );
-                    }
-                    if ( depMngt.getProperties() != null )
-                    {
-                        Artifact artifact = dependency.getArtifact();
-                        dependency = dependency.setArtifact( artifact.setProperties( depMngt.getProperties() ) );
-                    }
-                    if ( depMngt.getScope() != null )
-                    {
-                        premanagedScope = dependency.getScope();
-                        dependency = dependency.setScope( depMngt.getScope() );
-                    }
-                    if ( depMngt.getExclusions() != null )
-                    {
-                        dependency = dependency.setExclusions( depMngt.getExclusions() );
-                    }
+                    frames.add( child );
                 }
-                disableVersionManagement = false;
+            }
+        }
+    }
+
+    private Frame newFrame( Args args, List<Dependency> dependencies, List<RemoteRepository> repositories,
+                            DependencySelector depSelector, DependencyManager depManager,
+                            DependencyTraverser depTraverser, boolean nested )
+    {
+        if ( args.prefetcher != null )
+        {
+            prefetch( args, dependencies, repositories, depSelector, depManager );
+        }
+        else if ( versionRangeResolver instanceof BatchVersionRangeResolver && dependencies.size() > 1 )
+        {
+            resolveVersionRanges( args, dependencies, repositories, depSelector, depManager );
+        }
+
+        return new Frame( dependencies, repositories, depSelector, depManager, depTraverser, nested );
+    }
+
+    /**
+     * Applies the selection, management and version range resolution to the current dependency of the frame. If the
+     * dependency is to be processed, the frame's versions are set accordingly, otherwise they are left {@code null}.
+     */
+    private void processDependency( Args args, Frame frame )
+    {
+        frame.versions = null;
+
+        Dependency dependency = frame.dependency;
+
+        if ( !frame.depSelector.selectDependency( dependency ) )
+        {
+            return;
+        }
+
+        DependencyManagement depMngt = frame.depManager.manageDependency( dependency );
+        String premanagedVersion = null;
+        String premanagedScope = null;
+
+        if ( depMngt != null )
+        {
+            if ( depMngt.getVersion() != null && !frame.disableVersionManagement )
+            {
+                Artifact artifact = dependency.getArtifact();
+                premanagedVersion = artifact.getVersion();
+                dependency = dependency.setArtifact( artifact.setVersion( depMngt.getVersion() ) );
+            }
+            if ( depMngt.getProperties() != null )
+            {
+                Artifact artifact = dependency.getArtifact();
+                dependency = dependency.setArtifact( artifact.setProperties( depMngt.getProperties() ) );
+            }
+            if ( depMngt.getScope() != null )
+            {
+                premanagedScope = dependency.getScope();
+                dependency = dependency.setScope( depMngt.getScope() );
+            }
+            if ( depMngt.getExclusions() != null )
+            {
+                dependency = dependency.setExclusions( depMngt.getExclusions() );
+            }
+        }
+        frame.disableVersionManagement = false;
+
+        boolean noDescriptor = isLackingDescriptor( dependency.getArtifact() );
+
+        boolean traverse = !noDescriptor && frame.depTraverser.traverseDependency( dependency );
+
+        VersionRangeResult rangeResult;
+        try
+        {
+            VersionRangeRequest rangeRequest =
+                newVersionRangeRequest( args, dependency.getArtifact(), frame.repositories );
+
+            rangeResult = resolveVersionRange( args, rangeRequest );
+
+            if ( rangeResult.getVersions().isEmpty() )
+            {
+                throw new VersionRangeResolutionException( rangeResult, "No versions available for "
+                    + dependency.getArtifact() + " within specified range" );
+            }
+        }
+        catch ( VersionRangeResolutionException e )
+        {
+            addException( args, e );
+            return;
+        }
+
+        frame.dependency = dependency;
+        frame.premanagedVersion = premanagedVersion;
+        frame.premanagedScope = premanagedScope;
+        frame.noDescriptor = noDescriptor;
+        frame.traverse = traverse;
+        frame.rangeResult = rangeResult;
+        frame.versions = rangeResult.getVersions();
+        frame.version = 0;
+    }
 
-                boolean noDescriptor = isLackingDescriptor( dependency.getArtifact() );
+    /**
+     * Processes the specified version of the frame's current dependency.
+     * 
+     * @return The frame for the children of the dependency or {@code null} if there are no children to process.
+     */
+    private Frame processVersion( Args args, Frame frame, Version version )
+    {
+        Dependency dependency = frame.dependency;
+        List<RemoteRepository> repositories = frame.repositories;
+        VersionRangeResult rangeResult = frame.rangeResult;
+        String premanagedVersion = frame.premanagedVersion;
+        String premanagedScope = frame.premanagedScope;
+        List<Artifact> relocations = frame.relocations;
 
-                boolean traverse = !noDescriptor && depTraverser.traverseDependency( dependency );
+        Artifact originalArtifact = dependency.getArtifact().setVersion( version.toString() );
+        Dependency d = dependency.setArtifact( originalArtifact );
 
-                VersionRangeResult rangeResult;
-                try
+        ArtifactDescriptorResult descriptorResult;
+        {
+            ArtifactDescriptorRequest descriptorRequest = new ArtifactDescriptorRequest();
+            descriptorRequest.setArtifact( d.getArtifact() );
+            descriptorRequest.setRepositories( repositories );
+            descriptorRequest.setRequestContext( args.result.getRequest().getRequestContext() );
+            descriptorRequest.setTrace( args.trace );
+
+            if ( frame.noDescriptor )
+            {
+                descriptorResult = new ArtifactDescriptorResult( descriptorRequest );
+            }
+            else
+            {
+                Object key = args.pool.toKey( descriptorRequest );
+                descriptorResult = args.pool.getDescriptor( key, descriptorRequest );
+                if ( descriptorResult != null && args.prefetcher != null )
+                {
+                    args.prefetcher.touchDescriptor( key );
+                }
+                if ( descriptorResult == null )
                 {
-                    VersionRangeRequest rangeRequest = new VersionRangeRequest();
-                    rangeRequest.setArtifact( dependency.getArtifact() );
-                    rangeRequest.setRepositories( repositories );
-                    rangeRequest.setRequestContext( args.result.getRequest().getRequestContext() );
-                    rangeRequest.setTrace( args.trace );
-
-                    Object key = args.pool.toKey( rangeRequest );
-                    rangeResult = args.pool.getConstraint( key, rangeRequest );
-                    if ( rangeResult == null )
+                    try
                     {
-                        rangeResult = versionRangeResolver.resolveVersionRange( args.session, rangeRequest );
-                        args.pool.putConstraint( key, rangeResult );
+                        descriptorResult = readArtifactDescriptor( args, descriptorRequest );
+                        args.pool.putDescriptor( key, descriptorResult );
                     }
-
-                    if ( rangeResult.getVersions().isEmpty() )
+                    catch ( ArtifactDescriptorException e )
                     {
-                        throw new VersionRangeResolutionException( rangeResult, "No versions available for "
-                            + dependency.getArtifact() + " within specified range" );
+                        addException( args, e );
+                        args.pool.putDescriptor( key, e );
+                        return null;
                     }
                 }
-                catch ( VersionRangeResolutionException e )
+                else if ( descriptorResult == DataPool.NO_DESCRIPTOR )
                 {
-                    addException( args.result, e );
-                    continue nextDependency;
+                    return null;
                 }
+            }
+        }
 
-                List<Version> versions = rangeResult.getVersions();
-                for ( Version version : versions )
-                {
-                    Artifact originalArtifact = dependency.getArtifact().setVersion( version.toString() );
-                    Dependency d = dependency.setArtifact( originalArtifact );
+        d = d.setArtifact( descriptorResult.getArtifact() );
 
-                    ArtifactDescriptorResult descriptorResult;
-                    {
-                        ArtifactDescriptorRequest descriptorRequest = new ArtifactDescriptorRequest();
-                        descriptorRequest.setArtifact( d.getArtifact() );
-                        descriptorRequest.setRepositories( repositories );
-                        descriptorRequest.setRequestContext( args.result.getRequest().getRequestContext() );
-                        descriptorRequest.setTrace( args.trace );
-
-                        if ( noDescriptor )
-                        {
-                            descriptorResult = new ArtifactDescriptorResult( descriptorRequest );
-                        }
-                        else
-                        {
-                            Object key = args.pool.toKey( descriptorRequest );
-                            descriptorResult = args.pool.getDescriptor( key, descriptorRequest );
-                            if ( descriptorResult == null )
-                            {
-                                try
-                                {
-                                    descriptorResult =
-                                        descriptorReader.readArtifactDescriptor( args.session, descriptorRequest );
-                                    args.pool.putDescriptor( key, descriptorResult );
-                                }
-                                catch ( ArtifactDescriptorException e )
-                                {
-                                    addException( args.result, e );
-                                    args.pool.putDescriptor( key, e );
-                                    continue;
-                                }
-                            }
-                            else if ( descriptorResult == DataPool.NO_DESCRIPTOR )
-                            {
-                                continue;
-                            }
-                        }
-                    }
+        GraphNode node = args.edges.top().getTarget();
 
-                    d = d.setArtifact( descriptorResult.getArtifact() );
+        GraphEdge cycleEdge = args.edges.find( d.getArtifact() );
+        if ( cycleEdge != null )
+        {
+            GraphEdge edge = new GraphEdge( cycleEdge.getTarget() );
+            edge.setDependency( d );
+            edge.setAttributes( newAttributes( args, premanagedScope, premanagedVersion, relocations,
+                                               rangeResult.getVersionConstraint(), version ) );
 
-                    GraphNode node = args.edges.top().getTarget();
+            node.getOutgoingEdges().add( edge );
 
-                    GraphEdge cycleEdge = args.edges.find( d.getArtifact() );
-                    if ( cycleEdge != null )
-                    {
-                        GraphEdge edge = new GraphEdge( cycleEdge.getTarget() );
-                        edge.setDependency( d );
-                        edge.setScope( d.getScope() );
-                        edge.setPremanagedScope( premanagedScope );
-                        edge.setPremanagedVersion( premanagedVersion );
-                        edge.setRelocations( relocations );
-                        edge.setVersionConstraint( rangeResult.getVersionConstraint() );
-                        edge.setVersion( version );
-                        edge.setRequestContext( args.result.getRequest().getRequestContext() );
-
-                        node.getOutgoingEdges().add( edge );
-
-                        continue;
-                    }
+            markUnshareable( args, cycleEdge );
 
-                    if ( !descriptorResult.getRelocations().isEmpty() )
-                    {
-                        relocations = descriptorResult.getRelocations();
+            return null;
+        }
 
-                        disableVersionManagement =
-                            originalArtifact.getGroupId().equals( d.getArtifact().getGroupId() )
-                                && originalArtifact.getArtifactId().equals( d.getArtifact().getArtifactId() );
+        if ( !descriptorResult.getRelocations().isEmpty() )
+        {
+            frame.relocations = descriptorResult.getRelocations();
 
-                        dependency = d;
-                        continue thisDependency;
-                    }
+            frame.disableVersionManagement =
+                originalArtifact.getGroupId().equals( d.getArtifact().getGroupId() )
+                    && originalArtifact.getArtifactId().equals( d.getArtifact().getArtifactId() );
 
-                    d = args.pool.intern( d.setArtifact( args.pool.intern( d.getArtifact() ) ) );
+            // start over with the relocated dependency, abandoning the remaining versions
+            frame.dependency = d;
+            processDependency( args, frame );
+            return null;
+        }
 
-                    DependencySelector childSelector = null;
-                    DependencyManager childManager = null;
-                    DependencyTraverser childTraverser = null;
-                    List<RemoteRepository> childRepos = null;
-                    Object key = null;
+        d = args.pool.intern( d.setArtifact( args.pool.intern( d.getArtifact() ) ) );
 
-                    boolean recurse = traverse && !descriptorResult.getDependencies().isEmpty();
-                    if ( recurse )
-                    {
-                        DefaultDependencyCollectionContext context = args.collectionContext;
-                        context.set( d, descriptorResult.getManagedDependencies() );
+        DependencySelector childSelector = null;
+        DependencyManager childManager = null;
+        DependencyTraverser childTraverser = null;
+        List<RemoteRepository> childRepos = null;
+        Object key = null;
 
-                        childSelector = depSelector.deriveChildSelector( context );
-                        childManager = depManager.deriveChildManager( context );
-                        childTraverser = depTraverser.deriveChildTraverser( context );
+        boolean recurse = frame.traverse && !descriptorResult.getDependencies().isEmpty();
+        if ( recurse )
+        {
+            DefaultDependencyCollectionContext context = args.collectionContext;
+            context.set( d, descriptorResult.getManagedDependencies() );
 
-                        childRepos =
-                            remoteRepositoryManager.aggregateRepositories( args.session, repositories,
-                                                                           descriptorResult.getRepositories(), true );
+            childSelector = frame.depSelector.deriveChildSelector( context );
+            childManager = frame.depManager.deriveChildManager( context );
+            childTraverser = frame.depTraverser.deriveChildTraverser( context );
 
-                        key =
-                            args.pool.toKey( d.getArtifact(), childRepos, childSelector, childManager, childTraverser );
-                    }
-                    else
-                    {
-                        key = args.pool.toKey( d.getArtifact(), repositories );
-                    }
+            childRepos =
+                remoteRepositoryManager.aggregateRepositories( args.session, repositories,
+                                                               descriptorResult.getRepositories(), true );
 
-                    List<RemoteRepository> repos;
-                    ArtifactRepository repo = rangeResult.getRepository( version );
-                    if ( repo instanceof RemoteRepository )
-                    {
-                        repos = Collections.singletonList( (RemoteRepository) repo );
-                    }
-                    else if ( repo == null )
-                    {
-                        repos = repositories;
-                    }
-                    else
-                    {
-                        repos = Collections.emptyList();
-                    }
+            key = args.pool.toKey( d.getArtifact(), childRepos, childSelector, childManager, childTraverser );
+        }
+        else
+        {
+            key = args.pool.toKey( d.getArtifact(), repositories );
+        }
 
-                    GraphNode child = args.pool.getNode( key );
-                    if ( child == null )
-                    {
-                        child = new GraphNode();
-                        child.setAliases( descriptorResult.getAliases() );
-                        child.setRepositories( repos );
+        List<RemoteRepository> repos;
+        ArtifactRepository repo = rangeResult.getRepository( version );
+        if ( repo instanceof RemoteRepository )
+        {
+            repos = Collections.singletonList( (RemoteRepository) repo );
+        }
+        else if ( repo == null )
+        {
+            repos = repositories;
+        }
+        else
+        {
+            repos = Collections.emptyList();
+        }
 
-                        args.pool.putNode( key, child );
-                    }
-                    else
-                    {
-                        recurse = false;
+        GraphNode child = args.pool.getNode( key );
+        if ( child == null && recurse )
+        {
+            child = args.pool.getSharedNode( key, args.result.getRequest().getRequestContext() );
+        }
+        if ( child == null )
+        {
+            child = new GraphNode();
+            child.setAliases( descriptorResult.getAliases() );
+            child.setRepositories( repos );
 
-                        if ( repos.size() < child.getRepositories().size() )
-                        {
-                            child.setRepositories( repos );
-                        }
-                    }
+            args.pool.putNode( key, child );
+        }
+        else
+        {
+            recurse = false;
 
-                    GraphEdge edge = new GraphEdge( child );
-                    edge.setDependency( d );
-                    edge.setScope( d.getScope() );
-                    edge.setPremanagedScope( premanagedScope );
-                    edge.setPremanagedVersion( premanagedVersion );
-                    edge.setRelocations( relocations );
-                    edge.setVersionConstraint( rangeResult.getVersionConstraint() );
-                    edge.setVersion( version );
-                    edge.setRequestContext( args.result.getRequest().getRequestContext() );
+            if ( args.pool.isUnshareable( child ) )
+            {
+                markUnshareable( args, null );
+            }
 
-                    node.getOutgoingEdges().add( edge );
+            if ( repos.size() < child.getRepositories().size() )
+            {
+                child.setRepositories( repos );
+            }
+        }
 
-                    if ( recurse )
-                    {
-                        args.edges.push( edge );
+        GraphEdge edge = new GraphEdge( child );
+        edge.setDependency( d );
+        edge.setAttributes( newAttributes( args, premanagedScope, premanagedVersion, relocations,
+                                           rangeResult.getVersionConstraint(), version ) );
 
-                        process( args, descriptorResult.getDependencies(), childRepos, childSelector, childManager,
-                                 childTraverser );
+        node.getOutgoingEdges().add( edge );
 
-                        args.edges.pop();
-                    }
-                }
+        if ( !recurse )
+        {
+            return null;
+        }
 
-                break;
+        args.edges.push( edge );
+
+        return newFrame( args, descriptorResult.getDependencies(), childRepos, childSelector, childManager,
+                         childTraverser, true );
+    }
+
+    private void prefetch( Args args, List<Dependency> dependencies, List<RemoteRepository> repositories,
+                           DependencySelector depSelector, DependencyManager depManager )
+    {
+        for ( Dependency dependency : dependencies )
+        {
+            Artifact artifact = getManagedArtifact( dependency, depSelector, depManager );
+            if ( artifact == null )
+            {
+                continue;
+            }
+
+            VersionRangeRequest rangeRequest = newVersionRangeRequest( args, artifact, repositories );
+
+            ArtifactDescriptorRequest descriptorRequest = null;
+            if ( !isLackingDescriptor( artifact ) )
+            {
+                descriptorRequest = new ArtifactDescriptorRequest();
+                descriptorRequest.setRepositories( repositories );
+                descriptorRequest.setRequestContext( args.result.getRequest().getRequestContext() );
+                descriptorRequest.setTrace( args.trace );
+            }
+
+            args.prefetcher.prefetch( rangeRequest, descriptorRequest );
+        }
+    }
+
+    /**
+     * Resolves the version ranges of the specified dependencies with a single call to the batch-capable version range
+     * resolver and puts the results into the data pool where {@link #processDependency(Args, Frame)} picks them up.
+     * Failed resolutions are not pooled, the walk repeats those to obtain the error.
+     */
+    private void resolveVersionRanges( Args args, List<Dependency> dependencies, List<RemoteRepository> repositories,
+                                       DependencySelector depSelector, DependencyManager depManager )
+    {
+        List<VersionRangeRequest> rangeRequests = new ArrayList<VersionRangeRequest>( dependencies.size() );
+        List<Object> keys = new ArrayList<Object>( dependencies.size() );
+        for ( Dependency dependency : dependencies )
+        {
+            Artifact artifact = getManagedArtifact( dependency, depSelector, depManager );
+            if ( artifact == null )
+            {
+                continue;
+            }
+
+            VersionRangeRequest rangeRequest = newVersionRangeRequest( args, artifact, repositories );
+            Object key = args.pool.toKey( rangeRequest );
+            if ( args.pool.getConstraint( key, rangeRequest ) == null )
+            {
+                rangeRequests.add( rangeRequest );
+                keys.add( key );
+            }
+        }
+
+        if ( rangeRequests.size() <= 1 )
+        {
+            return;
+        }
+
+        List<VersionRangeResult> rangeResults =
+            ( (BatchVersionRangeResolver) versionRangeResolver ).resolveVersionRanges( args.session, rangeRequests );
+        for ( int i = 0; i < rangeResults.size(); i++ )
+        {
+            VersionRangeResult rangeResult = rangeResults.get( i );
+            if ( Utils.getException( rangeResult ) == null )
+            {
+                args.pool.putConstraint( keys.get( i ), rangeResult );
             }
         }
     }
 
+    /**
+     * Mirrors the selection and the management applied by {@link #processDependency(Args, Frame)} to the artifact of
+     * the specified dependency, the remaining bits are irrelevant for prefetching.
+     *
+     * @return The managed artifact or {@code null} if the dependency is not selected.
+     */
+    private Artifact getManagedArtifact( Dependency dependency, DependencySelector depSelector,
+                                         DependencyManager depManager )
+    {
+        if ( !depSelector.selectDependency( dependency ) )
+        {
+            return null;
+        }
+
+        Artifact artifact = dependency.getArtifact();
+        DependencyManagement depMngt = depManager.manageDependency( dependency );
+        if ( depMngt != null )
+        {
+            if ( depMngt.getVersion() != null )
+            {
+                artifact = artifact.setVersion( depMngt.getVersion() );
+            }
+            if ( depMngt.getProperties() != null )
+            {
+                artifact = artifact.setProperties( depMngt.getProperties() );
+            }
+        }
+        return artifact;
+    }
+
+    private VersionRangeRequest newVersionRangeRequest( Args args, Artifact artifact,
+                                                        List<RemoteRepository> repositories )
+    {
+        VersionRangeRequest rangeRequest = new VersionRangeRequest();
+        rangeRequest.setArtifact( artifact );
+        rangeRequest.setRepositories( repositories );
+        rangeRequest.setRequestContext( args.result.getRequest().getRequestContext() );
+        rangeRequest.setTrace( args.trace );
+        return rangeRequest;
+    }
+
+    private VersionRangeResult resolveVersionRange( Args args, VersionRangeRequest rangeRequest )
+        throws VersionRangeResolutionException
+    {
+        Object key = args.pool.toKey( rangeRequest );
+        VersionRangeResult rangeResult = args.pool.getConstraint( key, rangeRequest );
+        if ( rangeResult == null )
+        {
+            if ( args.prefetcher != null )
+            {
+                rangeResult = args.prefetcher.resolveVersionRange( key );
+            }
+            if ( rangeResult == null )
+            {
+                rangeResult = versionRangeResolver.resolveVersionRange( args.session, rangeRequest );
+            }
+            args.pool.putConstraint( key, rangeResult );
+        }
+        return rangeResult;
+    }
+
+    private ArtifactDescriptorResult readArtifactDescriptor( Args args, ArtifactDescriptorRequest descriptorRequest )
+        throws ArtifactDescriptorException
+    {
+        ArtifactDescriptorResult descriptorResult = null;
+        if ( args.prefetcher != null )
+        {
+            descriptorResult = args.prefetcher.readArtifactDescriptor( args.pool.toKey( descriptorRequest ) );
+        }
+        if ( descriptorResult == null )
+        {
+            descriptorResult = descriptorReader.readArtifactDescriptor( args.session, descriptorRequest );
+        }
+        return descriptorResult;
+    }
+
     private boolean isLackingDescriptor( Artifact artifact )
     {
         return artifact.getProperty( ArtifactProperties.LOCAL_PATH, null ) != null;
     }
 
+    private GraphEdge.Attributes newAttributes( Args args, String premanagedScope, String premanagedVersion,
+                                                List<Artifact> relocations, VersionConstraint versionConstraint,
+                                                Version version )
+    {
+        String context = args.result.getRequest().getRequestContext();
+        return args.pool.newAttributes( context, premanagedScope, premanagedVersion, relocations, versionConstraint,
+                                        version );
+    }
+
+    private void addException( Args args, Exception e )
+    {
+        markUnshareable( args, null );
+        addException( args.result, e );
+    }
+
+    /**
+     * Marks the nodes on the current path below the specified edge as unfit for sharing with other collections, e.g.
+     * because their subgraph refers to an ancestor outside of it or is incomplete due to errors.
+     */
+    private void markUnshareable( Args args, GraphEdge boundary )
+    {
+        if ( !args.pool.isSharingNodes() )
+        {
+            return;
+        }
+        for ( int i = args.edges.size() - 1; i >= 0; i-- )
+        {
+            GraphEdge edge = args.edges.get( i );
+            if ( edge == boundary )
+            {
+                break;
+            }
+            args.pool.markUnshareable( edge.getTarget() );
+        }
+    }
+
     private void addException( CollectResult result, Exception e )
     {
         if ( result.getExceptions().size() < 100 )
@@ -581,8 +923,11 @@ public class DefaultDependencyCollector
 
         final DefaultDependencyCollectionContext collectionContext;
 
+        final DependencyPrefetcher prefetcher;
+
         public Args( CollectResult result, RepositorySystemSession session, RequestTrace trace, DataPool pool,
-                     EdgeStack edges, DefaultDependencyCollectionContext collectionContext )
+                     EdgeStack edges, DefaultDependencyCollectionContext collectionContext,
+                     DependencyPrefetcher prefetcher )
         {
             this.result = result;
             this.session = session;
@@ -590,6 +935,58 @@ public class DefaultDependencyCollector
             this.pool = pool;
             this.edges = edges;
             this.collectionContext = collectionContext;
+            this.prefetcher = prefetcher;
+        }
+
+    }
+
+    static final class Frame
+    {
+
+        final List<Dependency> dependencies;
+
+        final List<RemoteRepository> repositories;
+
+        final DependencySelector depSelector;
+
+        final DependencyManager depManager;
+
+        final DependencyTraverser depTraverser;
+
+        final boolean nested;
+
+        int index;
+
+        Dependency dependency;
+
+        boolean disableVersionManagement;
+
+        List<Artifact> relocations;
+
+        String premanagedVersion;
+
+        String premanagedScope;
+
+        boolean noDescriptor;
+
+        boolean traverse;
+
+        VersionRangeResult rangeResult;
+
+        List<Version> versions;
+
+        int version;
+
+        public Frame( List<Dependency> dependencies, List<RemoteRepository> repositories,
+                      DependencySelector depSelector, DependencyManager depManager, DependencyTraverser depTraverser,
+                      boolean nested )
+        {
+            this.dependencies = dependencies;
+            this.repositories = repositories;
+            this.depSelector = depSelector;
+            this.depManager = depManager;
+            this.depTraverser = depTraverser;
+            this.nested = nested;
         }
 
     }
@@ -306,6 +306,8 @@ public class DefaultInstaller
             }
 
             lrm.add( session, new LocalMetadataRegistration( metadata ) );
+
+            DataPool.invalidateConstraints( session, metadata.getGroupId(), metadata.getArtifactId() );
         }
         catch ( Exception e )
         {
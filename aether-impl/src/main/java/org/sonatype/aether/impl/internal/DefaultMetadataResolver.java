@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
+import org.sonatype.aether.ConfigurationProperties;
 import org.sonatype.aether.RequestTrace;
 import org.sonatype.aether.SyncContext;
 import org.sonatype.aether.RepositoryEvent.EventType;
@@ -41,6 +42,8 @@ import org.sonatype.aether.transfer.NoRepositoryConnectorException;
 import org.sonatype.aether.util.ConfigUtils;
 import org.sonatype.aether.util.DefaultRequestTrace;
 import org.sonatype.aether.util.concurrency.RunnableErrorForwarder;
+import org.sonatype.aether.util.concurrency.TransferScheduler;
+import org.sonatype.aether.util.concurrency.VirtualThreadExecutor;
 import org.sonatype.aether.util.listener.DefaultRepositoryEvent;
 import org.sonatype.aether.repository.ArtifactRepository;
 import org.sonatype.aether.repository.LocalMetadataRegistration;
@@ -335,14 +338,21 @@ public class DefaultMetadataResolver
         if ( !tasks.isEmpty() )
         {
             int threads = ConfigUtils.getInteger( session, 4, "aether.metadataResolver.threads" );
-            Executor executor = getExecutor( Math.min( tasks.size(), threads ) );
+            threads = Math.min( tasks.size(), threads );
+            Executor executor = getExecutor( session, threads );
+            Map<String, Executor> channels = new HashMap<String, Executor>();
             try
             {
                 RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
 
                 for ( ResolveTask task : tasks )
                 {
-                    executor.execute( errorForwarder.wrap( task ) );
+                    Executor taskExecutor = executor;
+                    if ( taskExecutor == null )
+                    {
+                        taskExecutor = getChannel( session, channels, task.request.getRepository(), threads );
+                    }
+                    taskExecutor.execute( errorForwarder.wrap( task ) );
                 }
 
                 errorForwarder.await();
@@ -475,7 +485,7 @@ public class DefaultMetadataResolver
         repositoryEventDispatcher.dispatch( event );
     }
 
-    private Executor getExecutor( int threads )
+    private Executor getExecutor( RepositorySystemSession session, int threads )
     {
         if ( threads <= 1 )
         {
@@ -487,10 +497,32 @@ public class DefaultMetadataResolver
                 }
             };
         }
-        else
+
+        Executor executor = VirtualThreadExecutor.getExecutor( session );
+        if ( executor != null )
+        {
+            return executor;
+        }
+        if ( ConfigUtils.getBoolean( session, ConfigurationProperties.DEFAULT_SHARED_TRANSFER_EXECUTOR,
+                                     ConfigurationProperties.SHARED_TRANSFER_EXECUTOR ) )
         {
-            return new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
+            // tasks are submitted to a channel of the shared transfer scheduler per repository host, see getChannel()
+            return null;
         }
+        return new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>() );
+    }
+
+    private Executor getChannel( RepositorySystemSession session, Map<String, Executor> channels,
+                                 RemoteRepository repository, int threads )
+    {
+        String host = repository.getHost();
+        Executor channel = channels.get( host );
+        if ( channel == null )
+        {
+            channel = TransferScheduler.getInstance().newExecutor( session, host, threads );
+            channels.put( host, channel );
+        }
+        return channel;
     }
 
     private void shutdown( Executor executor )
@@ -577,6 +609,8 @@ public class DefaultMetadataResolver
                         new LocalMetadataRegistration( metadata, requestRepository, contexts );
 
                     session.getLocalRepositoryManager().add( session, registration );
+
+                    DataPool.invalidateConstraints( session, metadata.getGroupId(), metadata.getArtifactId() );
                 }
                 else if ( request.isDeleteLocalCopyIfMissing() && exception instanceof MetadataNotFoundException )
                 {
@@ -16,6 +16,7 @@ import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.aether.RepositorySystem;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.RequestTrace;
+import org.sonatype.aether.StreamingRepositorySystem;
 import org.sonatype.aether.SyncContext;
 import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.collection.CollectRequest;
@@ -34,6 +35,7 @@ import org.sonatype.aether.impl.Deployer;
 import org.sonatype.aether.impl.Installer;
 import org.sonatype.aether.impl.LocalRepositoryProvider;
 import org.sonatype.aether.impl.MetadataResolver;
+import org.sonatype.aether.impl.StreamingArtifactResolver;
 import org.sonatype.aether.impl.SyncContextFactory;
 import org.sonatype.aether.impl.VersionRangeResolver;
 import org.sonatype.aether.impl.VersionResolver;
@@ -49,6 +51,7 @@ import org.sonatype.aether.resolution.ArtifactDescriptorResult;
 import org.sonatype.aether.resolution.ArtifactRequest;
 import org.sonatype.aether.resolution.ArtifactResolutionException;
 import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.resolution.ArtifactResultListener;
 import org.sonatype.aether.resolution.DependencyRequest;
 import org.sonatype.aether.resolution.DependencyResolutionException;
 import org.sonatype.aether.resolution.DependencyResult;
@@ -64,6 +67,7 @@ import org.sonatype.aether.spi.locator.Service;
 import org.sonatype.aether.spi.locator.ServiceLocator;
 import org.sonatype.aether.spi.log.Logger;
 import org.sonatype.aether.spi.log.NullLogger;
+import org.sonatype.aether.util.ConfigUtils;
 import org.sonatype.aether.util.DefaultRequestTrace;
 import org.sonatype.aether.util.graph.FilteringDependencyVisitor;
 import org.sonatype.aether.util.graph.TreeDependencyVisitor;
@@ -73,7 +77,7 @@ import org.sonatype.aether.util.graph.TreeDependencyVisitor;
  */
 @Component( role = RepositorySystem.class )
 public class DefaultRepositorySystem
-    implements RepositorySystem, Service
+    implements StreamingRepositorySystem, Service
 {
 
     @SuppressWarnings( "unused" )
@@ -294,6 +298,43 @@ public class DefaultRepositorySystem
         return artifactResolver.resolveArtifacts( session, requests );
     }
 
+    public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                  Collection<? extends ArtifactRequest> requests,
+                                                  ArtifactResultListener listener )
+        throws ArtifactResolutionException
+    {
+        validateSession( session );
+
+        if ( artifactResolver instanceof StreamingArtifactResolver )
+        {
+            return ( (StreamingArtifactResolver) artifactResolver ).resolveArtifacts( session, requests, listener );
+        }
+
+        List<ArtifactResult> results;
+        try
+        {
+            results = artifactResolver.resolveArtifacts( session, requests );
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            notify( listener, e.getResults() );
+            throw e;
+        }
+        notify( listener, results );
+        return results;
+    }
+
+    private static void notify( ArtifactResultListener listener, List<ArtifactResult> results )
+    {
+        if ( listener != null )
+        {
+            for ( ArtifactResult result : results )
+            {
+                listener.artifactResolved( result );
+            }
+        }
+    }
+
     public List<MetadataResult> resolveMetadata( RepositorySystemSession session,
                                                  Collection<? extends MetadataRequest> requests )
     {
@@ -319,6 +360,7 @@ public class DefaultRepositorySystem
 
         DependencyCollectionException dce = null;
         ArtifactResolutionException are = null;
+        ArtifactPrefetcher prefetcher = null;
 
         if ( request.getRoot() != null )
         {
@@ -326,6 +368,8 @@ public class DefaultRepositorySystem
         }
         else if ( request.getCollectRequest() != null )
         {
+            prefetcher = newPrefetcher( session, request.getCollectRequest(), request.getFilter(), trace );
+
             CollectResult collectResult;
             try
             {
@@ -355,7 +399,7 @@ public class DefaultRepositorySystem
         List<ArtifactResult> results;
         try
         {
-            results = artifactResolver.resolveArtifacts( session, requests );
+            results = resolveArtifacts( session, requests, prefetcher );
         }
         catch ( ArtifactResolutionException e )
         {
@@ -383,7 +427,13 @@ public class DefaultRepositorySystem
         throws ArtifactResolutionException
     {
         validateSession( session );
+        return resolveDependencies( session, node, filter, null );
+    }
 
+    private List<ArtifactResult> resolveDependencies( RepositorySystemSession session, DependencyNode node,
+                                                      DependencyFilter filter, ArtifactPrefetcher prefetcher )
+        throws ArtifactResolutionException
+    {
         RequestTrace trace = DefaultRequestTrace.newChild( null, node );
 
         ArtifactRequestBuilder builder = new ArtifactRequestBuilder( trace );
@@ -394,7 +444,7 @@ public class DefaultRepositorySystem
 
         try
         {
-            List<ArtifactResult> results = resolveArtifacts( session, requests );
+            List<ArtifactResult> results = resolveArtifacts( session, requests, prefetcher );
 
             updateNodesWithResolvedArtifacts( results );
 
@@ -408,6 +458,40 @@ public class DefaultRepositorySystem
         }
     }
 
+    private ArtifactPrefetcher newPrefetcher( RepositorySystemSession session, CollectRequest request,
+                                              DependencyFilter filter, RequestTrace trace )
+    {
+        if ( !ConfigUtils.getBoolean( session, false, "aether.dependencyResolver.pipelined" ) )
+        {
+            return null;
+        }
+        ArtifactPrefetcher prefetcher = new ArtifactPrefetcher( session, artifactResolver, request, filter, trace );
+        prefetcher.start();
+        return prefetcher;
+    }
+
+    private List<ArtifactResult> resolveArtifacts( RepositorySystemSession session, List<ArtifactRequest> requests,
+                                                   ArtifactPrefetcher prefetcher )
+        throws ArtifactResolutionException
+    {
+        if ( prefetcher == null )
+        {
+            return artifactResolver.resolveArtifacts( session, requests );
+        }
+        try
+        {
+            return prefetcher.resolve( requests );
+        }
+        finally
+        {
+            if ( logger.isDebugEnabled() )
+            {
+                logger.debug( "Prefetched " + prefetcher.getScheduled() + " artifacts during collection, "
+                    + prefetcher.getHits() + " hits" );
+            }
+        }
+    }
+
     private void updateNodesWithResolvedArtifacts( List<ArtifactResult> results )
     {
         for ( ArtifactResult result : results )
@@ -425,8 +509,25 @@ public class DefaultRepositorySystem
         throws DependencyCollectionException, ArtifactResolutionException
     {
         validateSession( session );
-        CollectResult result = collectDependencies( session, request );
-        return resolveDependencies( session, result.getRoot(), filter );
+
+        ArtifactPrefetcher prefetcher =
+            newPrefetcher( session, request, filter, DefaultRequestTrace.newChild( request.getTrace(), request ) );
+
+        CollectResult result;
+        try
+        {
+            result = collectDependencies( session, request );
+        }
+        catch ( DependencyCollectionException e )
+        {
+            if ( prefetcher != null )
+            {
+                prefetcher.close();
+            }
+            throw e;
+        }
+
+        return resolveDependencies( session, result.getRoot(), filter, prefetcher );
     }
 
     public InstallResult install( RepositorySystemSession session, InstallRequest request )
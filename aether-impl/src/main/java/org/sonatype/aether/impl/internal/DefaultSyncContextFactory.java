@@ -11,23 +11,66 @@ package org.sonatype.aether.impl.internal;
 import java.util.Collection;
 
 import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.SyncContext;
 import org.sonatype.aether.artifact.Artifact;
 import org.sonatype.aether.impl.SyncContextFactory;
 import org.sonatype.aether.metadata.Metadata;
+import org.sonatype.aether.spi.locator.Service;
+import org.sonatype.aether.spi.locator.ServiceLocator;
+import org.sonatype.aether.spi.log.Logger;
+import org.sonatype.aether.spi.log.NullLogger;
+import org.sonatype.aether.util.ConfigUtils;
 
 /**
- * A factory to create synchronization contexts. This default implementation actually does not provide any real
- * synchronization but merely completes the repository system.
+ * A factory to create synchronization contexts. Unless enabled via the configuration property
+ * {@code aether.syncContext.fileLocks}, this default implementation actually does not provide any real
+ * synchronization but merely completes the repository system. If enabled, artifacts and metadata are guarded by lock
+ * files in the local repository that coordinate the threads of this JVM as well as other processes sharing the
+ * repository. The configuration property {@code aether.syncContext.lockTimeout} limits the time in milliseconds to
+ * wait for a lock held by another process, a non-positive value waits indefinitely.
  */
 @Component( role = SyncContextFactory.class )
 public class DefaultSyncContextFactory
-    implements SyncContextFactory
+    implements SyncContextFactory, Service
 {
 
+    private static final String CONFIG_PROP_FILE_LOCKS = "aether.syncContext.fileLocks";
+
+    private static final String CONFIG_PROP_LOCK_TIMEOUT = "aether.syncContext.lockTimeout";
+
+    @Requirement
+    private Logger logger = NullLogger.INSTANCE;
+
+    public DefaultSyncContextFactory()
+    {
+        // enables default constructor
+    }
+
+    public DefaultSyncContextFactory( Logger logger )
+    {
+        setLogger( logger );
+    }
+
+    public void initService( ServiceLocator locator )
+    {
+        setLogger( locator.getService( Logger.class ) );
+    }
+
+    public DefaultSyncContextFactory setLogger( Logger logger )
+    {
+        this.logger = ( logger != null ) ? logger : NullLogger.INSTANCE;
+        return this;
+    }
+
     public SyncContext newInstance( RepositorySystemSession session, boolean shared )
     {
+        if ( session.getLocalRepository() != null && ConfigUtils.getBoolean( session, false, CONFIG_PROP_FILE_LOCKS ) )
+        {
+            long timeout = ConfigUtils.getLong( session, 0, CONFIG_PROP_LOCK_TIMEOUT );
+            return new FileLockSyncContext( session, shared, timeout, logger );
+        }
         return new DefaultSyncContext();
     }
 
@@ -27,6 +27,7 @@ import org.sonatype.aether.impl.UpdateCheck;
 import org.sonatype.aether.impl.UpdateCheckManager;
 import org.sonatype.aether.metadata.Metadata;
 import org.sonatype.aether.repository.Authentication;
+import org.sonatype.aether.repository.LocalRepository;
 import org.sonatype.aether.repository.Proxy;
 import org.sonatype.aether.repository.RemoteRepository;
 import org.sonatype.aether.repository.RepositoryPolicy;
@@ -133,7 +134,7 @@ public class DefaultUpdateCheckManager
         boolean fileExists = check.isFileValid() && artifactFile.exists();
 
         File touchFile = getTouchFile( artifact, artifactFile );
-        Properties props = read( touchFile );
+        Properties props = read( session, touchFile );
 
         String updateKey = getUpdateKey( artifactFile, repository );
         String dataKey = getDataKey( artifact, artifactFile, repository );
@@ -268,7 +269,7 @@ public class DefaultUpdateCheckManager
         boolean fileExists = check.isFileValid() && metadataFile.exists();
 
         File touchFile = getTouchFile( metadata, metadataFile );
-        Properties props = read( touchFile );
+        Properties props = read( session, touchFile );
 
         String updateKey = getUpdateKey( metadataFile, repository );
         String dataKey = getDataKey( metadata, metadataFile, check.getAuthoritativeRepository() );
@@ -574,9 +575,24 @@ public class DefaultUpdateCheckManager
         return checkForUpdates;
     }
 
-    private Properties read( File touchFile )
+    private TrackingFileManager newTrackingFileManager( RepositorySystemSession session )
     {
-        Properties props = new TrackingFileManager().setLogger( logger ).read( touchFile );
+        long lockTimeout = TrackingFileManager.getLockTimeout( session );
+        return new TrackingFileManager().setLogger( logger ).setLockTimeout( lockTimeout );
+    }
+
+    private TrackingLog getTrackingLog( RepositorySystemSession session )
+    {
+        LocalRepository localRepository = session.getLocalRepository();
+        return TrackingLog.getInstance( session, ( localRepository != null ) ? localRepository.getBasedir() : null,
+                                        logger );
+    }
+
+    private Properties read( RepositorySystemSession session, File touchFile )
+    {
+        TrackingFileManager tfm = newTrackingFileManager( session );
+        TrackingLog log = getTrackingLog( session );
+        Properties props = ( log != null ) ? log.read( touchFile, tfm ) : tfm.read( touchFile );
         return ( props != null ) ? props : new Properties();
     }
 
@@ -591,11 +607,19 @@ public class DefaultUpdateCheckManager
         String transferKey = getTransferKey( artifact, artifactFile, check.getRepository() );
 
         setUpdated( session.getData(), updateKey );
-        Properties props = write( touchFile, dataKey, transferKey, check.getException() );
+        Properties props = write( session, touchFile, dataKey, transferKey, check.getException() );
 
         if ( artifactFile.exists() && !hasErrors( props ) )
         {
-            touchFile.delete();
+            TrackingLog log = getTrackingLog( session );
+            if ( log != null )
+            {
+                log.delete( touchFile );
+            }
+            else
+            {
+                touchFile.delete();
+            }
         }
     }
 
@@ -622,10 +646,11 @@ public class DefaultUpdateCheckManager
         String transferKey = getTransferKey( metadata, metadataFile, check.getRepository() );
 
         setUpdated( session.getData(), updateKey );
-        write( touchFile, dataKey, transferKey, check.getException() );
+        write( session, touchFile, dataKey, transferKey, check.getException() );
     }
 
-    private Properties write( File touchFile, String dataKey, String transferKey, Exception error )
+    private Properties write( RepositorySystemSession session, File touchFile, String dataKey, String transferKey,
+                              Exception error )
     {
         Map<String, String> updates = new HashMap<String, String>();
 
@@ -655,7 +680,9 @@ public class DefaultUpdateCheckManager
             updates.put( transferKey + UPDATED_KEY_SUFFIX, timestamp );
         }
 
-        return new TrackingFileManager().setLogger( logger ).update( touchFile, updates );
+        TrackingFileManager tfm = newTrackingFileManager( session );
+        TrackingLog log = getTrackingLog( session );
+        return ( log != null ) ? log.update( touchFile, updates, tfm ) : tfm.update( touchFile, updates );
     }
 
 }
@@ -0,0 +1,521 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.impl.RemoteRepositoryManager;
+import org.sonatype.aether.impl.VersionRangeResolver;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.util.artifact.ArtifactProperties;
+import org.sonatype.aether.util.artifact.JavaScopes;
+import org.sonatype.aether.version.Version;
+
+/**
+ * Resolves version ranges and artifact descriptors in the background so that the depth-first walk of the dependency
+ * collector finds them ready when it gets to the corresponding dependencies. The walk itself stays single-threaded,
+ * i.e. the order of the resulting graph is not affected by the prefetching.
+ * <p>
+ * The siblings of the node being expanded are prefetched on behalf of the walk, their results and errors are only
+ * handed out via {@link #resolveVersionRange(Object)} and {@link #readArtifactDescriptor(Object)}. Once the
+ * descriptor of such a sibling is available, the descriptors of its own children are speculatively read as well.
+ * Those children have not yet been subjected to dependency selection/management so successful speculative reads are
+ * put into the data pool where the walk picks them up if it eventually arrives at the same artifact, failed ones are
+ * silently discarded. The children are looked up in the same repositories that the walk aggregates for them. Once the
+ * prefetcher has been closed, tasks that are still running no longer publish their results.
+ *
+ * @see DefaultDependencyCollector
+ */
+final class DependencyPrefetcher
+{
+
+    private final RepositorySystemSession session;
+
+    private final VersionRangeResolver versionRangeResolver;
+
+    private final ArtifactDescriptorReader descriptorReader;
+
+    private final RemoteRepositoryManager remoteRepositoryManager;
+
+    private final DataPool pool;
+
+    private final boolean lookahead;
+
+    private final ExecutorService executor;
+
+    private final ConcurrentHashMap<Object, FutureTask<VersionRangeResult>> ranges =
+        new ConcurrentHashMap<Object, FutureTask<VersionRangeResult>>( 256 );
+
+    private final ConcurrentHashMap<Object, DescriptorTask> descriptors =
+        new ConcurrentHashMap<Object, DescriptorTask>( 256 );
+
+    private final ConcurrentHashMap<Object, Boolean> pooled = new ConcurrentHashMap<Object, Boolean>( 256 );
+
+    private final AtomicInteger scheduled = new AtomicInteger();
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a new prefetcher.
+     *
+     * @param session The repository system session, must not be {@code null}.
+     * @param versionRangeResolver The version range resolver, must not be {@code null}.
+     * @param descriptorReader The artifact descriptor reader, must not be {@code null}.
+     * @param remoteRepositoryManager The repository manager used to aggregate the repositories for the children of
+     *            prefetched siblings, must not be {@code null}.
+     * @param pool The data pool of the current collection, must not be {@code null}.
+     * @param threads The number of worker threads, must be positive.
+     * @param queueSize The maximum number of pending prefetches, non-positive for unbounded. Sibling prefetches that
+     *            exceed the limit are executed by the walk itself once it needs them, speculative prefetches are
+     *            dropped.
+     * @param lookahead Whether to speculatively read the descriptors of the children of prefetched siblings.
+     */
+    public DependencyPrefetcher( RepositorySystemSession session, VersionRangeResolver versionRangeResolver,
+                                 ArtifactDescriptorReader descriptorReader,
+                                 RemoteRepositoryManager remoteRepositoryManager, DataPool pool, int threads,
+                                 int queueSize, boolean lookahead )
+    {
+        this.session = session;
+        this.versionRangeResolver = versionRangeResolver;
+        this.descriptorReader = descriptorReader;
+        this.remoteRepositoryManager = remoteRepositoryManager;
+        this.pool = pool;
+        this.lookahead = lookahead;
+
+        LinkedBlockingQueue<Runnable> queue =
+            ( queueSize > 0 ) ? new LinkedBlockingQueue<Runnable>( queueSize ) : new LinkedBlockingQueue<Runnable>();
+        this.executor = new ThreadPoolExecutor( threads, threads, 3, TimeUnit.SECONDS, queue, new Rejector() );
+    }
+
+    /**
+     * Schedules the resolution of the specified version range and, unless {@code descriptorTemplate} is {@code null},
+     * of the artifact descriptors for all versions within the range.
+     *
+     * @param rangeRequest The version range request, must not be {@code null}.
+     * @param descriptorTemplate The descriptor request whose repositories, context and trace should be used for the
+     *            descriptors, may be {@code null} to only prefetch the range.
+     */
+    public void prefetch( VersionRangeRequest rangeRequest, final ArtifactDescriptorRequest descriptorTemplate )
+    {
+        Object key = pool.toKey( rangeRequest );
+
+        VersionRangeResult rangeResult = pool.getConstraint( key, rangeRequest );
+        if ( rangeResult != null )
+        {
+            prefetchDescriptors( rangeResult, descriptorTemplate );
+            return;
+        }
+
+        final VersionRangeRequest request = rangeRequest;
+        FutureTask<VersionRangeResult> task = new FutureTask<VersionRangeResult>( new Callable<VersionRangeResult>()
+        {
+            public VersionRangeResult call()
+                throws Exception
+            {
+                VersionRangeResult result = versionRangeResolver.resolveVersionRange( session, request );
+                prefetchDescriptors( result, descriptorTemplate );
+                return result;
+            }
+        } );
+
+        if ( ranges.putIfAbsent( key, task ) == null )
+        {
+            scheduled.incrementAndGet();
+            executor.execute( task );
+        }
+    }
+
+    void prefetchDescriptors( VersionRangeResult rangeResult, ArtifactDescriptorRequest template )
+    {
+        if ( template == null )
+        {
+            return;
+        }
+
+        for ( Version version : rangeResult.getVersions() )
+        {
+            Artifact artifact = rangeResult.getRequest().getArtifact().setVersion( version.toString() );
+            prefetchDescriptor( artifact, template.getRepositories(), template, false );
+        }
+    }
+
+    void prefetchChildren( ArtifactDescriptorResult result, ArtifactDescriptorRequest template )
+    {
+        // mirrors the repositories that the walk uses for the children of the sibling
+        List<RemoteRepository> repositories =
+            remoteRepositoryManager.aggregateRepositories( session, template.getRepositories(),
+                                                           result.getRepositories(), true );
+
+        for ( Dependency dependency : result.getDependencies() )
+        {
+            // skip what the classic selectors would prune anyway, that would only waste bandwidth
+            if ( dependency.isOptional() || JavaScopes.TEST.equals( dependency.getScope() )
+                || JavaScopes.PROVIDED.equals( dependency.getScope() ) )
+            {
+                continue;
+            }
+
+            Artifact artifact = dependency.getArtifact();
+            if ( artifact.getProperty( ArtifactProperties.LOCAL_PATH, null ) != null || isRange( artifact ) )
+            {
+                continue;
+            }
+
+            prefetchDescriptor( artifact, repositories, template, true );
+        }
+    }
+
+    private static boolean isRange( Artifact artifact )
+    {
+        String version = artifact.getVersion();
+        return version.length() <= 0 || version.charAt( 0 ) == '[' || version.charAt( 0 ) == '(';
+    }
+
+    private void prefetchDescriptor( Artifact artifact, List<RemoteRepository> repositories,
+                                     ArtifactDescriptorRequest template, boolean speculative )
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        final ArtifactDescriptorRequest request = new ArtifactDescriptorRequest();
+        request.setArtifact( artifact );
+        request.setRepositories( repositories );
+        request.setRequestContext( template.getRequestContext() );
+        request.setTrace( template.getTrace() );
+
+        Object key = pool.toKey( request );
+        if ( descriptors.containsKey( key ) || pool.getDescriptor( key, request ) != null )
+        {
+            return;
+        }
+
+        DescriptorTask task = new DescriptorTask( key, request, speculative );
+
+        if ( descriptors.putIfAbsent( key, task ) == null )
+        {
+            scheduled.incrementAndGet();
+            executor.execute( task );
+        }
+    }
+
+    /**
+     * Gets the prefetched result for the specified version range, waiting for its resolution if required.
+     *
+     * @param key The data pool key of the range request, must not be {@code null}.
+     * @return The resolved version range or {@code null} if the range was not prefetched.
+     * @throws VersionRangeResolutionException If the range could not be resolved.
+     */
+    public VersionRangeResult resolveVersionRange( Object key )
+        throws VersionRangeResolutionException
+    {
+        FutureTask<VersionRangeResult> task = ranges.remove( key );
+        if ( task == null )
+        {
+            return null;
+        }
+        hits.incrementAndGet();
+        try
+        {
+            return get( task );
+        }
+        catch ( VersionRangeResolutionException e )
+        {
+            throw e;
+        }
+        catch ( RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Gets the prefetched artifact descriptor, waiting for its retrieval if required.
+     *
+     * @param key The data pool key of the descriptor request, must not be {@code null}.
+     * @return The artifact descriptor or {@code null} if the descriptor was not (successfully) prefetched.
+     * @throws ArtifactDescriptorException If the descriptor could not be read.
+     */
+    public ArtifactDescriptorResult readArtifactDescriptor( Object key )
+        throws ArtifactDescriptorException
+    {
+        DescriptorTask task = descriptors.remove( key );
+        if ( task == null )
+        {
+            return null;
+        }
+        try
+        {
+            ArtifactDescriptorResult result = get( task );
+            hits.incrementAndGet();
+            return result;
+        }
+        catch ( ArtifactDescriptorException e )
+        {
+            if ( task.speculative )
+            {
+                return null;
+            }
+            hits.incrementAndGet();
+            throw e;
+        }
+        catch ( RuntimeException e )
+        {
+            if ( task.speculative )
+            {
+                return null;
+            }
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Notifies the prefetcher that the walk found the descriptor with the specified key in the data pool.
+     *
+     * @param key The data pool key of the descriptor request, must not be {@code null}.
+     */
+    public void touchDescriptor( Object key )
+    {
+        if ( pooled.remove( key ) != null )
+        {
+            hits.incrementAndGet();
+        }
+    }
+
+    private <T> T get( FutureTask<T> task )
+        throws Exception
+    {
+        // runs the task in the caller thread if no worker has picked it up yet, no-op otherwise
+        task.run();
+
+        boolean interrupted = false;
+        try
+        {
+            while ( true )
+            {
+                try
+                {
+                    return task.get();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof Exception )
+                    {
+                        throw (Exception) cause;
+                    }
+                    else if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException( cause );
+                }
+            }
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of version ranges and artifact descriptors that were scheduled for prefetching.
+     *
+     * @return The number of scheduled prefetches.
+     */
+    public int getScheduled()
+    {
+        return scheduled.get();
+    }
+
+    /**
+     * Gets the number of prefetched version ranges and artifact descriptors that were actually used by the walk.
+     *
+     * @return The number of prefetch hits.
+     */
+    public int getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of prefetches that were not (yet) used by the walk, e.g. because the corresponding dependencies
+     * have been excluded or managed to a different version.
+     *
+     * @return The number of wasted prefetches.
+     */
+    public int getWasted()
+    {
+        return Math.max( 0, scheduled.get() - hits.get() );
+    }
+
+    /**
+     * Cancels any outstanding work and releases the worker threads. Tasks that are already running are not awaited but
+     * once this method returns, they no longer put their results into the data pool.
+     */
+    public void close()
+    {
+        closeLock.writeLock().lock();
+        try
+        {
+            closed = true;
+        }
+        finally
+        {
+            closeLock.writeLock().unlock();
+        }
+
+        for ( FutureTask<?> task : ranges.values() )
+        {
+            task.cancel( false );
+        }
+        for ( FutureTask<?> task : descriptors.values() )
+        {
+            task.cancel( false );
+        }
+        ranges.clear();
+        descriptors.clear();
+        pooled.clear();
+        executor.shutdown();
+    }
+
+    class DescriptorTask
+        extends FutureTask<ArtifactDescriptorResult>
+    {
+
+        final Object key;
+
+        final ArtifactDescriptorRequest request;
+
+        final boolean speculative;
+
+        public DescriptorTask( Object key, final ArtifactDescriptorRequest request, boolean speculative )
+        {
+            super( new Callable<ArtifactDescriptorResult>()
+            {
+                public ArtifactDescriptorResult call()
+                    throws Exception
+                {
+                    return descriptorReader.readArtifactDescriptor( session, request );
+                }
+            } );
+            this.key = key;
+            this.request = request;
+            this.speculative = speculative;
+        }
+
+        @Override
+        protected void done()
+        {
+            if ( isCancelled() || closed )
+            {
+                return;
+            }
+
+            ArtifactDescriptorResult result;
+            try
+            {
+                result = get();
+            }
+            catch ( Exception e )
+            {
+                if ( speculative )
+                {
+                    descriptors.remove( key, this );
+                }
+                return;
+            }
+
+            if ( speculative )
+            {
+                // holding the shared lock keeps close() from completing while the result is being published
+                closeLock.readLock().lock();
+                try
+                {
+                    if ( !closed )
+                    {
+                        pool.putDescriptor( key, result );
+                        if ( descriptors.remove( key, this ) )
+                        {
+                            pooled.put( key, Boolean.TRUE );
+                        }
+                    }
+                }
+                finally
+                {
+                    closeLock.readLock().unlock();
+                }
+            }
+            else if ( lookahead )
+            {
+                prefetchChildren( result, request );
+            }
+        }
+
+    }
+
+    class Rejector
+        implements RejectedExecutionHandler
+    {
+
+        public void rejectedExecution( Runnable r, ThreadPoolExecutor executor )
+        {
+            if ( r instanceof DescriptorTask && ( (DescriptorTask) r ).speculative )
+            {
+                descriptors.remove( ( (DescriptorTask) r ).key, r );
+                scheduled.decrementAndGet();
+            }
+            // otherwise, the task stays registered and is run by the walk when it needs the result
+        }
+
+    }
+
+}
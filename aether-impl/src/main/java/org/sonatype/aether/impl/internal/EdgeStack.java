@@ -53,6 +53,20 @@ class EdgeStack
         size--;
     }
 
+    public int size()
+    {
+        return size;
+    }
+
+    public GraphEdge get( int index )
+    {
+        if ( index < 0 || index >= size )
+        {
+            throw new IndexOutOfBoundsException( index + " not in [0, " + size + ")" );
+        }
+        return edges[index];
+    }
+
     public GraphEdge find( Artifact artifact )
     {
         for ( int i = size - 1; i >= 0; i-- )
@@ -40,6 +40,8 @@ public class EnhancedLocalRepositoryManager
 
     private TrackingFileManager trackingFileManager;
 
+    private Logger logger;
+
     public EnhancedLocalRepositoryManager( File basedir )
     {
         super( basedir, "enhanced" );
@@ -50,6 +52,7 @@ public class EnhancedLocalRepositoryManager
     public EnhancedLocalRepositoryManager setLogger( Logger logger )
     {
         super.setLogger( logger );
+        this.logger = logger;
         trackingFileManager.setLogger( logger );
         return this;
     }
@@ -66,7 +69,7 @@ public class EnhancedLocalRepositoryManager
         {
             result.setFile( file );
 
-            Properties props = readRepos( file );
+            Properties props = readRepos( session, file );
 
             if ( props.get( getKey( file, LOCAL_REPO_ID ) ) != null )
             {
@@ -103,11 +106,12 @@ public class EnhancedLocalRepositoryManager
     {
         if ( request.getRepository() == null )
         {
-            addArtifact( request.getArtifact(), Collections.singleton( LOCAL_REPO_ID ) );
+            addArtifact( session, request.getArtifact(), Collections.singleton( LOCAL_REPO_ID ) );
         }
         else
         {
-            addArtifact( request.getArtifact(), getRepositoryKeys( request.getRepository(), request.getContexts() ) );
+            addArtifact( session, request.getArtifact(),
+                         getRepositoryKeys( request.getRepository(), request.getContexts() ) );
         }
     }
 
@@ -126,7 +130,7 @@ public class EnhancedLocalRepositoryManager
         return keys;
     }
 
-    private void addArtifact( Artifact artifact, Collection<String> repositories )
+    private void addArtifact( RepositorySystemSession session, Artifact artifact, Collection<String> repositories )
     {
         if ( artifact == null )
         {
@@ -134,18 +138,30 @@ public class EnhancedLocalRepositoryManager
         }
         String path = getPathForLocalArtifact( artifact );
         File file = new File( getRepository().getBasedir(), path );
-        addRepo( file, repositories );
+        addRepo( session, file, repositories );
+    }
+
+    private TrackingFileManager getTrackingFileManager( RepositorySystemSession session )
+    {
+        return trackingFileManager.setLockTimeout( TrackingFileManager.getLockTimeout( session ) );
+    }
+
+    private TrackingLog getTrackingLog( RepositorySystemSession session )
+    {
+        return TrackingLog.getInstance( session, getRepository().getBasedir(), logger );
     }
 
-    private Properties readRepos( File artifactFile )
+    private Properties readRepos( RepositorySystemSession session, File artifactFile )
     {
         File trackingFile = getTrackingFile( artifactFile );
 
-        Properties props = trackingFileManager.read( trackingFile );
+        TrackingFileManager tfm = getTrackingFileManager( session );
+        TrackingLog log = getTrackingLog( session );
+        Properties props = ( log != null ) ? log.read( trackingFile, tfm ) : tfm.read( trackingFile );
         return ( props != null ) ? props : new Properties();
     }
 
-    private void addRepo( File artifactFile, Collection<String> repositories )
+    private void addRepo( RepositorySystemSession session, File artifactFile, Collection<String> repositories )
     {
         Map<String, String> updates = new HashMap<String, String>();
         for ( String repository : repositories )
@@ -155,7 +171,16 @@ public class EnhancedLocalRepositoryManager
 
         File trackingFile = getTrackingFile( artifactFile );
 
-        trackingFileManager.update( trackingFile, updates );
+        TrackingFileManager tfm = getTrackingFileManager( session );
+        TrackingLog log = getTrackingLog( session );
+        if ( log != null )
+        {
+            log.update( trackingFile, updates, tfm );
+        }
+        else
+        {
+            tfm.update( trackingFile, updates );
+        }
     }
 
     private File getTrackingFile( File artifactFile )
@@ -0,0 +1,360 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.SyncContext;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.metadata.Metadata;
+import org.sonatype.aether.repository.LocalRepositoryManager;
+import org.sonatype.aether.spi.log.Logger;
+
+/**
+ * A synchronization context that guards artifacts and metadata by lock files in the local repository. Each resource
+ * is mapped onto a lock file below {@link #LOCKS_DIR} that mirrors its path within the local repository, see
+ * {@link #getLockPath(String)}. Threads of this JVM are coordinated by
+ * a fair read-write lock per lock file while processes are coordinated by OS-level file locks, where all threads of
+ * this JVM sharing a resource also share the OS-level lock. To prevent deadlocks among concurrent contexts, the locks
+ * requested by one invocation of {@link #acquire(Collection, Collection)} are acquired in the order of their keys. The
+ * time spent waiting for locks is logged.
+ */
+final class FileLockSyncContext
+    implements SyncContext
+{
+
+    static final String LOCKS_DIR = ".locks";
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private static final Map<String, ResourceLock> LOCKS = new HashMap<String, ResourceLock>();
+
+    private final RepositorySystemSession session;
+
+    private final boolean shared;
+
+    private final long timeout;
+
+    private final Logger logger;
+
+    private final File lockDir;
+
+    private final Set<String> keys = new HashSet<String>();
+
+    private final List<ResourceLock> locks = new ArrayList<ResourceLock>();
+
+    private long waitTime;
+
+    FileLockSyncContext( RepositorySystemSession session, boolean shared, long timeout, Logger logger )
+    {
+        this.session = session;
+        this.shared = shared;
+        this.timeout = timeout;
+        this.logger = logger;
+        this.lockDir = new File( session.getLocalRepository().getBasedir(), LOCKS_DIR );
+    }
+
+    public void acquire( Collection<? extends Artifact> artifacts, Collection<? extends Metadata> metadatas )
+    {
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+
+        Map<String, File> files = new TreeMap<String, File>();
+        if ( artifacts != null )
+        {
+            for ( Artifact artifact : artifacts )
+            {
+                addLockFile( files, lrm.getPathForLocalArtifact( artifact ) );
+            }
+        }
+        if ( metadatas != null )
+        {
+            for ( Metadata metadata : metadatas )
+            {
+                addLockFile( files, lrm.getPathForLocalMetadata( metadata ) );
+            }
+        }
+        files.keySet().removeAll( keys );
+
+        if ( files.isEmpty() )
+        {
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        List<ResourceLock> acquired = new ArrayList<ResourceLock>( files.size() );
+        for ( Map.Entry<String, File> entry : files.entrySet() )
+        {
+            ResourceLock lock = ResourceLock.get( entry.getKey(), entry.getValue() );
+            try
+            {
+                lock.lock( shared, timeout );
+            }
+            catch ( IOException e )
+            {
+                ResourceLock.unref( lock );
+                release( acquired );
+                throw new IllegalStateException( "Could not acquire " + ( shared ? "shared" : "exclusive" )
+                    + " lock " + entry.getValue() + ": " + e.getMessage(), e );
+            }
+            acquired.add( lock );
+        }
+
+        keys.addAll( files.keySet() );
+        locks.addAll( acquired );
+
+        long wait = System.nanoTime() - start;
+        waitTime += wait;
+        if ( wait >= 1000 * 1000 && logger.isDebugEnabled() )
+        {
+            logger.debug( "Waited " + ( wait / ( 1000 * 1000 ) ) + " ms for " + ( shared ? "shared" : "exclusive" )
+                + " locks on " + files.values() );
+        }
+    }
+
+    private void addLockFile( Map<String, File> files, String path )
+    {
+        File file = new File( lockDir, getLockPath( path ) );
+        files.put( TrackingFileLocks.getInstance().getKey( file, logger ), file );
+    }
+
+    /**
+     * Gets the path of the lock file for a resource, relative to the lock directory. The lock files mirror the layout
+     * of the local repository, so each file name stays as short as the resource's own name and the lock files of a
+     * directory can be purged along with it. A name that would exceed the file system limit or a path that would
+     * escape the lock directory is replaced by its SHA-1 hash.
+     *
+     * @param path The path of the resource relative to the local repository, must not be {@code null}.
+     * @return The relative path of the lock file, never {@code null}.
+     */
+    static String getLockPath( String path )
+    {
+        String normalized = path.replace( '\\', '/' );
+        if ( normalized.startsWith( "/" ) || ( '/' + normalized + '/' ).indexOf( "/../" ) >= 0 )
+        {
+            return hash( normalized ) + ".lock";
+        }
+
+        int slash = normalized.lastIndexOf( '/' );
+        String name = normalized.substring( slash + 1 ) + ".lock";
+        if ( getByteLength( name ) > MAX_NAME_LENGTH )
+        {
+            name = hash( name ) + ".lock";
+        }
+        return normalized.substring( 0, slash + 1 ) + name;
+    }
+
+    private static String hash( String name )
+    {
+        SimpleDigest digest = new SimpleDigest();
+        digest.update( name );
+        return digest.digest();
+    }
+
+    private static int getByteLength( String name )
+    {
+        try
+        {
+            return name.getBytes( "UTF-8" ).length;
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // broken JVM
+            return name.length();
+        }
+    }
+
+    public void release()
+    {
+        release( locks );
+        locks.clear();
+        keys.clear();
+    }
+
+    private void release( List<ResourceLock> locks )
+    {
+        for ( int i = locks.size() - 1; i >= 0; i-- )
+        {
+            ResourceLock lock = locks.get( i );
+            try
+            {
+                lock.unlock( shared );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to release lock " + lock.file + ": " + e.getMessage() );
+            }
+            finally
+            {
+                ResourceLock.unref( lock );
+            }
+        }
+    }
+
+    /**
+     * Gets the time this context spent waiting for locks held by other threads or processes.
+     *
+     * @return The accumulated wait time in nanoseconds.
+     */
+    long getWaitTime()
+    {
+        return waitTime;
+    }
+
+    static final class ResourceLock
+    {
+
+        final String key;
+
+        final File file;
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock( true );
+
+        // guarded by LOCKS
+        int refs;
+
+        // guarded by this
+        int holders;
+
+        // guarded by this
+        RandomAccessFile raf;
+
+        // guarded by this
+        FileLock fileLock;
+
+        ResourceLock( String key, File file )
+        {
+            this.key = key;
+            this.file = file;
+        }
+
+        static ResourceLock get( String key, File file )
+        {
+            synchronized ( LOCKS )
+            {
+                ResourceLock lock = LOCKS.get( key );
+                if ( lock == null )
+                {
+                    lock = new ResourceLock( key, file );
+                    LOCKS.put( key, lock );
+                }
+                lock.refs++;
+                return lock;
+            }
+        }
+
+        static void unref( ResourceLock lock )
+        {
+            synchronized ( LOCKS )
+            {
+                if ( --lock.refs <= 0 )
+                {
+                    LOCKS.remove( lock.key );
+                }
+            }
+        }
+
+        void lock( boolean shared, long timeout )
+            throws IOException
+        {
+            Lock lock = shared ? this.lock.readLock() : this.lock.writeLock();
+            lock.lock();
+            try
+            {
+                synchronized ( this )
+                {
+                    if ( fileLock == null )
+                    {
+                        /*
+                         * NOTE: A writer is only granted the JVM lock after all readers released the OS-level lock so
+                         * the mode of the OS-level lock always matches the mode of its current holders, the only
+                         * exception being a thread that nests a shared context into an exclusive one.
+                         */
+                        file.getParentFile().mkdirs();
+                        raf = new RandomAccessFile( file, "rw" );
+                        try
+                        {
+                            fileLock = TrackingFileLocks.getInstance().lock( raf.getChannel(), Long.MAX_VALUE, shared,
+                                                                              timeout );
+                        }
+                        catch ( IOException e )
+                        {
+                            close();
+                            throw e;
+                        }
+                    }
+                    holders++;
+                }
+            }
+            catch ( IOException e )
+            {
+                lock.unlock();
+                throw e;
+            }
+        }
+
+        void unlock( boolean shared )
+            throws IOException
+        {
+            try
+            {
+                synchronized ( this )
+                {
+                    if ( --holders <= 0 )
+                    {
+                        holders = 0;
+                        close();
+                    }
+                }
+            }
+            finally
+            {
+                ( shared ? lock.readLock() : lock.writeLock() ).unlock();
+            }
+        }
+
+        private void close()
+            throws IOException
+        {
+            try
+            {
+                if ( fileLock != null )
+                {
+                    fileLock.release();
+                }
+            }
+            finally
+            {
+                fileLock = null;
+                if ( raf != null )
+                {
+                    raf.close();
+                    raf = null;
+                }
+            }
+        }
+
+    }
+
+}
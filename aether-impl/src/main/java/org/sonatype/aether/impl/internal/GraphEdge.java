@@ -19,10 +19,16 @@ import org.sonatype.aether.graph.Dependency;
 import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.graph.DependencyVisitor;
 import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.util.graph.DependencyGraphWalker;
 import org.sonatype.aether.version.Version;
 import org.sonatype.aether.version.VersionConstraint;
 
 /**
+ * A node of the dependency graph. To keep huge graphs compact, the attributes of an edge which rarely vary among edges
+ * to the same artifact are held by a separate immutable object that can be shared among edges. Updates of the
+ * attributes (e.g. by graph transformers) are interned via the pool that the attributes originate from to retain the
+ * sharing.
+ * 
  * @author Benjamin Bentmann
  */
 class GraphEdge
@@ -33,17 +39,7 @@ class GraphEdge
 
     private Dependency dependency;
 
-    private String context;
-
-    private String premanagedScope;
-
-    private String premanagedVersion;
-
-    private List<Artifact> relocations;
-
-    private VersionConstraint versionConstraint;
-
-    private Version version;
+    private Attributes attributes = Attributes.NONE;
 
     private Map<Object, Object> data = Collections.emptyMap();
 
@@ -87,50 +83,85 @@ class GraphEdge
         this.dependency = dependency.setScope( scope );
     }
 
+    public Attributes getAttributes()
+    {
+        return attributes;
+    }
+
+    public void setAttributes( Attributes attributes )
+    {
+        this.attributes = ( attributes != null ) ? attributes : Attributes.NONE;
+    }
+
     public String getPremanagedScope()
     {
-        return premanagedScope;
+        return attributes.premanagedScope;
     }
 
     public void setPremanagedScope( String premanagedScope )
     {
-        this.premanagedScope = premanagedScope;
+        Attributes a = attributes;
+        if ( !Attributes.eq( premanagedScope, a.premanagedScope ) )
+        {
+            attributes =
+                a.derive( a.context, premanagedScope, a.premanagedVersion, a.relocations, a.versionConstraint,
+                          a.version );
+        }
     }
 
     public String getPremanagedVersion()
     {
-        return premanagedVersion;
+        return attributes.premanagedVersion;
     }
 
     public void setPremanagedVersion( String premanagedVersion )
     {
-        this.premanagedVersion = premanagedVersion;
+        Attributes a = attributes;
+        if ( !Attributes.eq( premanagedVersion, a.premanagedVersion ) )
+        {
+            attributes =
+                a.derive( a.context, a.premanagedScope, premanagedVersion, a.relocations, a.versionConstraint,
+                          a.version );
+        }
     }
 
     public String getRequestContext()
     {
-        return context;
+        return attributes.context;
     }
 
     public void setRequestContext( String context )
     {
-        this.context = ( context != null ) ? context : "";
+        if ( context == null )
+        {
+            context = "";
+        }
+        Attributes a = attributes;
+        if ( !context.equals( a.context ) )
+        {
+            attributes =
+                a.derive( context, a.premanagedScope, a.premanagedVersion, a.relocations, a.versionConstraint,
+                          a.version );
+        }
     }
 
     public List<Artifact> getRelocations()
     {
-        return relocations;
+        return attributes.relocations;
     }
 
     public void setRelocations( List<Artifact> relocations )
     {
         if ( relocations == null || relocations.isEmpty() )
         {
-            this.relocations = Collections.emptyList();
+            relocations = Collections.emptyList();
         }
-        else
+        Attributes a = attributes;
+        if ( !Attributes.eq( relocations, a.relocations ) )
         {
-            this.relocations = relocations;
+            attributes =
+                a.derive( a.context, a.premanagedScope, a.premanagedVersion, relocations, a.versionConstraint,
+                          a.version );
         }
     }
 
@@ -141,22 +172,34 @@ class GraphEdge
 
     public VersionConstraint getVersionConstraint()
     {
-        return versionConstraint;
+        return attributes.versionConstraint;
     }
 
     public void setVersionConstraint( VersionConstraint versionConstraint )
     {
-        this.versionConstraint = versionConstraint;
+        Attributes a = attributes;
+        if ( !Attributes.eq( versionConstraint, a.versionConstraint ) )
+        {
+            attributes =
+                a.derive( a.context, a.premanagedScope, a.premanagedVersion, a.relocations, versionConstraint,
+                          a.version );
+        }
     }
 
     public Version getVersion()
     {
-        return version;
+        return attributes.version;
     }
 
     public void setVersion( Version version )
     {
-        this.version = version;
+        Attributes a = attributes;
+        if ( !Attributes.eq( version, a.version ) )
+        {
+            attributes =
+                a.derive( a.context, a.premanagedScope, a.premanagedVersion, a.relocations, a.versionConstraint,
+                          version );
+        }
     }
 
     public Map<Object, Object> getData()
@@ -195,18 +238,7 @@ class GraphEdge
 
     public boolean accept( DependencyVisitor visitor )
     {
-        if ( visitor.visitEnter( this ) )
-        {
-            for ( DependencyNode child : getChildren() )
-            {
-                if ( !child.accept( visitor ) )
-                {
-                    break;
-                }
-            }
-        }
-
-        return visitor.visitLeave( this );
+        return DependencyGraphWalker.accept( this, visitor );
     }
 
     @Override
@@ -220,4 +252,100 @@ class GraphEdge
         return dep.toString();
     }
 
+    /**
+     * The immutable attributes of an edge, suitable for interning.
+     */
+    static final class Attributes
+    {
+
+        static final Attributes NONE = new Attributes( null, null, null, null, null, null, null );
+
+        /**
+         * The pool used to intern attributes derived from this instance, may be {@code null}. Not part of the identity.
+         */
+        private final ObjectPool<Attributes> pool;
+
+        final String context;
+
+        final String premanagedScope;
+
+        final String premanagedVersion;
+
+        final List<Artifact> relocations;
+
+        final VersionConstraint versionConstraint;
+
+        final Version version;
+
+        private final int hashCode;
+
+        public Attributes( ObjectPool<Attributes> pool, String context, String premanagedScope,
+                           String premanagedVersion, List<Artifact> relocations, VersionConstraint versionConstraint,
+                           Version version )
+        {
+            this.pool = pool;
+            this.context = context;
+            this.premanagedScope = premanagedScope;
+            this.premanagedVersion = premanagedVersion;
+            this.relocations = relocations;
+            this.versionConstraint = versionConstraint;
+            this.version = version;
+
+            int hash = 17;
+            hash = hash * 31 + hash( context );
+            hash = hash * 31 + hash( premanagedScope );
+            hash = hash * 31 + hash( premanagedVersion );
+            hash = hash * 31 + hash( relocations );
+            hash = hash * 31 + hash( versionConstraint );
+            hash = hash * 31 + hash( version );
+            hashCode = hash;
+        }
+
+        /**
+         * Creates attributes with the specified values, interned via the pool of this instance (if any).
+         */
+        Attributes derive( String context, String premanagedScope, String premanagedVersion,
+                           List<Artifact> relocations, VersionConstraint versionConstraint, Version version )
+        {
+            Attributes derived =
+                new Attributes( pool, context, premanagedScope, premanagedVersion, relocations, versionConstraint,
+                                version );
+            return ( pool != null ) ? pool.intern( derived ) : derived;
+        }
+
+        private static int hash( Object obj )
+        {
+            return ( obj != null ) ? obj.hashCode() : 0;
+        }
+
+        static boolean eq( Object o1, Object o2 )
+        {
+            return ( o1 != null ) ? o1.equals( o2 ) : o2 == null;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            else if ( !( obj instanceof Attributes ) )
+            {
+                return false;
+            }
+            Attributes that = (Attributes) obj;
+            return hashCode == that.hashCode && eq( context, that.context ) && eq( version, that.version )
+                && eq( versionConstraint, that.versionConstraint ) && eq( premanagedScope, that.premanagedScope )
+                && eq( premanagedVersion, that.premanagedVersion ) && eq( relocations, that.relocations );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+    }
+
 }
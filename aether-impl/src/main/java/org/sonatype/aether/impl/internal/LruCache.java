@@ -0,0 +1,223 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe map-like cache that evicts its least recently used entries once a maximum number of entries and/or a
+ * maximum total weight is exceeded. The weight of an entry is determined by {@link #weigh(Object, Object)} and is
+ * meant to be a rough estimate of its memory footprint. The entries are kept in a private access-ordered map and all
+ * operations are synchronized on this cache, there are no live views of the entries.
+ */
+class LruCache<K, V>
+{
+
+    private final Map<K, V> entries;
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private long weight;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * Creates a new cache with the specified limits.
+     *
+     * @param maxEntries The maximum number of entries, non-positive for unlimited.
+     * @param maxWeight The maximum total weight of the entries, non-positive for unlimited.
+     */
+    public LruCache( int maxEntries, long maxWeight )
+    {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        entries = new LinkedHashMap<K, V>( 256, 0.75f, true )
+        {
+
+            private static final long serialVersionUID = -6335384745733580547L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<K, V> eldest )
+            {
+                evict();
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * Estimates the weight of the specified entry. This default implementation weighs all entries equally.
+     *
+     * @param key The key of the entry, may be {@code null}.
+     * @param value The value of the entry, may be {@code null}.
+     * @return The weight of the entry, should be non-negative.
+     */
+    protected int weigh( K key, V value )
+    {
+        return 1;
+    }
+
+    /**
+     * Notifies this cache that the specified entry was evicted to honor its limits. This default implementation does
+     * nothing. The method is invoked while holding the lock of this cache.
+     *
+     * @param key The key of the evicted entry, may be {@code null}.
+     * @param value The value of the evicted entry, may be {@code null}.
+     */
+    protected void evicted( K key, V value )
+    {
+        // noop
+    }
+
+    public synchronized V get( Object key )
+    {
+        V value = entries.get( key );
+        if ( value != null )
+        {
+            hits++;
+        }
+        else
+        {
+            misses++;
+        }
+        return value;
+    }
+
+    public synchronized boolean containsKey( Object key )
+    {
+        return entries.containsKey( key );
+    }
+
+    public synchronized V put( K key, V value )
+    {
+        // account for the new entry upfront, the map consults removeEldestEntry() while inserting it
+        weight += weigh( key, value );
+        V old = entries.put( key, value );
+        if ( old != null )
+        {
+            weight -= weigh( key, old );
+            // replacing a value does not trigger removeEldestEntry() but can still exceed the weight limit
+            evict();
+        }
+        return old;
+    }
+
+    private void evict()
+    {
+        for ( Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator(); it.hasNext() && isOverLimit(); )
+        {
+            Map.Entry<K, V> eldest = it.next();
+            if ( !it.hasNext() )
+            {
+                // never evict the entry just added/updated, it is the most recently used one
+                break;
+            }
+            weight -= weigh( eldest.getKey(), eldest.getValue() );
+            it.remove();
+            evictions++;
+            evicted( eldest.getKey(), eldest.getValue() );
+        }
+    }
+
+    private boolean isOverLimit()
+    {
+        return ( maxEntries > 0 && entries.size() > maxEntries ) || ( maxWeight > 0 && weight > maxWeight );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public synchronized V remove( Object key )
+    {
+        V old = entries.remove( key );
+        if ( old != null )
+        {
+            weight -= weigh( (K) key, old );
+        }
+        return old;
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Gets a snapshot of the keys currently held by this cache, in order from least to most recently used.
+     *
+     * @return The keys of the cache, never {@code null}.
+     */
+    public synchronized Collection<K> keys()
+    {
+        return new ArrayList<K>( entries.keySet() );
+    }
+
+    /**
+     * Gets the current total weight of the entries in this cache.
+     *
+     * @return The total weight of the entries.
+     */
+    public synchronized long getWeight()
+    {
+        return weight;
+    }
+
+    /**
+     * Gets the number of lookups that found an entry.
+     *
+     * @return The number of cache hits.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that did not find an entry.
+     *
+     * @return The number of cache misses.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries that were evicted to honor the limits of this cache.
+     *
+     * @return The number of evicted entries.
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "size=" + entries.size() + ", weight=" + weight + ", hits=" + hits + ", misses=" + misses
+            + ", evictions=" + evictions;
+    }
+
+}
@@ -15,29 +15,215 @@ import java.util.WeakHashMap;
 
 /**
  * Pool of immutable object instances, used to avoid excessive memory consumption of (dirty) dependency graph which
- * tends to have many duplicate artifacts/dependencies.
+ * tends to have many duplicate artifacts/dependencies. By default, pooled instances are only weakly referenced and
+ * hence subject to garbage collection. Alternatively, the pool can be bounded in which case it strongly references up
+ * to a given number of instances and evicts the least recently used ones. As the pool is usually shared by concurrent
+ * collections, it is split into independently locked stripes selected by the hash code of the object being interned.
  * 
  * @author Benjamin Bentmann
  */
 class ObjectPool<T>
 {
 
-    private final Map<Object, Reference<T>> objects = new WeakHashMap<Object, Reference<T>>( 256 );
+    private static final int MAX_STRIPES = 16;
 
-    public synchronized T intern( T object )
+    private static final int MIN_STRIPE_SIZE = 256;
+
+    private final Stripe<T>[] stripes;
+
+    /**
+     * Creates an unbounded pool whose instances are weakly referenced.
+     */
+    public ObjectPool()
+    {
+        this( 0 );
+    }
+
+    /**
+     * Creates a pool with the specified capacity.
+     * 
+     * @param maxSize The maximum number of pooled instances, non-positive to weakly reference an unlimited number of
+     *            instances.
+     */
+    public ObjectPool( int maxSize )
     {
-        Reference<T> pooledRef = objects.get( object );
-        if ( pooledRef != null )
+        int count = MAX_STRIPES;
+        if ( maxSize > 0 )
         {
-            T pooled = pooledRef.get();
-            if ( pooled != null )
+            // keep small pools in a single stripe to honor their capacity as exactly as possible
+            while ( count > 1 && maxSize / count < MIN_STRIPE_SIZE )
             {
-                return pooled;
+                count >>= 1;
             }
         }
 
-        objects.put( object, new WeakReference<T>( object ) );
-        return object;
+        stripes = newStripes( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            int stripeSize = ( maxSize > 0 ) ? ( maxSize + count - 1 - i ) / count : 0;
+            stripes[i] = new Stripe<T>( stripeSize );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <T> Stripe<T>[] newStripes( int count )
+    {
+        return (Stripe<T>[]) new Stripe<?>[count];
+    }
+
+    public T intern( T object )
+    {
+        int hash = object.hashCode();
+        hash ^= ( hash >>> 16 );
+        hash ^= ( hash >>> 8 );
+        return stripes[hash & ( stripes.length - 1 )].intern( object );
+    }
+
+    /**
+     * Gets the number of lookups that yielded an already pooled instance.
+     * 
+     * @return The number of pool hits.
+     */
+    public long getHits()
+    {
+        long hits = 0;
+        for ( Stripe<T> stripe : stripes )
+        {
+            hits += stripe.getHits();
+        }
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that did not find a pooled instance.
+     * 
+     * @return The number of pool misses.
+     */
+    public long getMisses()
+    {
+        long misses = 0;
+        for ( Stripe<T> stripe : stripes )
+        {
+            misses += stripe.getMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * Gets the number of pooled instances that were dropped, either due to the capacity of the pool or (for an
+     * unbounded pool) due to garbage collection. For the latter, only those instances that were looked up again after
+     * their collection are accounted for.
+     * 
+     * @return The number of evicted instances.
+     */
+    public long getEvictions()
+    {
+        long evictions = 0;
+        for ( Stripe<T> stripe : stripes )
+        {
+            evictions += stripe.getEvictions();
+        }
+        return evictions;
+    }
+
+    /**
+     * Gets the number of currently pooled instances.
+     * 
+     * @return The size of the pool.
+     */
+    public int size()
+    {
+        int size = 0;
+        for ( Stripe<T> stripe : stripes )
+        {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions();
+    }
+
+    static final class Stripe<T>
+    {
+
+        private final Map<Object, Reference<T>> objects;
+
+        private final LruCache<Object, T> bounded;
+
+        private long hits;
+
+        private long misses;
+
+        private long evictions;
+
+        public Stripe( int maxSize )
+        {
+            if ( maxSize > 0 )
+            {
+                objects = null;
+                bounded = new LruCache<Object, T>( maxSize, 0 );
+            }
+            else
+            {
+                objects = new WeakHashMap<Object, Reference<T>>( 64 );
+                bounded = null;
+            }
+        }
+
+        public synchronized T intern( T object )
+        {
+            if ( bounded != null )
+            {
+                T pooled = bounded.get( object );
+                if ( pooled != null )
+                {
+                    return pooled;
+                }
+                bounded.put( object, object );
+                return object;
+            }
+
+            Reference<T> pooledRef = objects.get( object );
+            if ( pooledRef != null )
+            {
+                T pooled = pooledRef.get();
+                if ( pooled != null )
+                {
+                    hits++;
+                    return pooled;
+                }
+                evictions++;
+            }
+
+            misses++;
+            objects.put( object, new WeakReference<T>( object ) );
+            return object;
+        }
+
+        public synchronized long getHits()
+        {
+            return ( bounded != null ) ? bounded.getHits() : hits;
+        }
+
+        public synchronized long getMisses()
+        {
+            return ( bounded != null ) ? bounded.getMisses() : misses;
+        }
+
+        public synchronized long getEvictions()
+        {
+            return ( bounded != null ) ? bounded.getEvictions() : evictions;
+        }
+
+        public synchronized int size()
+        {
+            return ( bounded != null ) ? bounded.size() : objects.size();
+        }
+
     }
 
 }
@@ -0,0 +1,719 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.sonatype.aether.AbstractRepositoryListener;
+import org.sonatype.aether.RepositoryEvent;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.RequestTrace;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.repository.LocalRepositoryManager;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.util.ConfigUtils;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.listener.ChainedRepositoryListener;
+
+/**
+ * A cache of artifact descriptors that is persisted in the local repository and hence shared across sessions and
+ * JVMs. Each descriptor is stored in a compact binary file which records the last-modified timestamp and size of every
+ * POM it was built from (i.e. the POM of the artifact itself and its parent and imported POMs) along with the inputs of
+ * the descriptor request and a digest of the system and user properties. A cache entry is only used if all of those
+ * still match, i.e. updating any of the POMs invalidates the entry. The POMs that make up a descriptor are learned by
+ * watching the artifact resolutions that the descriptor reader traces back to the descriptor request, see
+ * {@link #install(DefaultRepositorySystemSession)}. Descriptors whose reader doesn't trace its resolutions are not
+ * cached at all. Snapshots are never cached since their descriptors can change without any POM in the local repository
+ * being touched.
+ *
+ * @see DataPool
+ */
+final class PersistentDescriptorCache
+{
+
+    private static final int MAGIC = 0x41455444;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String DIRECTORY = ".cache/aether-descriptors/v" + FORMAT_VERSION + "/";
+
+    private static final String SUFFIX = ".desc";
+
+    private static final byte NULL = 0;
+
+    private static final byte NEW_STRING = 1;
+
+    private static final byte STRING_REF = 2;
+
+    private final LocalRepositoryManager lrm;
+
+    private final File basedir;
+
+    private final String sessionStamp;
+
+    private final Map<ArtifactDescriptorRequest, Collection<File>> inputs =
+        Collections.synchronizedMap( new WeakHashMap<ArtifactDescriptorRequest, Collection<File>>() );
+
+    private PersistentDescriptorCache( LocalRepositoryManager lrm, String sessionStamp )
+    {
+        this.lrm = lrm;
+        this.basedir = lrm.getRepository().getBasedir();
+        this.sessionStamp = sessionStamp;
+    }
+
+    /**
+     * Creates a persistent descriptor cache for the specified session if enabled via the configuration property
+     * {@code aether.collector.persistentDescriptorCache}.
+     *
+     * @param session The repository system session, must not be {@code null}.
+     * @return The persistent cache or {@code null} if disabled/unsupported for the session.
+     */
+    public static PersistentDescriptorCache newInstance( RepositorySystemSession session )
+    {
+        if ( !ConfigUtils.getBoolean( session, false, "aether.collector.persistentDescriptorCache" ) )
+        {
+            return null;
+        }
+
+        LocalRepositoryManager lrm = session.getLocalRepositoryManager();
+        if ( lrm == null || lrm.getRepository() == null || lrm.getRepository().getBasedir() == null )
+        {
+            return null;
+        }
+
+        // system and user properties can influence the effective model (e.g. JDK/OS based profile activation)
+        SimpleDigest digest = new SimpleDigest();
+        digest( digest, "system", session.getSystemProperties() );
+        digest( digest, "user", session.getUserProperties() );
+
+        return new PersistentDescriptorCache( lrm, digest.digest() );
+    }
+
+    private static void digest( SimpleDigest digest, String kind, Map<String, String> properties )
+    {
+        digest.update( kind );
+        digest.update( "{" );
+        if ( properties != null )
+        {
+            for ( Map.Entry<String, String> entry : new TreeMap<String, String>( properties ).entrySet() )
+            {
+                digest.update( entry.getKey() );
+                digest.update( "=" );
+                digest.update( entry.getValue() );
+                digest.update( "\n" );
+            }
+        }
+        digest.update( "}" );
+    }
+
+    /**
+     * Enables the specified session to record the POMs that the artifact descriptor reader resolves while building a
+     * descriptor. Without this, no descriptors will be written to the cache.
+     * 
+     * @param session The repository system session to hook into, must not be {@code null}.
+     */
+    public void install( DefaultRepositorySystemSession session )
+    {
+        session.setRepositoryListener( ChainedRepositoryListener.newInstance( new InputRecorder(),
+                                                                              session.getRepositoryListener() ) );
+    }
+
+    /**
+     * Records the specified POM as an input of the given descriptor request.
+     * 
+     * @param request The descriptor request being processed, must not be {@code null}.
+     * @param pom The POM file that contributed to the descriptor, must not be {@code null}.
+     */
+    void addInput( ArtifactDescriptorRequest request, File pom )
+    {
+        synchronized ( inputs )
+        {
+            Collection<File> files = inputs.get( request );
+            if ( files == null )
+            {
+                files = new LinkedHashSet<File>();
+                inputs.put( request, files );
+            }
+            files.add( pom.getAbsoluteFile() );
+        }
+    }
+
+    /**
+     * Gets the cached descriptor for the specified request.
+     *
+     * @param request The descriptor request, must not be {@code null}.
+     * @return The cached descriptor or {@code null} if not cached or outdated.
+     */
+    public ArtifactDescriptorResult get( ArtifactDescriptorRequest request )
+    {
+        Artifact artifact = request.getArtifact();
+        if ( artifact == null || artifact.isSnapshot() )
+        {
+            return null;
+        }
+
+        File pom = getPomFile( artifact );
+        File file = getCacheFile( artifact );
+        if ( !file.isFile() || !pom.isFile() )
+        {
+            return null;
+        }
+
+        try
+        {
+            DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+            try
+            {
+                if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION )
+                {
+                    return null;
+                }
+                if ( !in.readUTF().equals( getStamp( request ) ) )
+                {
+                    return null;
+                }
+                for ( int i = in.readInt(); i > 0; i-- )
+                {
+                    File input = new File( in.readUTF() );
+                    if ( in.readLong() != input.lastModified() || in.readLong() != input.length() )
+                    {
+                        return null;
+                    }
+                }
+                return new Decoder( in ).readResult( request );
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            // corrupted or concurrently replaced, just treat as a miss
+            return null;
+        }
+        catch ( RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the specified descriptor in the cache. Descriptors which can't be encoded are silently ignored.
+     *
+     * @param result The descriptor to store, must not be {@code null}.
+     */
+    public void put( ArtifactDescriptorResult result )
+    {
+        Artifact artifact = result.getRequest().getArtifact();
+        if ( artifact == null || artifact.isSnapshot() || !isCacheable( result ) )
+        {
+            return;
+        }
+
+        Collection<File> poms = inputs.remove( result.getRequest() );
+        if ( poms == null || !poms.contains( getPomFile( artifact ).getAbsoluteFile() ) )
+        {
+            // we can't tell which POMs the descriptor depends on
+            return;
+        }
+
+        File file = getCacheFile( artifact );
+        File tmp = null;
+        try
+        {
+            file.getParentFile().mkdirs();
+            tmp = File.createTempFile( file.getName(), ".tmp", file.getParentFile() );
+
+            DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) );
+            try
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                out.writeUTF( getStamp( result.getRequest() ) );
+                out.writeInt( poms.size() );
+                for ( File pom : poms )
+                {
+                    out.writeUTF( pom.getPath() );
+                    out.writeLong( pom.lastModified() );
+                    out.writeLong( pom.length() );
+                }
+                new Encoder( out ).writeResult( result );
+            }
+            finally
+            {
+                out.close();
+            }
+
+            // readers either see the old or the new file but never a partially written one
+            if ( !tmp.renameTo( file ) )
+            {
+                file.delete();
+                if ( tmp.renameTo( file ) )
+                {
+                    tmp = null;
+                }
+            }
+            else
+            {
+                tmp = null;
+            }
+        }
+        catch ( IOException e )
+        {
+            // the cache is an optimization only
+        }
+        finally
+        {
+            if ( tmp != null )
+            {
+                tmp.delete();
+            }
+        }
+    }
+
+    private File getPomFile( Artifact artifact )
+    {
+        Artifact pom =
+            new DefaultArtifact( artifact.getGroupId(), artifact.getArtifactId(), "", "pom", artifact.getVersion() );
+        return new File( basedir, lrm.getPathForLocalArtifact( pom ) );
+    }
+
+    private File getCacheFile( Artifact artifact )
+    {
+        return new File( basedir, DIRECTORY + lrm.getPathForLocalArtifact( artifact ) + SUFFIX );
+    }
+
+    private String getStamp( ArtifactDescriptorRequest request )
+    {
+        StringBuilder buffer = new StringBuilder( 256 );
+        buffer.append( request.getArtifact() ).append( '|' );
+        buffer.append( request.getArtifact().getProperties() ).append( '|' );
+        buffer.append( request.getRequestContext() ).append( '|' );
+        for ( RemoteRepository repository : request.getRepositories() )
+        {
+            buffer.append( repository.getId() ).append( '=' ).append( repository.getUrl() ).append( ',' );
+        }
+        buffer.append( '|' ).append( sessionStamp );
+        return buffer.toString();
+    }
+
+    private static boolean isCacheable( ArtifactDescriptorResult result )
+    {
+        if ( !result.getExceptions().isEmpty() )
+        {
+            // a lenient result built despite missing or invalid POMs, those POMs might become available later
+            return false;
+        }
+        for ( Object value : result.getProperties().values() )
+        {
+            if ( !( value instanceof String ) && !( value instanceof Boolean ) && !( value instanceof Integer ) )
+            {
+                return false;
+            }
+        }
+        for ( RemoteRepository repository : result.getRepositories() )
+        {
+            if ( !isCacheable( repository ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCacheable( RemoteRepository repository )
+    {
+        if ( repository.getAuthentication() != null || repository.getProxy() != null )
+        {
+            return false;
+        }
+        for ( RemoteRepository mirrored : repository.getMirroredRepositories() )
+        {
+            if ( !isCacheable( mirrored ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Attributes the POMs resolved during the construction of a descriptor to the descriptor request, based on the
+     * request trace of the resolution.
+     */
+    class InputRecorder
+        extends AbstractRepositoryListener
+    {
+
+        @Override
+        public void artifactResolved( RepositoryEvent event )
+        {
+            Artifact artifact = event.getArtifact();
+            File file = event.getFile();
+            if ( artifact == null || file == null || !"pom".equals( artifact.getExtension() ) )
+            {
+                return;
+            }
+            for ( RequestTrace trace = event.getTrace(); trace != null; trace = trace.getParent() )
+            {
+                if ( trace.getData() instanceof ArtifactDescriptorRequest )
+                {
+                    addInput( (ArtifactDescriptorRequest) trace.getData(), file );
+                    break;
+                }
+            }
+        }
+
+    }
+
+    static class Encoder
+    {
+
+        private final DataOutputStream out;
+
+        private final Map<String, Integer> strings = new HashMap<String, Integer>( 64 );
+
+        public Encoder( DataOutputStream out )
+        {
+            this.out = out;
+        }
+
+        public void writeResult( ArtifactDescriptorResult result )
+            throws IOException
+        {
+            writeArtifact( result.getArtifact() );
+            writeArtifacts( result.getRelocations() );
+            writeArtifacts( result.getAliases() );
+            writeDependencies( result.getDependencies() );
+            writeDependencies( result.getManagedDependencies() );
+            writeRepositories( result.getRepositories() );
+
+            Map<String, Object> properties = result.getProperties();
+            writeInt( properties.size() );
+            for ( Map.Entry<String, Object> entry : properties.entrySet() )
+            {
+                writeString( entry.getKey() );
+                Object value = entry.getValue();
+                if ( value instanceof Boolean )
+                {
+                    out.writeByte( 'Z' );
+                    out.writeBoolean( ( (Boolean) value ).booleanValue() );
+                }
+                else if ( value instanceof Integer )
+                {
+                    out.writeByte( 'I' );
+                    out.writeInt( ( (Integer) value ).intValue() );
+                }
+                else
+                {
+                    out.writeByte( 'S' );
+                    writeString( value.toString() );
+                }
+            }
+        }
+
+        private void writeArtifacts( Collection<Artifact> artifacts )
+            throws IOException
+        {
+            writeInt( artifacts.size() );
+            for ( Artifact artifact : artifacts )
+            {
+                writeArtifact( artifact );
+            }
+        }
+
+        private void writeArtifact( Artifact artifact )
+            throws IOException
+        {
+            writeString( artifact.getGroupId() );
+            writeString( artifact.getArtifactId() );
+            writeString( artifact.getClassifier() );
+            writeString( artifact.getExtension() );
+            writeString( artifact.getVersion() );
+            writeString( ( artifact.getFile() != null ) ? artifact.getFile().getAbsolutePath() : null );
+            Map<String, String> properties = artifact.getProperties();
+            writeInt( properties.size() );
+            for ( Map.Entry<String, String> entry : properties.entrySet() )
+            {
+                writeString( entry.getKey() );
+                writeString( entry.getValue() );
+            }
+        }
+
+        private void writeDependencies( List<Dependency> dependencies )
+            throws IOException
+        {
+            writeInt( dependencies.size() );
+            for ( Dependency dependency : dependencies )
+            {
+                writeArtifact( dependency.getArtifact() );
+                writeString( dependency.getScope() );
+                out.writeBoolean( dependency.isOptional() );
+                writeInt( dependency.getExclusions().size() );
+                for ( Exclusion exclusion : dependency.getExclusions() )
+                {
+                    writeString( exclusion.getGroupId() );
+                    writeString( exclusion.getArtifactId() );
+                    writeString( exclusion.getClassifier() );
+                    writeString( exclusion.getExtension() );
+                }
+            }
+        }
+
+        private void writeRepositories( List<RemoteRepository> repositories )
+            throws IOException
+        {
+            writeInt( repositories.size() );
+            for ( RemoteRepository repository : repositories )
+            {
+                writeString( repository.getId() );
+                writeString( repository.getContentType() );
+                writeString( repository.getUrl() );
+                writePolicy( repository.getPolicy( false ) );
+                writePolicy( repository.getPolicy( true ) );
+                out.writeBoolean( repository.isRepositoryManager() );
+                writeRepositories( repository.getMirroredRepositories() );
+            }
+        }
+
+        private void writePolicy( RepositoryPolicy policy )
+            throws IOException
+        {
+            out.writeBoolean( policy.isEnabled() );
+            writeString( policy.getUpdatePolicy() );
+            writeString( policy.getChecksumPolicy() );
+        }
+
+        private void writeInt( int value )
+            throws IOException
+        {
+            // variable-length encoding, most values we write are tiny
+            while ( ( value & ~0x7F ) != 0 )
+            {
+                out.writeByte( ( value & 0x7F ) | 0x80 );
+                value >>>= 7;
+            }
+            out.writeByte( value );
+        }
+
+        private void writeString( String value )
+            throws IOException
+        {
+            if ( value == null )
+            {
+                out.writeByte( NULL );
+                return;
+            }
+            Integer index = strings.get( value );
+            if ( index != null )
+            {
+                out.writeByte( STRING_REF );
+                writeInt( index.intValue() );
+            }
+            else
+            {
+                out.writeByte( NEW_STRING );
+                out.writeUTF( value );
+                strings.put( value, Integer.valueOf( strings.size() ) );
+            }
+        }
+
+    }
+
+    static class Decoder
+    {
+
+        private final DataInputStream in;
+
+        private final List<String> strings = new ArrayList<String>( 64 );
+
+        public Decoder( DataInputStream in )
+        {
+            this.in = in;
+        }
+
+        public ArtifactDescriptorResult readResult( ArtifactDescriptorRequest request )
+            throws IOException
+        {
+            ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+            result.setArtifact( readArtifact() );
+            result.setRelocations( readArtifacts() );
+            result.setAliases( readArtifacts() );
+            result.setDependencies( readDependencies() );
+            result.setManagedDependencies( readDependencies() );
+            result.setRepositories( readRepositories() );
+
+            int count = readInt();
+            Map<String, Object> properties = new LinkedHashMap<String, Object>( count * 2 );
+            for ( int i = 0; i < count; i++ )
+            {
+                String key = readString();
+                byte type = in.readByte();
+                if ( type == 'Z' )
+                {
+                    properties.put( key, Boolean.valueOf( in.readBoolean() ) );
+                }
+                else if ( type == 'I' )
+                {
+                    properties.put( key, Integer.valueOf( in.readInt() ) );
+                }
+                else
+                {
+                    properties.put( key, readString() );
+                }
+            }
+            result.setProperties( properties );
+
+            return result;
+        }
+
+        private List<Artifact> readArtifacts()
+            throws IOException
+        {
+            int count = readInt();
+            if ( count <= 0 )
+            {
+                return Collections.emptyList();
+            }
+            List<Artifact> artifacts = new ArrayList<Artifact>( count );
+            for ( int i = 0; i < count; i++ )
+            {
+                artifacts.add( readArtifact() );
+            }
+            return artifacts;
+        }
+
+        private Artifact readArtifact()
+            throws IOException
+        {
+            String groupId = readString();
+            String artifactId = readString();
+            String classifier = readString();
+            String extension = readString();
+            String version = readString();
+            String path = readString();
+            int count = readInt();
+            Map<String, String> properties = new HashMap<String, String>( count * 2 );
+            for ( int i = 0; i < count; i++ )
+            {
+                properties.put( readString(), readString() );
+            }
+            File file = ( path != null ) ? new File( path ) : null;
+            return new DefaultArtifact( groupId, artifactId, classifier, extension, version, properties, file );
+        }
+
+        private List<Dependency> readDependencies()
+            throws IOException
+        {
+            int count = readInt();
+            if ( count <= 0 )
+            {
+                return Collections.emptyList();
+            }
+            List<Dependency> dependencies = new ArrayList<Dependency>( count );
+            for ( int i = 0; i < count; i++ )
+            {
+                Artifact artifact = readArtifact();
+                String scope = readString();
+                boolean optional = in.readBoolean();
+                int exclusionCount = readInt();
+                List<Exclusion> exclusions = new ArrayList<Exclusion>( exclusionCount );
+                for ( int j = 0; j < exclusionCount; j++ )
+                {
+                    exclusions.add( new Exclusion( readString(), readString(), readString(), readString() ) );
+                }
+                dependencies.add( new Dependency( artifact, scope, optional, exclusions ) );
+            }
+            return dependencies;
+        }
+
+        private List<RemoteRepository> readRepositories()
+            throws IOException
+        {
+            int count = readInt();
+            List<RemoteRepository> repositories = new ArrayList<RemoteRepository>( count );
+            for ( int i = 0; i < count; i++ )
+            {
+                RemoteRepository repository = new RemoteRepository( readString(), readString(), readString() );
+                repository.setPolicy( false, readPolicy() );
+                repository.setPolicy( true, readPolicy() );
+                repository.setRepositoryManager( in.readBoolean() );
+                repository.setMirroredRepositories( readRepositories() );
+                repositories.add( repository );
+            }
+            return repositories;
+        }
+
+        private RepositoryPolicy readPolicy()
+            throws IOException
+        {
+            boolean enabled = in.readBoolean();
+            return new RepositoryPolicy( enabled, readString(), readString() );
+        }
+
+        private int readInt()
+            throws IOException
+        {
+            int value = 0;
+            for ( int shift = 0; shift < 32; shift += 7 )
+            {
+                int b = in.readUnsignedByte();
+                value |= ( b & 0x7F ) << shift;
+                if ( ( b & 0x80 ) == 0 )
+                {
+                    return value;
+                }
+            }
+            throw new IOException( "Malformed integer" );
+        }
+
+        private String readString()
+            throws IOException
+        {
+            byte type = in.readByte();
+            if ( type == NULL )
+            {
+                return null;
+            }
+            else if ( type == STRING_REF )
+            {
+                return strings.get( readInt() );
+            }
+            String value = in.readUTF();
+            strings.add( value );
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A thread-safe map with a bounded number of entries that evicts its least recently used entries. Like
+ * {@link ObjectPool}, the map is split into independently locked stripes (each being a {@link LruCache}) selected by
+ * the hash code of the key such that concurrent collections of a session don't contend on a single lock. The capacity
+ * is distributed across the stripes, so the least recently used entry is determined per stripe.
+ */
+class StripedLruCache<K, V>
+{
+
+    private static final int MAX_STRIPES = 16;
+
+    private static final int MIN_STRIPE_SIZE = 256;
+
+    private final LruCache<K, V>[] stripes;
+
+    /**
+     * Creates a cache with the specified capacity.
+     *
+     * @param maxEntries The maximum number of entries, must be positive.
+     */
+    public StripedLruCache( int maxEntries )
+    {
+        if ( maxEntries <= 0 )
+        {
+            throw new IllegalArgumentException( "invalid capacity " + maxEntries );
+        }
+
+        int count = MAX_STRIPES;
+        while ( count > 1 && maxEntries / count < MIN_STRIPE_SIZE )
+        {
+            count >>= 1;
+        }
+
+        stripes = newStripes( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            stripes[i] = new LruCache<K, V>( ( maxEntries + count - 1 - i ) / count, 0 )
+            {
+
+                @Override
+                protected void evicted( K key, V value )
+                {
+                    StripedLruCache.this.evicted( key, value );
+                }
+
+            };
+        }
+    }
+
+    /**
+     * Notifies this cache that the specified entry was evicted to honor its capacity. This default implementation does
+     * nothing. The method is invoked while holding the lock of the stripe the entry belonged to.
+     *
+     * @param key The key of the evicted entry, never {@code null}.
+     * @param value The value of the evicted entry, may be {@code null}.
+     */
+    protected void evicted( K key, V value )
+    {
+        // noop
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <K, V> LruCache<K, V>[] newStripes( int count )
+    {
+        return (LruCache<K, V>[]) new LruCache<?, ?>[count];
+    }
+
+    private LruCache<K, V> getStripe( Object key )
+    {
+        int hash = key.hashCode();
+        hash ^= ( hash >>> 16 );
+        hash ^= ( hash >>> 8 );
+        return stripes[hash & ( stripes.length - 1 )];
+    }
+
+    public V get( Object key )
+    {
+        return getStripe( key ).get( key );
+    }
+
+    public boolean containsKey( Object key )
+    {
+        return getStripe( key ).containsKey( key );
+    }
+
+    public V put( K key, V value )
+    {
+        return getStripe( key ).put( key, value );
+    }
+
+    public V remove( Object key )
+    {
+        return getStripe( key ).remove( key );
+    }
+
+    /**
+     * Gets a snapshot of the keys currently held by this cache.
+     *
+     * @return The keys of the cache, never {@code null}.
+     */
+    public Collection<K> keys()
+    {
+        Collection<K> keys = new ArrayList<K>();
+        for ( LruCache<K, V> stripe : stripes )
+        {
+            keys.addAll( stripe.keys() );
+        }
+        return keys;
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for ( LruCache<K, V> stripe : stripes )
+        {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public long getHits()
+    {
+        long hits = 0;
+        for ( LruCache<K, V> stripe : stripes )
+        {
+            hits += stripe.getHits();
+        }
+        return hits;
+    }
+
+    public long getMisses()
+    {
+        long misses = 0;
+        for ( LruCache<K, V> stripe : stripes )
+        {
+            misses += stripe.getMisses();
+        }
+        return misses;
+    }
+
+    public long getEvictions()
+    {
+        long evictions = 0;
+        for ( LruCache<K, V> stripe : stripes )
+        {
+            evictions += stripe.getEvictions();
+        }
+        return evictions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions();
+    }
+
+}
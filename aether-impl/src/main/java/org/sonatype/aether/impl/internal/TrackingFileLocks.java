@@ -0,0 +1,331 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.sonatype.aether.spi.log.Logger;
+
+/**
+ * Coordinates the accesses of the threads in this JVM to the resolution tracking files. Files are mapped onto a fixed
+ * table of fair read-write locks by their canonical path, such that concurrent readers of a file do not block each
+ * other and waiting threads are queued and handed the lock in arrival order rather than polling for it. While one or
+ * more threads read a file, they share a single OS-level file lock that protects them against writers in other
+ * processes. The number of lock acquisitions, the number of acquisitions that had to wait for another thread and the
+ * accumulated wait time are recorded.
+ */
+public final class TrackingFileLocks
+{
+
+    private static final TrackingFileLocks INSTANCE = new TrackingFileLocks( 256 );
+
+    private static final int MAX_CACHED_PATHS = 16 * 1024;
+
+    private static final long MIN_BACKOFF = 1;
+
+    private static final long MAX_BACKOFF = 128;
+
+    private final ReentrantReadWriteLock[] stripes;
+
+    private final Map<String, String> paths = new ConcurrentHashMap<String, String>();
+
+    private final Map<String, SharedFileLock> sharedLocks = new HashMap<String, SharedFileLock>();
+
+    private final AtomicLong acquisitions = new AtomicLong();
+
+    private final AtomicLong contentions = new AtomicLong();
+
+    private final AtomicLong waitTime = new AtomicLong();
+
+    /**
+     * Gets the lock table shared by all tracking file managers of this JVM.
+     *
+     * @return The lock table, never {@code null}.
+     */
+    public static TrackingFileLocks getInstance()
+    {
+        return INSTANCE;
+    }
+
+    TrackingFileLocks( int stripes )
+    {
+        this.stripes = new ReentrantReadWriteLock[stripes];
+        for ( int i = 0; i < stripes; i++ )
+        {
+            this.stripes[i] = new ReentrantReadWriteLock( true );
+        }
+    }
+
+    /**
+     * Gets the key identifying the specified file, i.e. its canonical path. Canonical paths are cached to avoid the
+     * underlying file system calls on subsequent accesses.
+     */
+    String getKey( File file, Logger logger )
+    {
+        String path = file.getAbsolutePath();
+        String key = paths.get( path );
+        if ( key == null )
+        {
+            /*
+             * NOTE: Locks held by one JVM must not overlap and using the canonical path is our best bet, still another
+             * piece of code might have locked the same file (unlikely though) or the canonical path fails to capture
+             * file identity sufficiently as is the case with Java 1.6 and symlinks on Windows.
+             */
+            try
+            {
+                key = file.getCanonicalPath();
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to canonicalize path " + file + ": " + e.getMessage() );
+                key = path;
+            }
+            if ( paths.size() >= MAX_CACHED_PATHS )
+            {
+                paths.clear();
+            }
+            paths.put( path, key );
+        }
+        return key;
+    }
+
+    private ReentrantReadWriteLock getStripe( String key )
+    {
+        int hash = key.hashCode();
+        hash ^= ( hash >>> 16 );
+        return stripes[( hash & 0x7fffffff ) % stripes.length];
+    }
+
+    Lock readLock( String key )
+    {
+        return acquire( getStripe( key ).readLock() );
+    }
+
+    Lock writeLock( String key )
+    {
+        return acquire( getStripe( key ).writeLock() );
+    }
+
+    private Lock acquire( Lock lock )
+    {
+        boolean acquired;
+        try
+        {
+            // unlike tryLock(), this honors the fairness policy and doesn't barge ahead of queued threads
+            acquired = lock.tryLock( 0, TimeUnit.NANOSECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if ( acquired )
+        {
+            record( 0 );
+        }
+        else
+        {
+            long start = System.nanoTime();
+            lock.lock();
+            record( System.nanoTime() - start );
+        }
+        return lock;
+    }
+
+    private void record( long wait )
+    {
+        acquisitions.incrementAndGet();
+        if ( wait > 0 )
+        {
+            contentions.incrementAndGet();
+            waitTime.addAndGet( wait );
+        }
+    }
+
+    /**
+     * Acquires a shared OS-level lock on the specified file on behalf of the calling thread, which must hold the read
+     * lock for the file. The OS-level lock is shared with other threads of this JVM reading the same file.
+     */
+    void lockShared( String key, File file, long timeout )
+        throws IOException
+    {
+        SharedFileLock shared;
+        synchronized ( sharedLocks )
+        {
+            shared = sharedLocks.get( key );
+            if ( shared == null )
+            {
+                shared = new SharedFileLock();
+                sharedLocks.put( key, shared );
+            }
+            shared.holders++;
+        }
+
+        try
+        {
+            synchronized ( shared )
+            {
+                if ( shared.lock == null )
+                {
+                    shared.release();
+                    shared.raf = new RandomAccessFile( file, "r" );
+                    shared.lock = lock( shared.raf.getChannel(), Math.max( 1, file.length() ), true, timeout );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            unlockShared( key );
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the calling thread's share of the OS-level lock on the specified file.
+     */
+    void unlockShared( String key )
+        throws IOException
+    {
+        synchronized ( sharedLocks )
+        {
+            SharedFileLock shared = sharedLocks.get( key );
+            if ( shared != null && --shared.holders <= 0 )
+            {
+                sharedLocks.remove( key );
+                synchronized ( shared )
+                {
+                    shared.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Acquires an OS-level lock on the specified channel. Threads of this JVM are already coordinated by the lock table
+     * such that an unavailable lock is usually held by another process. If the timeout is positive, the lock is
+     * polled with exponentially growing delays until it is acquired or the timeout elapses, otherwise this method
+     * blocks until the lock is available.
+     */
+    FileLock lock( FileChannel channel, long size, boolean shared, long timeout )
+        throws IOException
+    {
+        long deadline = ( timeout > 0 ) ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        long delay = MIN_BACKOFF;
+
+        while ( true )
+        {
+            try
+            {
+                FileLock lock = ( timeout > 0 ) ? channel.tryLock( 0, size, shared ) : channel.lock( 0, size, shared );
+                if ( lock != null )
+                {
+                    return lock;
+                }
+            }
+            catch ( OverlappingFileLockException e )
+            {
+                // held by some other code of this JVM that bypasses the lock table, treat like a foreign process
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if ( remaining <= 0 )
+            {
+                throw new IOException( "Timeout after " + timeout + " ms waiting for file lock" );
+            }
+
+            try
+            {
+                Thread.sleep( Math.min( delay, remaining ) );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException( "Interrupted while waiting for file lock" );
+            }
+            delay = Math.min( delay * 2, MAX_BACKOFF );
+        }
+    }
+
+    /**
+     * Gets the number of lock acquisitions.
+     *
+     * @return The number of lock acquisitions.
+     */
+    public long getAcquisitionCount()
+    {
+        return acquisitions.get();
+    }
+
+    /**
+     * Gets the number of lock acquisitions that had to wait for a lock held by another thread.
+     *
+     * @return The number of contended lock acquisitions.
+     */
+    public long getContentionCount()
+    {
+        return contentions.get();
+    }
+
+    /**
+     * Gets the total time threads spent waiting for locks held by other threads.
+     *
+     * @return The accumulated wait time in nanoseconds.
+     */
+    public long getWaitTime()
+    {
+        return waitTime.get();
+    }
+
+    static final class SharedFileLock
+    {
+
+        int holders;
+
+        RandomAccessFile raf;
+
+        FileLock lock;
+
+        void release()
+            throws IOException
+        {
+            try
+            {
+                if ( lock != null )
+                {
+                    lock.release();
+                }
+            }
+            finally
+            {
+                lock = null;
+                if ( raf != null )
+                {
+                    raf.close();
+                    raf = null;
+                }
+            }
+        }
+
+    }
+
+}
@@ -15,36 +15,84 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
+import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.spi.log.Logger;
 import org.sonatype.aether.spi.log.NullLogger;
+import org.sonatype.aether.util.ConfigUtils;
 
 /**
- * Manages potentially concurrent accesses to a properties file.
+ * Manages potentially concurrent accesses to a properties file. The properties read or written by this manager are
+ * kept in memory and reused for subsequent reads as long as the size and the modification timestamp of the file
+ * remain unchanged, i.e. the file is only re-read if it has been modified by another manager or process. Clients must
+ * not modify the returned properties.
  * 
  * @author Benjamin Bentmann
  */
 class TrackingFileManager
 {
 
+    private static final String CONFIG_PROP_LOCK_TIMEOUT = "aether.trackingFile.lockTimeout";
+
     private Logger logger = NullLogger.INSTANCE;
 
+    private long lockTimeout;
+
+    private final TrackingFileLocks locks = TrackingFileLocks.getInstance();
+
+    private final Map<File, CachedProperties> cache = new ConcurrentHashMap<File, CachedProperties>();
+
     public TrackingFileManager setLogger( Logger logger )
     {
         this.logger = ( logger != null ) ? logger : NullLogger.INSTANCE;
         return this;
     }
 
+    /**
+     * Sets the maximum time to wait for a tracking file locked by another process.
+     *
+     * @param lockTimeout The timeout in milliseconds, non-positive values to wait indefinitely.
+     * @return This manager for chaining, never {@code null}.
+     */
+    public TrackingFileManager setLockTimeout( long lockTimeout )
+    {
+        this.lockTimeout = lockTimeout;
+        return this;
+    }
+
+    /**
+     * Gets the configured timeout for locks held by other processes.
+     *
+     * @param session The repository system session, must not be {@code null}.
+     * @return The timeout in milliseconds, non-positive values denote no timeout.
+     */
+    static long getLockTimeout( RepositorySystemSession session )
+    {
+        return ConfigUtils.getLong( session, 0, CONFIG_PROP_LOCK_TIMEOUT );
+    }
+
     public Properties read( File file )
     {
-        synchronized ( getLock( file ) )
+        CachedProperties cached = cache.get( file );
+        if ( cached != null )
         {
-            FileLock lock = null;
+            if ( cached.isCurrent( file ) )
+            {
+                return cached.props;
+            }
+            cache.remove( file );
+        }
+
+        String key = locks.getKey( file, logger );
+        Lock lock = locks.readLock( key );
+        try
+        {
+            boolean locked = false;
             FileInputStream stream = null;
             try
             {
@@ -55,11 +103,17 @@ class TrackingFileManager
 
                 stream = new FileInputStream( file );
 
-                lock = lock( stream.getChannel(), Math.max( 1, file.length() ), true );
+                locks.lockShared( key, file, lockTimeout );
+                locked = true;
+
+                long lastModified = file.lastModified();
+                long length = stream.getChannel().size();
 
                 Properties props = new Properties();
                 props.load( stream );
 
+                cache.put( file, new CachedProperties( props, lastModified, length ) );
+
                 return props;
             }
             catch ( IOException e )
@@ -68,10 +122,17 @@ class TrackingFileManager
             }
             finally
             {
-                release( lock, file );
+                if ( locked )
+                {
+                    unlockShared( key, file );
+                }
                 close( stream, file );
             }
         }
+        finally
+        {
+            lock.unlock();
+        }
 
         return null;
     }
@@ -80,7 +141,8 @@ class TrackingFileManager
     {
         Properties props = new Properties();
 
-        synchronized ( getLock( file ) )
+        Lock lock = locks.writeLock( locks.getKey( file, logger ) );
+        try
         {
             File directory = file.getParentFile();
             if ( !directory.mkdirs() && !directory.exists() )
@@ -90,11 +152,11 @@ class TrackingFileManager
             }
 
             RandomAccessFile raf = null;
-            FileLock lock = null;
+            FileLock fileLock = null;
             try
             {
                 raf = new RandomAccessFile( file, "rw" );
-                lock = lock( raf.getChannel(), Math.max( 1, raf.length() ), false );
+                fileLock = locks.lock( raf.getChannel(), Math.max( 1, raf.length() ), false, lockTimeout );
 
                 if ( file.canRead() )
                 {
@@ -128,17 +190,24 @@ class TrackingFileManager
                 raf.seek( 0 );
                 raf.write( stream.toByteArray() );
                 raf.setLength( raf.getFilePointer() );
+
+                cache.put( file, new CachedProperties( props, file.lastModified(), raf.length() ) );
             }
             catch ( IOException e )
             {
+                cache.remove( file );
                 logger.warn( "Failed to write resolution tracking file " + file, e );
             }
             finally
             {
-                release( lock, file );
+                release( fileLock, file );
                 close( raf, file );
             }
         }
+        finally
+        {
+            lock.unlock();
+        }
 
         return props;
     }
@@ -173,59 +242,39 @@ class TrackingFileManager
         }
     }
 
-    private Object getLock( File file )
+    private void unlockShared( String key, File file )
     {
-        /*
-         * NOTE: Locks held by one JVM must not overlap and using the canonical path is our best bet, still another
-         * piece of code might have locked the same file (unlikely though) or the canonical path fails to capture file
-         * identity sufficiently as is the case with Java 1.6 and symlinks on Windows.
-         */
         try
         {
-            return file.getCanonicalPath().intern();
+            locks.unlockShared( key );
         }
         catch ( IOException e )
         {
-            logger.warn( "Failed to canonicalize path " + file + ": " + e.getMessage() );
-            return file.getAbsolutePath().intern();
+            logger.warn( "Error releasing lock for resolution tracking file " + file, e );
         }
     }
 
-    private FileLock lock( FileChannel channel, long size, boolean shared )
-        throws IOException
+    static final class CachedProperties
     {
-        FileLock lock = null;
 
-        for ( int attempts = 8; attempts >= 0; attempts-- )
+        final Properties props;
+
+        final long lastModified;
+
+        final long length;
+
+        CachedProperties( Properties props, long lastModified, long length )
         {
-            try
-            {
-                lock = channel.lock( 0, size, shared );
-                break;
-            }
-            catch ( OverlappingFileLockException e )
-            {
-                if ( attempts <= 0 )
-                {
-                    throw (IOException) new IOException().initCause( e );
-                }
-                try
-                {
-                    Thread.sleep( 50 );
-                }
-                catch ( InterruptedException e1 )
-                {
-                    Thread.currentThread().interrupt();
-                }
-            }
+            this.props = props;
+            this.lastModified = lastModified;
+            this.length = length;
         }
 
-        if ( lock == null )
+        boolean isCurrent( File file )
         {
-            throw new IOException( "Could not lock file" );
+            return file.lastModified() == lastModified && file.length() == length;
         }
 
-        return lock;
     }
 
 }
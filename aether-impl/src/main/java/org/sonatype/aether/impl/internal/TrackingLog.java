@@ -0,0 +1,731 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.spi.log.Logger;
+import org.sonatype.aether.spi.log.NullLogger;
+import org.sonatype.aether.util.ConfigUtils;
+
+/**
+ * An alternative storage for the resolution tracking files of a local repository. Instead of maintaining one small
+ * properties file per directory, all tracking data is kept in a single append-only log file in the base directory of
+ * the local repository and an in-memory index of its records. An update appends one record holding the changed
+ * properties, the log is compacted into a snapshot of the index once it mostly consists of superseded records. Each
+ * record is protected by a checksum, replaying the log stops at the first incomplete or corrupted record (as left
+ * behind by a crash) and the next update truncates the log at that position. A compaction writes the snapshot to a
+ * separate file before the log is overwritten such that an interrupted compaction can be completed by the next
+ * process that locks the log exclusively. Tracking files that are not yet recorded in the log are imported when they
+ * are first accessed. Reads are served without locking from an immutable copy of the index that is republished after
+ * every change and refreshed from the log at most once per second, so changes made by other processes become visible
+ * with that delay. The log file is only open while an operation is in progress, concurrent access by other processes
+ * is coordinated using file locks on it.
+ */
+final class TrackingLog
+{
+
+    static final String FILE_NAME = ".aether-tracking.log";
+
+    private static final String CONFIG_PROP_ENABLED = "aether.localRepository.trackingLog";
+
+    private static final int MAGIC = 0x41455452;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int RECORD_OVERHEAD = 8;
+
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private static final int MIN_RECORDS_TO_COMPACT = 256;
+
+    private static final long REFRESH_INTERVAL = 1000;
+
+    private static final Map<File, TrackingLog> INSTANCES = new HashMap<File, TrackingLog>();
+
+    private final File basedir;
+
+    private final String prefix;
+
+    private final File file;
+
+    private final File snapshotFile;
+
+    private final Logger logger;
+
+    private final Map<String, Properties> index = new HashMap<String, Properties>();
+
+    private volatile Snapshot snapshot;
+
+    private boolean modified;
+
+    private RandomAccessFile raf;
+
+    private FileChannel channel;
+
+    private long generation = -1;
+
+    private long offset;
+
+    private int records;
+
+    /**
+     * Gets the tracking log for the specified local repository if the session has been configured to use one.
+     *
+     * @param session The repository system session, must not be {@code null}.
+     * @param basedir The base directory of the local repository, may be {@code null}.
+     * @param logger The logger to use, may be {@code null}.
+     * @return The tracking log or {@code null} if the session uses the classic tracking files.
+     */
+    public static TrackingLog getInstance( RepositorySystemSession session, File basedir, Logger logger )
+    {
+        if ( basedir == null || !ConfigUtils.getBoolean( session, false, CONFIG_PROP_ENABLED ) )
+        {
+            return null;
+        }
+
+        File key = basedir.getAbsoluteFile();
+        synchronized ( INSTANCES )
+        {
+            TrackingLog log = INSTANCES.get( key );
+            if ( log == null )
+            {
+                log = new TrackingLog( key, logger );
+                INSTANCES.put( key, log );
+            }
+            return log;
+        }
+    }
+
+    TrackingLog( File basedir, Logger logger )
+    {
+        this.basedir = basedir;
+        this.prefix = basedir.getPath() + File.separator;
+        this.file = new File( basedir, FILE_NAME );
+        this.snapshotFile = new File( basedir, FILE_NAME + ".snapshot" );
+        this.logger = ( logger != null ) ? logger : NullLogger.INSTANCE;
+    }
+
+    /**
+     * Gets the log file.
+     *
+     * @return The log file, never {@code null}.
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    private String getPath( File trackingFile )
+    {
+        String path = trackingFile.getAbsolutePath();
+        if ( !path.startsWith( prefix ) || path.length() <= prefix.length() )
+        {
+            return null;
+        }
+        return path.substring( prefix.length() ).replace( File.separatorChar, '/' );
+    }
+
+    /**
+     * Reads the properties of the specified tracking file. The properties are served from the last published snapshot
+     * of the index, the log file is only consulted if the snapshot has expired.
+     *
+     * @param trackingFile The tracking file, must not be {@code null}.
+     * @param legacy The manager used to import a not yet recorded tracking file, must not be {@code null}.
+     * @return The properties or {@code null} if the tracking file is unknown. The properties must not be modified.
+     */
+    public Properties read( File trackingFile, TrackingFileManager legacy )
+    {
+        String path = getPath( trackingFile );
+        if ( path == null )
+        {
+            return legacy.read( trackingFile );
+        }
+
+        try
+        {
+            Snapshot current = snapshot;
+            if ( current == null || current.isExpired() )
+            {
+                current = refreshSnapshot();
+            }
+
+            Properties props = current.entries.get( path );
+            if ( props != null )
+            {
+                return props;
+            }
+
+            Properties imported = legacy.read( trackingFile );
+            if ( imported == null )
+            {
+                return null;
+            }
+
+            return update( path, new HashMap<String, String>(), imported );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to read resolution tracking log " + file, e );
+            return legacy.read( trackingFile );
+        }
+    }
+
+    /**
+     * Updates the properties of the specified tracking file.
+     *
+     * @param trackingFile The tracking file, must not be {@code null}.
+     * @param updates The properties to set or remove (indicated by a {@code null} value), must not be {@code null}.
+     * @param legacy The manager used to import a not yet recorded tracking file, must not be {@code null}.
+     * @return The updated properties, never {@code null}. The properties must not be modified.
+     */
+    public Properties update( File trackingFile, Map<String, String> updates, TrackingFileManager legacy )
+    {
+        String path = getPath( trackingFile );
+        if ( path == null )
+        {
+            return legacy.update( trackingFile, updates );
+        }
+
+        try
+        {
+            Snapshot current = snapshot;
+            boolean known = current != null && current.entries.containsKey( path );
+            Properties imported = known ? null : legacy.read( trackingFile );
+
+            return update( path, updates, imported );
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Failed to write resolution tracking log " + file, e );
+            return legacy.update( trackingFile, updates );
+        }
+    }
+
+    /**
+     * Deletes the specified tracking file.
+     *
+     * @param trackingFile The tracking file, must not be {@code null}.
+     */
+    public void delete( File trackingFile )
+    {
+        String path = getPath( trackingFile );
+        if ( path != null )
+        {
+            try
+            {
+                remove( path );
+            }
+            catch ( IOException e )
+            {
+                logger.warn( "Failed to write resolution tracking log " + file, e );
+            }
+        }
+
+        trackingFile.delete();
+    }
+
+    private synchronized Snapshot refreshSnapshot()
+        throws IOException
+    {
+        Snapshot current = snapshot;
+        if ( current != null && !current.isExpired() )
+        {
+            return current;
+        }
+
+        lock( true );
+        try
+        {
+            refresh();
+        }
+        finally
+        {
+            unlock();
+        }
+        return snapshot;
+    }
+
+    private synchronized Properties update( String path, Map<String, String> updates, Properties imported )
+        throws IOException
+    {
+        lock( false );
+        try
+        {
+            refresh();
+
+            Map<String, String> changes = updates;
+            if ( imported != null && !index.containsKey( path ) )
+            {
+                changes = toMap( imported );
+                changes.putAll( updates );
+            }
+
+            if ( !changes.isEmpty() )
+            {
+                append( path, changes );
+            }
+
+            if ( records >= MIN_RECORDS_TO_COMPACT && records > index.size() * 4 )
+            {
+                compact();
+            }
+        }
+        finally
+        {
+            unlock();
+        }
+
+        Properties props = index.get( path );
+        return ( props != null ) ? props : new Properties();
+    }
+
+    private synchronized void remove( String path )
+        throws IOException
+    {
+        lock( false );
+        try
+        {
+            refresh();
+            if ( index.containsKey( path ) )
+            {
+                append( path, null );
+            }
+        }
+        finally
+        {
+            unlock();
+        }
+    }
+
+    private static Map<String, String> toMap( Properties props )
+    {
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for ( Map.Entry<Object, Object> entry : props.entrySet() )
+        {
+            map.put( entry.getKey().toString(), entry.getValue().toString() );
+        }
+        return map;
+    }
+
+    /**
+     * Opens the log file and locks it. Under an exclusive lock, an interrupted compaction is completed first, a reader
+     * that finds such a leftover (or an uninitialized log) under a shared lock upgrades to the exclusive lock.
+     */
+    private void lock( boolean shared )
+        throws IOException
+    {
+        try
+        {
+            raf = new RandomAccessFile( file, "rw" );
+        }
+        catch ( FileNotFoundException e )
+        {
+            if ( !basedir.mkdirs() && !basedir.exists() )
+            {
+                throw new IOException( "Failed to create local repository " + basedir );
+            }
+            raf = new RandomAccessFile( file, "rw" );
+        }
+        channel = raf.getChannel();
+
+        try
+        {
+            FileLock lock = channel.lock( 0, Long.MAX_VALUE, shared );
+            if ( lock.isShared() && needsRecovery() )
+            {
+                lock.release();
+                lock = channel.lock();
+            }
+            if ( !lock.isShared() )
+            {
+                recover();
+            }
+        }
+        catch ( IOException e )
+        {
+            unlock();
+            throw e;
+        }
+        catch ( RuntimeException e )
+        {
+            unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Publishes the index to the readers and closes the log file, which releases its lock.
+     */
+    private void unlock()
+    {
+        publish();
+        try
+        {
+            raf.close();
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Error closing resolution tracking log " + file, e );
+        }
+        finally
+        {
+            raf = null;
+            channel = null;
+        }
+    }
+
+    private boolean needsRecovery()
+        throws IOException
+    {
+        return snapshotFile.isFile() || channel.size() < HEADER_SIZE;
+    }
+
+    private void recover()
+        throws IOException
+    {
+        if ( snapshotFile.isFile() )
+        {
+            logger.debug( "Completing interrupted compaction of resolution tracking log " + file );
+            write( ByteBuffer.wrap( readFully( snapshotFile ) ) );
+            snapshotFile.delete();
+        }
+        if ( channel.size() < HEADER_SIZE )
+        {
+            ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+            header.putInt( MAGIC ).putInt( VERSION ).putLong( 0 );
+            header.flip();
+            write( header );
+        }
+    }
+
+    private void publish()
+    {
+        Snapshot current = snapshot;
+        Map<String, Properties> entries;
+        if ( current != null && !modified )
+        {
+            entries = current.entries;
+        }
+        else
+        {
+            entries = Collections.unmodifiableMap( new HashMap<String, Properties>( index ) );
+        }
+        modified = false;
+        snapshot = new Snapshot( entries );
+    }
+
+    private static byte[] readFully( File file )
+        throws IOException
+    {
+        DataInputStream in = new DataInputStream( new FileInputStream( file ) );
+        try
+        {
+            byte[] bytes = new byte[(int) file.length()];
+            in.readFully( bytes );
+            return bytes;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private void write( ByteBuffer contents )
+        throws IOException
+    {
+        long length = contents.remaining();
+        for ( long pos = 0; contents.hasRemaining(); )
+        {
+            pos += channel.write( contents, pos );
+        }
+        channel.truncate( length );
+        channel.force( false );
+    }
+
+    private long readGeneration()
+        throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+        while ( header.hasRemaining() )
+        {
+            if ( channel.read( header, header.position() ) < 0 )
+            {
+                return -1;
+            }
+        }
+        header.flip();
+        if ( header.getInt() != MAGIC || header.getInt() != VERSION )
+        {
+            throw new IOException( "Unsupported format of resolution tracking log " + file );
+        }
+        return header.getLong();
+    }
+
+    private void refresh()
+        throws IOException
+    {
+        long gen = readGeneration();
+        long size = channel.size();
+        if ( gen != generation || size < offset )
+        {
+            index.clear();
+            modified = true;
+            records = 0;
+            offset = HEADER_SIZE;
+            generation = gen;
+        }
+
+        if ( size <= offset )
+        {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate( (int) ( size - offset ) );
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, offset + buffer.position() ) < 0 )
+            {
+                break;
+            }
+        }
+        buffer.flip();
+
+        CRC32 crc = new CRC32();
+        while ( buffer.remaining() >= RECORD_OVERHEAD )
+        {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if ( length < 0 || length > MAX_RECORD_SIZE || length > buffer.remaining() )
+            {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get( payload );
+            crc.reset();
+            crc.update( payload );
+            if ( (int) crc.getValue() != checksum )
+            {
+                buffer.position( start );
+                break;
+            }
+
+            apply( new DataInputStream( new ByteArrayInputStream( payload ) ) );
+            offset += buffer.position() - start;
+            records++;
+        }
+
+        if ( offset < size )
+        {
+            logger.debug( "Ignoring " + ( size - offset ) + " bytes of incomplete records in resolution tracking log "
+                + file );
+        }
+    }
+
+    private void apply( DataInputStream in )
+        throws IOException
+    {
+        String path = in.readUTF();
+        int count = in.readInt();
+        if ( count < 0 )
+        {
+            index.remove( path );
+            modified = true;
+            return;
+        }
+
+        Properties props = new Properties();
+        Properties current = index.get( path );
+        if ( current != null )
+        {
+            props.putAll( current );
+        }
+        for ( int i = 0; i < count; i++ )
+        {
+            String key = in.readUTF();
+            if ( in.readBoolean() )
+            {
+                props.setProperty( key, in.readUTF() );
+            }
+            else
+            {
+                props.remove( key );
+            }
+        }
+        index.put( path, props );
+        modified = true;
+    }
+
+    private void append( String path, Map<String, String> changes )
+        throws IOException
+    {
+        byte[] record = encode( path, changes );
+
+        if ( channel.size() > offset )
+        {
+            channel.truncate( offset );
+        }
+        ByteBuffer buffer = ByteBuffer.wrap( record );
+        while ( buffer.hasRemaining() )
+        {
+            channel.write( buffer, offset + buffer.position() );
+        }
+
+        apply( new DataInputStream( new ByteArrayInputStream( record, RECORD_OVERHEAD, record.length
+            - RECORD_OVERHEAD ) ) );
+        offset += record.length;
+        records++;
+    }
+
+    private static byte[] encode( String path, Map<String, String> changes )
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( 256 );
+        DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( 0 );
+        out.writeInt( 0 );
+        out.writeUTF( path );
+        if ( changes == null )
+        {
+            out.writeInt( -1 );
+        }
+        else
+        {
+            out.writeInt( changes.size() );
+            for ( Map.Entry<String, String> change : changes.entrySet() )
+            {
+                out.writeUTF( change.getKey() );
+                out.writeBoolean( change.getValue() != null );
+                if ( change.getValue() != null )
+                {
+                    out.writeUTF( change.getValue() );
+                }
+            }
+        }
+        out.close();
+
+        byte[] record = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update( record, RECORD_OVERHEAD, record.length - RECORD_OVERHEAD );
+        ByteBuffer.wrap( record ).putInt( record.length - RECORD_OVERHEAD ).putInt( (int) crc.getValue() );
+        return record;
+    }
+
+    private void compact()
+        throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream( (int) Math.min( offset, Integer.MAX_VALUE ) );
+        DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( MAGIC );
+        out.writeInt( VERSION );
+        out.writeLong( generation + 1 );
+        for ( Map.Entry<String, Properties> entry : index.entrySet() )
+        {
+            out.write( encode( entry.getKey(), toMap( entry.getValue() ) ) );
+        }
+        out.close();
+        byte[] snapshot = bytes.toByteArray();
+
+        File tmpFile = new File( basedir, FILE_NAME + ".tmp" );
+        RandomAccessFile tmp = new RandomAccessFile( tmpFile, "rw" );
+        try
+        {
+            tmp.setLength( 0 );
+            tmp.write( snapshot );
+            tmp.getFD().sync();
+        }
+        finally
+        {
+            tmp.close();
+        }
+        if ( !tmpFile.renameTo( snapshotFile ) )
+        {
+            tmpFile.delete();
+            logger.debug( "Failed to compact resolution tracking log " + file );
+            return;
+        }
+
+        logger.debug( "Compacting resolution tracking log " + file + " from " + records + " to " + index.size()
+            + " records" );
+        write( ByteBuffer.wrap( snapshot ) );
+        snapshotFile.delete();
+
+        generation++;
+        offset = snapshot.length;
+        records = index.size();
+    }
+
+    /**
+     * Discards the in-memory index and removes this log from the shared instances. The log file itself is only open
+     * while an operation is in progress, a closed log is read again on its next use.
+     */
+    public void close()
+    {
+        synchronized ( INSTANCES )
+        {
+            if ( INSTANCES.get( basedir ) == this )
+            {
+                INSTANCES.remove( basedir );
+            }
+        }
+
+        synchronized ( this )
+        {
+            index.clear();
+            snapshot = null;
+            modified = false;
+            generation = -1;
+            offset = 0;
+            records = 0;
+        }
+    }
+
+    static final class Snapshot
+    {
+
+        final Map<String, Properties> entries;
+
+        final long timestamp;
+
+        Snapshot( Map<String, Properties> entries )
+        {
+            this.entries = entries;
+            this.timestamp = System.currentTimeMillis();
+        }
+
+        boolean isExpired()
+        {
+            return System.currentTimeMillis() - timestamp > REFRESH_INTERVAL;
+        }
+
+    }
+
+}
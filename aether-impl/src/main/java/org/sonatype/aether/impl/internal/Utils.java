@@ -14,10 +14,19 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.impl.AbstractVersionResolver;
+import org.sonatype.aether.impl.BatchVersionResolver;
 import org.sonatype.aether.impl.MetadataGenerator;
 import org.sonatype.aether.impl.MetadataGeneratorFactory;
+import org.sonatype.aether.impl.VersionResolver;
 import org.sonatype.aether.metadata.Metadata;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.resolution.VersionRequest;
+import org.sonatype.aether.resolution.VersionResolutionException;
+import org.sonatype.aether.resolution.VersionResult;
 
 /**
  */
@@ -73,4 +82,47 @@ class Utils
         return result;
     }
 
+    public static BatchVersionResolver toBatchVersionResolver( final VersionResolver resolver )
+    {
+        if ( resolver instanceof BatchVersionResolver )
+        {
+            return (BatchVersionResolver) resolver;
+        }
+
+        return new AbstractVersionResolver()
+        {
+            public VersionResult resolveVersion( RepositorySystemSession session, VersionRequest request )
+                throws VersionResolutionException
+            {
+                return resolver.resolveVersion( session, request );
+            }
+        };
+    }
+
+    public static VersionResolutionException getException( VersionResult result )
+    {
+        List<Exception> exceptions = result.getExceptions();
+        for ( int i = exceptions.size() - 1; i >= 0; i-- )
+        {
+            if ( exceptions.get( i ) instanceof VersionResolutionException )
+            {
+                return (VersionResolutionException) exceptions.get( i );
+            }
+        }
+        return null;
+    }
+
+    public static VersionRangeResolutionException getException( VersionRangeResult result )
+    {
+        List<Exception> exceptions = result.getExceptions();
+        for ( int i = exceptions.size() - 1; i >= 0; i-- )
+        {
+            if ( exceptions.get( i ) instanceof VersionRangeResolutionException )
+            {
+                return (VersionRangeResolutionException) exceptions.get( i );
+            }
+        }
+        return null;
+    }
+
 }
@@ -0,0 +1,269 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.collection.CollectRequest;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.DependencyFilter;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.impl.ArtifactResolver;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
+import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.test.util.impl.StubArtifact;
+import org.sonatype.aether.util.concurrency.RunnableErrorForwarder;
+import org.sonatype.aether.util.concurrency.TransferScheduler;
+
+public class ArtifactPrefetcherTest
+{
+
+    private static Artifact newArtifact( String artifactId, String version )
+    {
+        return new StubArtifact( "gid", artifactId, "", "jar", version );
+    }
+
+    @Test
+    public void testPrefetchedResultsAreReused()
+        throws Exception
+    {
+        RecordingArtifactResolver resolver = new RecordingArtifactResolver();
+        RemoteRepository repo = new RemoteRepository( "id", "default", "file:///" );
+
+        CollectRequest collectRequest = new CollectRequest();
+        collectRequest.addRepository( repo );
+        collectRequest.addDependency( new Dependency( newArtifact( "a", "1" ), "compile" ) );
+        collectRequest.addDependency( new Dependency( newArtifact( "b", "[1,2)" ), "compile" ) );
+        collectRequest.addDependency( new Dependency( newArtifact( "c", "1" ), "compile" ) );
+        collectRequest.addDependency( new Dependency( newArtifact( "d", "1" ), "test" ) );
+        collectRequest.addManagedDependency( new Dependency( newArtifact( "c", "2" ), "compile" ) );
+
+        DependencyFilter filter = new DependencyFilter()
+        {
+            public boolean accept( DependencyNode node, List<DependencyNode> parents )
+            {
+                return !"test".equals( node.getDependency().getScope() );
+            }
+        };
+
+        ArtifactPrefetcher prefetcher =
+            new ArtifactPrefetcher( new TestRepositorySystemSession(), resolver, collectRequest, filter, null );
+        assertEquals( 1, prefetcher.getScheduled() );
+        prefetcher.start();
+
+        ArtifactRequest request1 = new ArtifactRequest( newArtifact( "a", "1" ), Arrays.asList( repo ), "" );
+        ArtifactRequest request2 = new ArtifactRequest( newArtifact( "e", "1" ), Arrays.asList( repo ), "" );
+        List<ArtifactResult> results = prefetcher.resolve( Arrays.asList( request1, request2 ) );
+
+        assertEquals( 2, results.size() );
+        assertSame( request1, results.get( 0 ).getRequest() );
+        assertNotNull( results.get( 0 ).getArtifact().getFile() );
+        assertSame( request2, results.get( 1 ).getRequest() );
+        assertNotNull( results.get( 1 ).getArtifact().getFile() );
+        assertEquals( 1, prefetcher.getHits() );
+
+        assertEquals( 2, resolver.batches.size() );
+        assertEquals( Arrays.asList( "a" ), resolver.batches.get( 0 ) );
+        assertEquals( Arrays.asList( "e" ), resolver.batches.get( 1 ) );
+    }
+
+    @Test
+    public void testPrefetchedResultsOfPrunedNodesAreDiscarded()
+        throws Exception
+    {
+        RecordingArtifactResolver resolver = new RecordingArtifactResolver();
+        RemoteRepository repo = new RemoteRepository( "id", "default", "file:///" );
+
+        CollectRequest collectRequest = new CollectRequest();
+        collectRequest.addRepository( repo );
+        collectRequest.addDependency( new Dependency( newArtifact( "a", "1" ), "compile" ) );
+
+        ArtifactPrefetcher prefetcher =
+            new ArtifactPrefetcher( new TestRepositorySystemSession(), resolver, collectRequest, null, null );
+        prefetcher.start();
+
+        ArtifactRequest request = new ArtifactRequest( newArtifact( "a", "2" ), Arrays.asList( repo ), "" );
+        List<ArtifactResult> results = prefetcher.resolve( Collections.singletonList( request ) );
+
+        assertEquals( "2", results.get( 0 ).getArtifact().getVersion() );
+        assertEquals( 0, prefetcher.getHits() );
+        assertEquals( 2, resolver.batches.size() );
+    }
+
+    @Test
+    public void testPrefetchedResultsMatchAggregatedRepositories()
+        throws Exception
+    {
+        RecordingArtifactResolver resolver = new RecordingArtifactResolver();
+        RemoteRepository repo = new RemoteRepository( "id", "default", "file:///" );
+        RemoteRepository other = new RemoteRepository( "other", "default", "file:///other" );
+
+        CollectRequest collectRequest = new CollectRequest();
+        collectRequest.addRepository( repo );
+        collectRequest.addDependency( new Dependency( newArtifact( "a", "1" ), "compile" ) );
+
+        ArtifactPrefetcher prefetcher =
+            new ArtifactPrefetcher( new TestRepositorySystemSession(), resolver, collectRequest, null, null );
+        prefetcher.start();
+
+        ArtifactRequest request = new ArtifactRequest( newArtifact( "a", "1" ), Arrays.asList( repo, other ), "" );
+        prefetcher.resolve( Collections.singletonList( request ) );
+        assertEquals( 1, prefetcher.getHits() );
+
+        prefetcher = new ArtifactPrefetcher( new TestRepositorySystemSession(), resolver, collectRequest, null, null );
+        prefetcher.start();
+
+        request = new ArtifactRequest( newArtifact( "a", "1" ), Arrays.asList( other ), "" );
+        prefetcher.resolve( Collections.singletonList( request ) );
+        assertEquals( 0, prefetcher.getHits() );
+    }
+
+    @Test
+    public void testPrefetchRunsOnGivenExecutor()
+        throws Exception
+    {
+        RecordingArtifactResolver resolver = new RecordingArtifactResolver();
+        RemoteRepository repo = new RemoteRepository( "id", "default", "file:///" );
+
+        CollectRequest collectRequest = new CollectRequest();
+        collectRequest.addRepository( repo );
+        collectRequest.addDependency( new Dependency( newArtifact( "a", "1" ), "compile" ) );
+
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        ArtifactPrefetcher prefetcher =
+            new ArtifactPrefetcher( new TestRepositorySystemSession(), resolver, collectRequest, null, null );
+        prefetcher.start( new Executor()
+        {
+            public void execute( Runnable command )
+            {
+                tasks.add( command );
+                command.run();
+            }
+        } );
+
+        assertEquals( 1, tasks.size() );
+        assertEquals( 1, resolver.batches.size() );
+        assertEquals( 1, prefetcher.close().size() );
+    }
+
+    @Test
+    public void testPrefetchRunsInBackgroundWithParallelDownloads()
+        throws Exception
+    {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( ConfigurationProperties.SHARED_TRANSFER_EXECUTOR, Boolean.TRUE );
+        config.put( ConfigurationProperties.TRANSFER_THREADS, Integer.valueOf( 2 ) );
+        final TestRepositorySystemSession session = new TestRepositorySystemSession();
+        session.setConfigProperties( config );
+
+        final CountDownLatch released = new CountDownLatch( 1 );
+        final CountDownLatch started = new CountDownLatch( 2 );
+        RecordingArtifactResolver resolver = new RecordingArtifactResolver()
+        {
+            @Override
+            public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                          Collection<? extends ArtifactRequest> requests )
+                throws ArtifactResolutionException
+            {
+                await( released );
+                Executor executor = TransferScheduler.getExecutor( session, "host", 2 );
+                RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+                for ( int i = 0; i < 2; i++ )
+                {
+                    executor.execute( errorForwarder.wrap( new Runnable()
+                    {
+                        public void run()
+                        {
+                            started.countDown();
+                            await( started );
+                        }
+                    } ) );
+                }
+                errorForwarder.await();
+                return super.resolveArtifacts( session, requests );
+            }
+        };
+        RemoteRepository repo = new RemoteRepository( "id", "default", "file:///" );
+
+        CollectRequest collectRequest = new CollectRequest();
+        collectRequest.addRepository( repo );
+        collectRequest.addDependency( new Dependency( newArtifact( "a", "1" ), "compile" ) );
+
+        ArtifactPrefetcher prefetcher = new ArtifactPrefetcher( session, resolver, collectRequest, null, null );
+        prefetcher.start();
+        released.countDown();
+
+        assertEquals( 1, prefetcher.close().size() );
+        assertEquals( 0, started.getCount() );
+    }
+
+    static void await( CountDownLatch latch )
+    {
+        try
+        {
+            assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+        }
+        catch ( InterruptedException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    static class RecordingArtifactResolver
+        implements ArtifactResolver
+    {
+
+        final List<List<String>> batches = Collections.synchronizedList( new ArrayList<List<String>>() );
+
+        public ArtifactResult resolveArtifact( RepositorySystemSession session, ArtifactRequest request )
+            throws ArtifactResolutionException
+        {
+            return resolveArtifacts( session, Collections.singleton( request ) ).get( 0 );
+        }
+
+        public List<ArtifactResult> resolveArtifacts( RepositorySystemSession session,
+                                                      Collection<? extends ArtifactRequest> requests )
+            throws ArtifactResolutionException
+        {
+            List<String> batch = new ArrayList<String>();
+            List<ArtifactResult> results = new ArrayList<ArtifactResult>();
+            for ( ArtifactRequest request : requests )
+            {
+                batch.add( request.getArtifact().getArtifactId() );
+                ArtifactResult result = new ArtifactResult( request );
+                result.setArtifact( request.getArtifact().setFile( new File( "target/dummy.jar" ) ) );
+                result.setRepository( request.getRepositories().get( 0 ) );
+                results.add( result );
+            }
+            batches.add( batch );
+            return results;
+        }
+
+    }
+
+}
@@ -0,0 +1,206 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResult;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.util.DefaultRepositoryCache;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.graph.manager.ClassicDependencyManager;
+import org.sonatype.aether.util.graph.selector.StaticDependencySelector;
+import org.sonatype.aether.util.graph.traverser.StaticDependencyTraverser;
+import org.sonatype.aether.util.version.GenericVersionScheme;
+
+public class DataPoolTest
+{
+
+    private static final String CONSTRAINT_TTL = "aether.collector.pool.constraintTtl";
+
+    private static final String SHARE_SUBGRAPHS = "aether.collector.pool.shareSubgraphs";
+
+    private TestRepositorySystemSession session;
+
+    private VersionRangeRequest request;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        session = new TestRepositorySystemSession();
+        session.setCache( new DefaultRepositoryCache() );
+
+        request = new VersionRangeRequest();
+        request.setArtifact( new DefaultArtifact( "gid:aid:jar:[1.0,2.0)" ) );
+        request.setRepositories( Arrays.asList( new RemoteRepository( "central", "default", "file:///repo" ) ) );
+    }
+
+    private VersionRangeResult newResult()
+        throws Exception
+    {
+        VersionRangeResult result = new VersionRangeResult( request );
+        result.addVersion( new GenericVersionScheme().parseVersion( "1.5" ) );
+        return result;
+    }
+
+    private void putConstraint()
+        throws Exception
+    {
+        DataPool pool = new DataPool( session );
+        pool.putConstraint( pool.toKey( request ), newResult() );
+    }
+
+    private VersionRangeResult getConstraint()
+    {
+        DataPool pool = new DataPool( session );
+        return pool.getConstraint( pool.toKey( request ), request );
+    }
+
+    @Test
+    public void testConstraintsNotSharedByDefault()
+        throws Exception
+    {
+        putConstraint();
+        assertNull( getConstraint() );
+    }
+
+    @Test
+    public void testConstraintsSharedWithinSession()
+        throws Exception
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( CONSTRAINT_TTL, 60000 ) );
+        putConstraint();
+
+        VersionRangeResult result = getConstraint();
+        assertNotNull( result );
+        assertEquals( newResult().getVersions(), result.getVersions() );
+    }
+
+    @Test
+    public void testConstraintsExpire()
+        throws Exception
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( CONSTRAINT_TTL, 1 ) );
+        putConstraint();
+        Thread.sleep( 20 );
+        assertNull( getConstraint() );
+    }
+
+    @Test
+    public void testConstraintsInvalidatedByMetadataUpdate()
+        throws Exception
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( CONSTRAINT_TTL, 60000 ) );
+        putConstraint();
+
+        DataPool.invalidateConstraints( session, "gid", "other" );
+        assertNotNull( getConstraint() );
+
+        DataPool.invalidateConstraints( session, "gid", "aid" );
+        assertNull( getConstraint() );
+    }
+
+    @Test
+    public void testConstraintsInvalidatedForWholeGroup()
+        throws Exception
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( CONSTRAINT_TTL, 60000 ) );
+        putConstraint();
+
+        DataPool.invalidateConstraints( session, "other", "" );
+        assertNotNull( getConstraint() );
+
+        DataPool.invalidateConstraints( session, "gid", "" );
+        assertNull( getConstraint() );
+    }
+
+    @Test
+    public void testEvictedConstraintsAreUnindexed()
+        throws Exception
+    {
+        DataPool.ConstraintCache cache = new DataPool.ConstraintCache( 1 );
+        Object key = new DataPool( session ).toKey( request );
+        cache.put( key, new DataPool.Constraint( newResult() ) );
+
+        request.setArtifact( new DefaultArtifact( "gid:other:jar:[1.0,2.0)" ) );
+        cache.put( new DataPool( session ).toKey( request ), new DataPool.Constraint( newResult() ) );
+        assertNull( cache.get( key ) );
+        assertEquals( 1, cache.getIndexSize() );
+    }
+
+    @Test
+    public void testSharedConstraintsAreBounded()
+        throws Exception
+    {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( CONSTRAINT_TTL, 60000 );
+        config.put( "aether.collector.pool.maxConstraints", 1 );
+        session.setConfigProperties( config );
+        putConstraint();
+
+        request.setArtifact( new DefaultArtifact( "gid:other:jar:[1.0,2.0)" ) );
+        putConstraint();
+        assertNotNull( getConstraint() );
+
+        request.setArtifact( new DefaultArtifact( "gid:aid:jar:[1.0,2.0)" ) );
+        assertNull( getConstraint() );
+    }
+
+    private Object shareNode( String constraint )
+        throws Exception
+    {
+        Artifact artifact = new DefaultArtifact( "gid:parent:jar:1" );
+        Artifact child = new DefaultArtifact( "gid:child:jar:1.5" );
+
+        GraphEdge edge = new GraphEdge( new GraphNode() );
+        edge.setDependency( new Dependency( child, "compile" ) );
+        edge.setVersionConstraint( new GenericVersionScheme().parseVersionConstraint( constraint ) );
+        GraphNode node = new GraphNode();
+        node.getOutgoingEdges().add( edge );
+
+        DataPool pool = new DataPool( session );
+        Object key =
+            pool.toKey( artifact, request.getRepositories(), new StaticDependencySelector( true ),
+                        new ClassicDependencyManager(), new StaticDependencyTraverser( true ) );
+        pool.putNode( key, node );
+        pool.shareNodes();
+        return key;
+    }
+
+    @Test
+    public void testSubgraphsWithoutRangesShared()
+        throws Exception
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( SHARE_SUBGRAPHS, Boolean.TRUE ) );
+        Object key = shareNode( "1.5" );
+        assertNotNull( new DataPool( session ).getSharedNode( key, null ) );
+    }
+
+    @Test
+    public void testSubgraphsWithRangesNotShared()
+        throws Exception
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( SHARE_SUBGRAPHS, Boolean.TRUE ) );
+        Object key = shareNode( "[1.0,2.0)" );
+        assertNull( new DataPool( session ).getSharedNode( key, null ) );
+    }
+
+}
@@ -12,17 +12,24 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.sonatype.aether.ConfigurationProperties;
 import org.sonatype.aether.RepositorySystemSession;
 import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.impl.AbstractVersionResolver;
 import org.sonatype.aether.impl.UpdateCheckManager;
 import org.sonatype.aether.impl.VersionResolver;
 import org.sonatype.aether.metadata.Metadata;
@@ -41,11 +48,14 @@ import org.sonatype.aether.repository.WorkspaceRepository;
 import org.sonatype.aether.resolution.ArtifactRequest;
 import org.sonatype.aether.resolution.ArtifactResolutionException;
 import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.resolution.ArtifactResultListener;
 import org.sonatype.aether.resolution.VersionRequest;
 import org.sonatype.aether.resolution.VersionResolutionException;
 import org.sonatype.aether.resolution.VersionResult;
 import org.sonatype.aether.spi.connector.ArtifactDownload;
 import org.sonatype.aether.spi.connector.MetadataDownload;
+import org.sonatype.aether.spi.connector.RepositoryConnector;
+import org.sonatype.aether.spi.connector.Transfer.State;
 import org.sonatype.aether.spi.log.NullLogger;
 import org.sonatype.aether.test.impl.RecordingRepositoryListener;
 import org.sonatype.aether.test.impl.RecordingRepositoryListener.EventWrapper;
@@ -58,6 +68,8 @@ import org.sonatype.aether.test.util.impl.StubArtifact;
 import org.sonatype.aether.transfer.ArtifactNotFoundException;
 import org.sonatype.aether.transfer.ArtifactTransferException;
 import org.sonatype.aether.util.artifact.ArtifactProperties;
+import org.sonatype.aether.util.concurrency.RunnableErrorForwarder;
+import org.sonatype.aether.util.concurrency.TransferScheduler;
 
 /**
  * @author Benjamin Hanzelmann
@@ -882,4 +894,302 @@ public class DefaultArtifactResolverTest
         assertEquals( artifact, resolved );
     }
 
+    @Test
+    public void testConcurrentResolutionPreservesRepositoryOrder()
+        throws Exception
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( "aether.artifactResolver.threads",
+                                                                                 "4" ) );
+        assertConcurrentResolutionPreservesRepositoryOrder();
+    }
+
+    @Test
+    public void testConcurrentResolutionOnSharedTransferScheduler()
+        throws Exception
+    {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( "aether.artifactResolver.threads", "4" );
+        config.put( ConfigurationProperties.SHARED_TRANSFER_EXECUTOR, Boolean.TRUE );
+        session.setConfigProperties( config );
+        assertConcurrentResolutionPreservesRepositoryOrder();
+    }
+
+    @Test
+    public void testConnectorDownloadsOverlapOnSharedTransferScheduler()
+        throws Exception
+    {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( "aether.artifactResolver.threads", "4" );
+        config.put( ConfigurationProperties.SHARED_TRANSFER_EXECUTOR, Boolean.TRUE );
+        session.setConfigProperties( config );
+
+        resolver.setRemoteRepositoryManager( new StubRemoteRepositoryManager()
+        {
+            @Override
+            public RepositoryConnector getRepositoryConnector( final RepositorySystemSession session,
+                                                               final RemoteRepository repository )
+            {
+                return new ParallelConnector( session, repository );
+            }
+        } );
+
+        resolver.setVersionResolver( new VersionResolver()
+        {
+            public VersionResult resolveVersion( RepositorySystemSession session, VersionRequest request )
+            {
+                return new VersionResult( request ).setVersion( request.getArtifact().getVersion() );
+            }
+        } );
+
+        RemoteRepository repo1 = new RemoteRepository( "repo1", "default", "file:///repo1" );
+        RemoteRepository repo2 = new RemoteRepository( "repo2", "default", "file:///repo2" );
+
+        List<ArtifactRequest> requests = new ArrayList<ArtifactRequest>();
+        for ( String id : Arrays.asList( "a", "b" ) )
+        {
+            requests.add( new ArtifactRequest( new StubArtifact( "gid", id, "", "ext", "ver" ),
+                                               Arrays.asList( repo1 ), "" ) );
+        }
+        for ( String id : Arrays.asList( "c", "d" ) )
+        {
+            requests.add( new ArtifactRequest( new StubArtifact( "gid", id, "", "ext", "ver" ),
+                                               Arrays.asList( repo2 ), "" ) );
+        }
+
+        List<ArtifactResult> results = resolver.resolveArtifacts( session, requests );
+        for ( ArtifactResult result : results )
+        {
+            assertNotNull( result.getArtifact().getFile() );
+        }
+    }
+
+    /**
+     * Downloads the artifacts of a batch via the shared transfer scheduler, each download waits until all downloads of
+     * the batch have started.
+     */
+    static class ParallelConnector
+        extends RecordingRepositoryConnector
+    {
+
+        private final RepositorySystemSession session;
+
+        private final RemoteRepository repository;
+
+        ParallelConnector( RepositorySystemSession session, RemoteRepository repository )
+        {
+            this.session = session;
+            this.repository = repository;
+        }
+
+        @Override
+        public void get( Collection<? extends ArtifactDownload> artifactDownloads,
+                         Collection<? extends MetadataDownload> metadataDownloads )
+        {
+            Executor executor = TransferScheduler.getExecutor( session, repository.getHost(), 4 );
+            final CountDownLatch started = new CountDownLatch( artifactDownloads.size() );
+            RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+            for ( final ArtifactDownload download : artifactDownloads )
+            {
+                executor.execute( errorForwarder.wrap( new Runnable()
+                {
+                    public void run()
+                    {
+                        started.countDown();
+                        try
+                        {
+                            assertTrue( "downloads did not overlap", started.await( 10, TimeUnit.SECONDS ) );
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            throw new IllegalStateException( e );
+                        }
+                        download( download );
+                    }
+                } ) );
+            }
+            errorForwarder.await();
+        }
+
+        synchronized void download( ArtifactDownload download )
+        {
+            super.get( Collections.singleton( download ), null );
+        }
+
+    }
+
+    private void assertConcurrentResolutionPreservesRepositoryOrder()
+        throws Exception
+    {
+        final RecordingRepositoryConnector connector1 = new RecordingRepositoryConnector()
+        {
+            @Override
+            public void get( Collection<? extends ArtifactDownload> artifactDownloads,
+                             Collection<? extends MetadataDownload> metadataDownloads )
+            {
+                super.get( artifactDownloads, metadataDownloads );
+                for ( ArtifactDownload download : artifactDownloads )
+                {
+                    if ( !"b".equals( download.getArtifact().getArtifactId() ) )
+                    {
+                        download.setException( new ArtifactNotFoundException( download.getArtifact(), null ) );
+                    }
+                }
+            }
+        };
+        final RecordingRepositoryConnector connector2 = new RecordingRepositoryConnector();
+        resolver.setRemoteRepositoryManager( new StubRemoteRepositoryManager()
+        {
+            @Override
+            public RepositoryConnector getRepositoryConnector( RepositorySystemSession session,
+                                                               RemoteRepository repository )
+            {
+                return "repo1".equals( repository.getId() ) ? connector1 : connector2;
+            }
+        } );
+
+        resolver.setVersionResolver( new VersionResolver()
+        {
+            public VersionResult resolveVersion( RepositorySystemSession session, VersionRequest request )
+            {
+                return new VersionResult( request ).setVersion( request.getArtifact().getVersion() );
+            }
+        } );
+
+        RemoteRepository repo1 = new RemoteRepository( "repo1", "default", "file:///repo1" );
+        RemoteRepository repo2 = new RemoteRepository( "repo2", "default", "file:///repo2" );
+
+        Artifact a = new StubArtifact( "gid", "a", "", "ext", "ver" );
+        Artifact b = new StubArtifact( "gid", "b", "", "ext", "ver" );
+        Artifact c = new StubArtifact( "gid", "c", "", "ext", "ver" );
+
+        List<ArtifactResult> results =
+            resolver.resolveArtifacts( session, Arrays.asList( new ArtifactRequest( a, Arrays.asList( repo1, repo2 ),
+                                                                                    "" ),
+                                                               new ArtifactRequest( b, Arrays.asList( repo1, repo2 ),
+                                                                                    "" ),
+                                                               new ArtifactRequest( c, Arrays.asList( repo2 ), "" ) ) );
+
+        assertEquals( 3, results.size() );
+        assertEquals( repo2, results.get( 0 ).getRepository() );
+        assertEquals( 1, results.get( 0 ).getExceptions().size() );
+        assertEquals( repo1, results.get( 1 ).getRepository() );
+        assertTrue( results.get( 1 ).getExceptions().isEmpty() );
+        assertEquals( repo2, results.get( 2 ).getRepository() );
+        for ( ArtifactResult result : results )
+        {
+            assertNotNull( result.getArtifact().getFile() );
+        }
+
+        connector1.setExpectGet( a, b );
+        connector1.assertSeenExpected();
+        assertFalse( connector2.getActualArtifactGetRequests().contains( b ) );
+        assertEquals( 2, connector2.getActualArtifactGetRequests().size() );
+    }
+
+    @Test
+    public void testResultListenerNotifiedOnCompletionOfTransfer()
+        throws Exception
+    {
+        final List<ArtifactResult> notified = new ArrayList<ArtifactResult>();
+        final List<Integer> notifiedBeforeTransfer = new ArrayList<Integer>();
+        RecordingRepositoryConnector connector = new RecordingRepositoryConnector()
+        {
+            @Override
+            public void get( Collection<? extends ArtifactDownload> artifactDownloads,
+                             Collection<? extends MetadataDownload> metadataDownloads )
+            {
+                for ( ArtifactDownload download : artifactDownloads )
+                {
+                    notifiedBeforeTransfer.add( notified.size() );
+                    if ( "b".equals( download.getArtifact().getArtifactId() ) )
+                    {
+                        download.setException( new ArtifactNotFoundException( download.getArtifact(), null ) );
+                        download.setState( State.DONE );
+                    }
+                    else
+                    {
+                        super.get( Collections.singleton( download ), null );
+                    }
+                }
+            }
+        };
+        remoteRepositoryManager.setConnector( connector );
+
+        RemoteRepository repo = new RemoteRepository( "id", "default", "file:///" );
+        ArtifactRequest request1 = new ArtifactRequest( new StubArtifact( "gid", "a", "", "ext", "ver" ),
+                                                        Arrays.asList( repo ), "" );
+        ArtifactRequest request2 = new ArtifactRequest( new StubArtifact( "gid", "b", "", "ext", "ver" ),
+                                                        Arrays.asList( repo ), "" );
+
+        try
+        {
+            resolver.resolveArtifacts( session, Arrays.asList( request1, request2 ), new ArtifactResultListener()
+            {
+                public void artifactResolved( ArtifactResult result )
+                {
+                    notified.add( result );
+                }
+            } );
+            fail( "expected exception" );
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            assertEquals( 2, e.getResults().size() );
+        }
+
+        assertEquals( Arrays.asList( 0, 1 ), notifiedBeforeTransfer );
+        assertEquals( 2, notified.size() );
+        assertSame( request1, notified.get( 0 ).getRequest() );
+        assertNotNull( notified.get( 0 ).getArtifact().getFile() );
+        assertSame( request2, notified.get( 1 ).getRequest() );
+        assertNull( notified.get( 1 ).getArtifact() );
+    }
+
+    @Test
+    public void testVersionsResolvedInBatch()
+        throws Exception
+    {
+        final List<Integer> batches = new ArrayList<Integer>();
+        resolver.setVersionResolver( new AbstractVersionResolver()
+        {
+            public VersionResult resolveVersion( RepositorySystemSession session, VersionRequest request )
+                throws VersionResolutionException
+            {
+                if ( "b".equals( request.getArtifact().getArtifactId() ) )
+                {
+                    throw new VersionResolutionException( new VersionResult( request ) );
+                }
+                return new VersionResult( request ).setVersion( request.getArtifact().getVersion() );
+            }
+
+            @Override
+            public List<VersionResult> resolveVersions( RepositorySystemSession session,
+                                                        Collection<? extends VersionRequest> requests )
+            {
+                batches.add( requests.size() );
+                return super.resolveVersions( session, requests );
+            }
+        } );
+
+        Artifact a = new StubArtifact( "gid", "a", "", "ext", "ver" );
+        Artifact b = new StubArtifact( "gid", "b", "", "ext", "ver" );
+        connector.setExpectGet( a );
+
+        RemoteRepository repo = new RemoteRepository( "id", "default", "file:///" );
+        try
+        {
+            resolver.resolveArtifacts( session, Arrays.asList( new ArtifactRequest( a, Arrays.asList( repo ), "" ),
+                                                               new ArtifactRequest( b, Arrays.asList( repo ), "" ) ) );
+            fail( "expected exception" );
+        }
+        catch ( ArtifactResolutionException e )
+        {
+            connector.assertSeenExpected();
+            assertNotNull( e.getResults().get( 0 ).getArtifact().getFile() );
+            assertTrue( e.getResults().get( 1 ).getExceptions().get( 0 ) instanceof VersionResolutionException );
+        }
+
+        assertEquals( Arrays.asList( 2 ), batches );
+    }
+
 }
@@ -13,7 +13,10 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,15 +32,22 @@ import org.sonatype.aether.collection.DependencyCollectionContext;
 import org.sonatype.aether.collection.DependencyCollectionException;
 import org.sonatype.aether.collection.DependencyManagement;
 import org.sonatype.aether.collection.DependencyManager;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.collection.DependencyTraverser;
 import org.sonatype.aether.graph.Dependency;
 import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.impl.AbstractVersionRangeResolver;
 import org.sonatype.aether.impl.ArtifactDescriptorReader;
 import org.sonatype.aether.repository.RemoteRepository;
 import org.sonatype.aether.resolution.ArtifactDescriptorException;
 import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
 import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.resolution.VersionRangeResolutionException;
+import org.sonatype.aether.resolution.VersionRangeResult;
 import org.sonatype.aether.test.impl.TestRepositorySystemSession;
 import org.sonatype.aether.test.util.DependencyGraphParser;
+import org.sonatype.aether.util.DefaultRepositoryCache;
 import org.sonatype.aether.util.artifact.ArtifactProperties;
 import org.sonatype.aether.util.graph.manager.ClassicDependencyManager;
 
@@ -226,6 +236,32 @@ public class DefaultDependencyCollectorTest
         assertEqualSubtree( root, result.getRoot() );
     }
 
+    @Test
+    public void testEdgeAttributesShared()
+        throws IOException, DependencyCollectionException
+    {
+        DependencyNode root = parser.parse( "expectedSubtreeComparisonResult.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        CollectResult result = collector.collectDependencies( session, request );
+
+        GraphEdge edge1 = (GraphEdge) path( result.getRoot(), 0, 1 );
+        GraphEdge edge2 = (GraphEdge) path( result.getRoot(), 1, 0 );
+        assertEquals( edge1.getDependency(), edge2.getDependency() );
+        assertSame( edge1.getAttributes(), edge2.getAttributes() );
+
+        edge1.setRequestContext( "modified" );
+        assertEquals( "modified", edge1.getRequestContext() );
+        assertEquals( "", edge2.getRequestContext() );
+
+        // updated attributes are interned as well
+        edge2.setRequestContext( "modified" );
+        assertSame( edge1.getAttributes(), edge2.getAttributes() );
+
+        GraphEdge.Attributes attributes = edge2.getAttributes();
+        edge2.setRequestContext( "modified" );
+        assertSame( attributes, edge2.getAttributes() );
+    }
+
     @Test
     public void testCyclicDependencies()
         throws Exception
@@ -382,6 +418,243 @@ public class DefaultDependencyCollectorTest
         assertEquals( "managed", dep( node, 0, 0 ).getArtifact().getProperty( ArtifactProperties.LOCAL_PATH, null ) );
     }
 
+    @Test
+    public void testConcurrentCollectionYieldsSameGraph()
+        throws Exception
+    {
+        DependencyNode root = parser.parse( "cycle-big.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        collector.setArtifactDescriptorReader( new IniArtifactDescriptorReader( "artifact-descriptions/cycle-big/" ) );
+        CollectResult serial = collector.collectDependencies( session, request );
+
+        session.setConfigProperties( Collections.<String, Object> singletonMap( "aether.collector.threads", "4" ) );
+        CollectResult concurrent = collector.collectDependencies( session, request );
+
+        assertEqualGraph( serial.getRoot(), concurrent.getRoot(), new IdentityHashMap<Object, Object>() );
+    }
+
+    @Test
+    public void testBatchVersionRangeResolutionYieldsSameGraph()
+        throws Exception
+    {
+        DependencyNode root = parser.parse( "cycle-big.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        collector.setArtifactDescriptorReader( new IniArtifactDescriptorReader( "artifact-descriptions/cycle-big/" ) );
+        CollectResult serial = collector.collectDependencies( session, request );
+
+        final StubVersionRangeResolver delegate = new StubVersionRangeResolver();
+        final int[] batches = new int[1];
+        collector.setVersionRangeResolver( new AbstractVersionRangeResolver()
+        {
+            public VersionRangeResult resolveVersionRange( RepositorySystemSession session,
+                                                           VersionRangeRequest request )
+                throws VersionRangeResolutionException
+            {
+                return delegate.resolveVersionRange( session, request );
+            }
+
+            @Override
+            public List<VersionRangeResult> resolveVersionRanges( RepositorySystemSession session,
+                                                                  Collection<? extends VersionRangeRequest> requests )
+            {
+                batches[0]++;
+                return super.resolveVersionRanges( session, requests );
+            }
+        } );
+        CollectResult batched = collector.collectDependencies( session, request );
+
+        assertEqualGraph( serial.getRoot(), batched.getRoot(), new IdentityHashMap<Object, Object>() );
+        assertTrue( batches[0] > 0 );
+    }
+
+    @Test
+    public void testConcurrentCollectionWithSaturatedPrefetchQueue()
+        throws Exception
+    {
+        DependencyNode root = parser.parse( "cycle-big.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        collector.setArtifactDescriptorReader( new IniArtifactDescriptorReader( "artifact-descriptions/cycle-big/" ) );
+        CollectResult serial = collector.collectDependencies( session, request );
+
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( "aether.collector.threads", "2" );
+        config.put( "aether.collector.prefetchQueueSize", "1" );
+        session.setConfigProperties( config );
+        CollectResult concurrent = collector.collectDependencies( session, request );
+
+        assertEqualGraph( serial.getRoot(), concurrent.getRoot(), new IdentityHashMap<Object, Object>() );
+    }
+
+    private static void assertEqualGraph( DependencyNode expected, DependencyNode actual, Map<Object, Object> visited )
+    {
+        assertEquals( expected.getDependency(), actual.getDependency() );
+
+        // children lists are shared between nodes that refer to the same (sub)graph, compare them only once
+        if ( visited.put( expected.getChildren(), actual.getChildren() ) != null )
+        {
+            return;
+        }
+
+        assertEquals( expected.getChildren().size(), actual.getChildren().size() );
+
+        for ( int i = 0; i < expected.getChildren().size(); i++ )
+        {
+            assertEqualGraph( expected.getChildren().get( i ), actual.getChildren().get( i ), visited );
+        }
+    }
+
+    @Test
+    public void testConcurrentCollectionPartialResultOnError()
+        throws IOException
+    {
+        session.setConfigProperties( Collections.<String, Object> singletonMap( "aether.collector.threads", "4" ) );
+
+        DependencyNode root = parser.parse( "expectedPartialSubtreeOnError.txt" );
+
+        Dependency dependency = root.getDependency();
+        CollectRequest request = new CollectRequest( dependency, Arrays.asList( repository ) );
+
+        try
+        {
+            collector.collectDependencies( session, request );
+            fail( "expected exception " );
+        }
+        catch ( DependencyCollectionException e )
+        {
+            CollectResult result = e.getResult();
+
+            assertEquals( 1, result.getExceptions().size() );
+            assertTrue( result.getExceptions().get( 0 ) instanceof ArtifactDescriptorException );
+
+            assertEqualSubtree( root, result.getRoot() );
+        }
+    }
+
+    /**
+     * Creates a session whose selector, manager and traverser are stable across collections such that subgraphs can
+     * be reused. The traverser counts its invocations.
+     */
+    private TestRepositorySystemSession newStableSession( final int[] traversals )
+        throws IOException
+    {
+        final DependencyTraverser traverser = new DependencyTraverser()
+        {
+            public boolean traverseDependency( Dependency dependency )
+            {
+                traversals[0]++;
+                return true;
+            }
+
+            public DependencyTraverser deriveChildTraverser( DependencyCollectionContext context )
+            {
+                return this;
+            }
+        };
+        TestRepositorySystemSession session = new TestRepositorySystemSession()
+        {
+            private final DependencySelector selector = super.getDependencySelector();
+
+            @Override
+            public DependencySelector getDependencySelector()
+            {
+                return selector;
+            }
+
+            @Override
+            public DependencyTraverser getDependencyTraverser()
+            {
+                return traverser;
+            }
+        };
+        session.setDependencyManager( new TestDependencyManager() );
+        session.setCache( new DefaultRepositoryCache() );
+        return session;
+    }
+
+    @Test
+    public void testSubgraphsSharedAcrossCollections()
+        throws Exception
+    {
+        final int[] traversals = { 0 };
+        session = newStableSession( traversals );
+        session.setConfigProperties( Collections.<String, Object> singletonMap( "aether.collector.pool.shareSubgraphs",
+                                                                               Boolean.TRUE ) );
+
+        DependencyNode root = parser.parse( "cycle-big.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        collector.setArtifactDescriptorReader( new IniArtifactDescriptorReader( "artifact-descriptions/cycle-big/" ) );
+
+        CollectResult first = collector.collectDependencies( session, request );
+        int firstTraversals = traversals[0];
+
+        traversals[0] = 0;
+        CollectResult second = collector.collectDependencies( session, request );
+        assertTrue( traversals[0] + " < " + firstTraversals, traversals[0] < firstTraversals );
+        assertEqualGraph( first.getRoot(), second.getRoot(), new IdentityHashMap<Object, Object>() );
+
+        // modifications of one graph must not leak into the graphs of later collections
+        for ( DependencyNode child : first.getRoot().getChildren() )
+        {
+            child.getChildren().clear();
+        }
+        CollectResult third = collector.collectDependencies( session, request );
+        assertEqualGraph( second.getRoot(), third.getRoot(), new IdentityHashMap<Object, Object>() );
+    }
+
+    @Test
+    public void testSharedSubgraphsBounded()
+        throws Exception
+    {
+        int[] traversals = { 0 };
+        session = newStableSession( traversals );
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( "aether.collector.pool.shareSubgraphs", Boolean.TRUE );
+        config.put( "aether.collector.pool.maxSharedSubgraphs", 1 );
+        session.setConfigProperties( config );
+
+        DependencyNode root = parser.parse( "cycle-big.txt" );
+        CollectRequest request = new CollectRequest( root.getDependency(), Arrays.asList( repository ) );
+        collector.setArtifactDescriptorReader( new IniArtifactDescriptorReader( "artifact-descriptions/cycle-big/" ) );
+
+        CollectResult first = collector.collectDependencies( session, request );
+        CollectResult second = collector.collectDependencies( session, request );
+        assertEqualGraph( first.getRoot(), second.getRoot(), new IdentityHashMap<Object, Object>() );
+    }
+
+    @Test
+    public void testIncrementalCollection()
+        throws Exception
+    {
+        int[] traversals = { 0 };
+        session = newStableSession( traversals );
+        session.setConfigProperties( Collections.<String, Object> singletonMap( "aether.collector.incremental",
+                                                                               Boolean.TRUE ) );
+
+        DependencyNode root = parser.parse( "expectedSubtreeComparisonResult.txt" );
+        List<Dependency> dependencies = new ArrayList<Dependency>();
+        for ( DependencyNode child : root.getChildren() )
+        {
+            dependencies.add( child.getDependency() );
+        }
+        CollectRequest request = new CollectRequest( dependencies, null, Arrays.asList( repository ) );
+        CollectResult previous = collector.collectDependencies( session, request );
+
+        request = new CollectRequest( dependencies.subList( 0, 1 ), null, Arrays.asList( repository ) );
+        request.setPreviousRoot( previous.getRoot() );
+        traversals[0] = 0;
+        CollectResult incremental = collector.collectDependencies( session, request );
+        int incrementalTraversals = traversals[0];
+
+        request.setPreviousRoot( null );
+        session = newStableSession( traversals );
+        traversals[0] = 0;
+        CollectResult full = collector.collectDependencies( session, request );
+
+        assertTrue( incrementalTraversals + " < " + traversals[0], incrementalTraversals < traversals[0] );
+        assertEqualSubtree( full.getRoot(), incremental.getRoot() );
+        assertEquals( 2, path( incremental.getRoot(), 0 ).getChildren().size() );
+    }
+
     /**
      * @author Benjamin Hanzelmann
      */
@@ -0,0 +1,272 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.SyncContext;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.metadata.Metadata;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.test.util.TestFileUtils;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class DefaultSyncContextFactoryTest
+{
+
+    private TestRepositorySystemSession session;
+
+    private DefaultSyncContextFactory factory;
+
+    private Collection<Artifact> artifacts;
+
+    private Collection<Metadata> metadata = Collections.emptyList();
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        session = new TestRepositorySystemSession();
+        factory = new DefaultSyncContextFactory();
+        artifacts = Collections.<Artifact> singleton( new DefaultArtifact( "gid:aid:ext:ver" ) );
+    }
+
+    @After
+    public void teardown()
+        throws Exception
+    {
+        TestFileUtils.delete( session.getLocalRepository().getBasedir() );
+    }
+
+    private void enableFileLocks( long timeout )
+        throws Exception
+    {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put( "aether.syncContext.fileLocks", Boolean.TRUE );
+        props.put( "aether.syncContext.lockTimeout", Long.valueOf( timeout ) );
+        session.setConfigProperties( props );
+    }
+
+    private Thread acquireInThread( final boolean shared, final CountDownLatch acquired, final Throwable[] error )
+    {
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                SyncContext context = factory.newInstance( session, shared );
+                try
+                {
+                    context.acquire( artifacts, metadata );
+                    acquired.countDown();
+                }
+                catch ( Throwable e )
+                {
+                    error[0] = e;
+                }
+                finally
+                {
+                    context.release();
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void testNoLockingByDefault()
+    {
+        assertTrue( factory.newInstance( session, false ) instanceof DefaultSyncContextFactory.DefaultSyncContext );
+    }
+
+    @Test
+    public void testExclusiveContextsExcludeEachOther()
+        throws Exception
+    {
+        enableFileLocks( 0 );
+
+        SyncContext context = factory.newInstance( session, false );
+        CountDownLatch acquired = new CountDownLatch( 1 );
+        Throwable[] error = new Throwable[1];
+        Thread thread;
+        try
+        {
+            context.acquire( artifacts, metadata );
+            File locksDir = new File( session.getLocalRepository().getBasedir(), FileLockSyncContext.LOCKS_DIR );
+            assertTrue( locksDir.isDirectory() );
+
+            thread = acquireInThread( false, acquired, error );
+            assertFalse( acquired.await( 200, TimeUnit.MILLISECONDS ) );
+        }
+        finally
+        {
+            context.release();
+        }
+
+        assertTrue( acquired.await( 10, TimeUnit.SECONDS ) );
+        thread.join();
+        assertNull( error[0] );
+    }
+
+    @Test
+    public void testSharedContextsDoNotBlock()
+        throws Exception
+    {
+        enableFileLocks( 0 );
+
+        SyncContext context = factory.newInstance( session, true );
+        try
+        {
+            context.acquire( artifacts, metadata );
+
+            CountDownLatch acquired = new CountDownLatch( 1 );
+            Throwable[] error = new Throwable[1];
+            Thread thread = acquireInThread( true, acquired, error );
+            assertTrue( acquired.await( 10, TimeUnit.SECONDS ) );
+            thread.join();
+            assertNull( error[0] );
+        }
+        finally
+        {
+            context.release();
+        }
+    }
+
+    @Test
+    public void testNestedContexts()
+        throws Exception
+    {
+        enableFileLocks( 0 );
+
+        SyncContext outer = factory.newInstance( session, false );
+        try
+        {
+            outer.acquire( artifacts, metadata );
+            outer.acquire( artifacts, metadata );
+
+            SyncContext inner = factory.newInstance( session, true );
+            inner.acquire( artifacts, metadata );
+            inner.release();
+
+            inner = factory.newInstance( session, false );
+            inner.acquire( artifacts, metadata );
+            inner.release();
+        }
+        finally
+        {
+            outer.release();
+        }
+
+        CountDownLatch acquired = new CountDownLatch( 1 );
+        Throwable[] error = new Throwable[1];
+        Thread thread = acquireInThread( false, acquired, error );
+        assertTrue( acquired.await( 10, TimeUnit.SECONDS ) );
+        thread.join();
+        assertNull( error[0] );
+    }
+
+    @Test
+    public void testLockFilesMirrorRepositoryLayout()
+    {
+        assertEquals( "gid/aid/1/aid-1.jar.lock", FileLockSyncContext.getLockPath( "gid/aid/1/aid-1.jar" ) );
+        assertEquals( "gid/aid/1/aid-1.jar.lock", FileLockSyncContext.getLockPath( "gid\\aid\\1\\aid-1.jar" ) );
+
+        StringBuilder name = new StringBuilder();
+        for ( int i = 0; i < 300; i++ )
+        {
+            name.append( 'x' );
+        }
+        String lockPath = FileLockSyncContext.getLockPath( "gid/aid/1/" + name );
+        assertTrue( lockPath, lockPath.startsWith( "gid/aid/1/" ) );
+        assertEquals( "gid/aid/1/".length() + 40 + ".lock".length(), lockPath.length() );
+
+        lockPath = FileLockSyncContext.getLockPath( "gid/../../aid-1.jar" );
+        assertTrue( lockPath, lockPath.indexOf( '/' ) < 0 );
+    }
+
+    @Test
+    public void testLockHeldByOtherProcess()
+        throws Exception
+    {
+        enableFileLocks( 200 );
+
+        String path = session.getLocalRepositoryManager().getPathForLocalArtifact( artifacts.iterator().next() );
+        File lockFile =
+            new File( session.getLocalRepository().getBasedir(), FileLockSyncContext.LOCKS_DIR + "/"
+                + FileLockSyncContext.getLockPath( path ) );
+        lockFile.getParentFile().mkdirs();
+
+        RandomAccessFile raf = new RandomAccessFile( lockFile, "rw" );
+        try
+        {
+            final FileLock foreign = raf.getChannel().lock();
+
+            SyncContext context = factory.newInstance( session, true );
+            try
+            {
+                context.acquire( artifacts, metadata );
+                fail( "shared lock acquired despite exclusive lock held elsewhere" );
+            }
+            catch ( IllegalStateException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().indexOf( lockFile.getName() ) >= 0 );
+            }
+
+            Thread releaser = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Thread.sleep( 100 );
+                        foreign.release();
+                    }
+                    catch ( Exception e )
+                    {
+                        throw new IllegalStateException( e );
+                    }
+                }
+            };
+            releaser.start();
+
+            enableFileLocks( 10 * 1000 );
+            context = factory.newInstance( session, false );
+            try
+            {
+                context.acquire( artifacts, metadata );
+                assertTrue( ( (FileLockSyncContext) context ).getWaitTime() >= TimeUnit.MILLISECONDS.toNanos( 50 ) );
+            }
+            finally
+            {
+                context.release();
+            }
+            releaser.join();
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.impl.ArtifactDescriptorReader;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactDescriptorException;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.VersionRangeRequest;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class DependencyPrefetcherTest
+{
+
+    private RemoteRepository central;
+
+    private RemoteRepository extra;
+
+    private RecordingDescriptorReader reader;
+
+    private DataPool pool;
+
+    private DependencyPrefetcher prefetcher;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        central = new RemoteRepository( "central", "default", "file:///central" );
+        extra = new RemoteRepository( "extra", "default", "file:///extra" );
+        reader = new RecordingDescriptorReader();
+
+        TestRepositorySystemSession session = new TestRepositorySystemSession();
+        pool = new DataPool( session );
+        prefetcher =
+            new DependencyPrefetcher( session, new StubVersionRangeResolver(), reader,
+                                      new AggregatingRepositoryManager(), pool, 2, 0, true );
+    }
+
+    @After
+    public void teardown()
+    {
+        prefetcher.close();
+        reader.release.countDown();
+    }
+
+    private void prefetchParent()
+    {
+        VersionRangeRequest rangeRequest = new VersionRangeRequest();
+        rangeRequest.setArtifact( new DefaultArtifact( "gid:parent:jar:1" ) );
+        rangeRequest.setRepositories( Arrays.asList( central ) );
+
+        ArtifactDescriptorRequest template = new ArtifactDescriptorRequest();
+        template.setRepositories( Arrays.asList( central ) );
+
+        prefetcher.prefetch( rangeRequest, template );
+    }
+
+    private Object getChildKey()
+    {
+        ArtifactDescriptorRequest request = new ArtifactDescriptorRequest();
+        request.setArtifact( new DefaultArtifact( "gid:child:jar:1" ) );
+        return pool.toKey( request );
+    }
+
+    @Test
+    public void testChildrenUseAggregatedRepositories()
+        throws Exception
+    {
+        reader.release.countDown();
+        prefetchParent();
+        assertTrue( reader.started.await( 10, TimeUnit.SECONDS ) );
+
+        ArtifactDescriptorRequest request = reader.requests.get( "child" );
+        assertEquals( Arrays.asList( central, extra ), request.getRepositories() );
+    }
+
+    @Test
+    public void testNoResultsPublishedAfterClose()
+        throws Exception
+    {
+        prefetchParent();
+        assertTrue( reader.started.await( 10, TimeUnit.SECONDS ) );
+
+        prefetcher.close();
+        reader.release.countDown();
+        Thread.sleep( 200 );
+
+        assertNull( pool.getDescriptor( getChildKey(), new ArtifactDescriptorRequest() ) );
+    }
+
+    class RecordingDescriptorReader
+        implements ArtifactDescriptorReader
+    {
+
+        final Map<String, ArtifactDescriptorRequest> requests =
+            new ConcurrentHashMap<String, ArtifactDescriptorRequest>();
+
+        final CountDownLatch started = new CountDownLatch( 1 );
+
+        final CountDownLatch release = new CountDownLatch( 1 );
+
+        public ArtifactDescriptorResult readArtifactDescriptor( RepositorySystemSession session,
+                                                                ArtifactDescriptorRequest request )
+            throws ArtifactDescriptorException
+        {
+            requests.put( request.getArtifact().getArtifactId(), request );
+
+            ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+            result.setArtifact( request.getArtifact() );
+            if ( "parent".equals( request.getArtifact().getArtifactId() ) )
+            {
+                result.addDependency( new Dependency( new DefaultArtifact( "gid:child:jar:1" ), "compile" ) );
+                result.addRepository( extra );
+                return result;
+            }
+
+            started.countDown();
+            try
+            {
+                release.await( 10, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }
+
+    }
+
+    static class AggregatingRepositoryManager
+        extends StubRemoteRepositoryManager
+    {
+
+        @Override
+        public List<RemoteRepository> aggregateRepositories( RepositorySystemSession session,
+                                                             List<RemoteRepository> dominantRepositories,
+                                                             List<RemoteRepository> recessiveRepositories,
+                                                             boolean recessiveIsRaw )
+        {
+            List<RemoteRepository> repositories = new ArrayList<RemoteRepository>( dominantRepositories );
+            repositories.addAll( recessiveRepositories );
+            return repositories;
+        }
+
+    }
+
+}
@@ -187,6 +187,34 @@ public class EnhancedLocalRepositoryManagerTest
         assertTrue( result.isAvailable() );
     }
 
+    @Test
+    public void testFindRemoteArtifactWithTrackingLog()
+        throws Exception
+    {
+        TestRepositorySystemSession session = new TestRepositorySystemSession();
+        session.setConfigProperties( Collections.<String, Object> singletonMap( "aether.localRepository.trackingLog",
+                                                                                 Boolean.TRUE ) );
+        this.session = session;
+        try
+        {
+            addRemoteArtifact( artifact );
+
+            assertTrue( new File( basedir, TrackingLog.FILE_NAME ).isFile() );
+            assertFalse( new File( artifactFile.getParentFile(), "_maven.repositories" ).exists() );
+
+            LocalArtifactRequest request =
+                new LocalArtifactRequest( artifact, Arrays.asList( repository ), testContext );
+            assertTrue( manager.find( session, request ).isAvailable() );
+
+            request = new LocalArtifactRequest( artifact, Arrays.asList( repository ), "different" );
+            assertFalse( manager.find( session, request ).isAvailable() );
+        }
+        finally
+        {
+            TrackingLog.getInstance( session, basedir, null ).close();
+        }
+    }
+
     @Test
     public void testDoNotFindDifferentContext()
         throws Exception
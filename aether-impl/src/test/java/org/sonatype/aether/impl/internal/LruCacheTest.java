@@ -0,0 +1,124 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+
+public class LruCacheTest
+{
+
+    @Test
+    public void testEvictsLeastRecentlyUsedEntry()
+    {
+        LruCache<String, String> cache = new LruCache<String, String>( 2, 0 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        assertEquals( "A", cache.get( "a" ) );
+        cache.put( "c", "C" );
+
+        assertEquals( 2, cache.size() );
+        assertEquals( "A", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( "C", cache.get( "c" ) );
+        assertEquals( 3, cache.getHits() );
+        assertEquals( 1, cache.getMisses() );
+        assertEquals( 1, cache.getEvictions() );
+    }
+
+    @Test
+    public void testEvictsByWeight()
+    {
+        LruCache<String, String> cache = new LruCache<String, String>( 0, 10 )
+        {
+
+            @Override
+            protected int weigh( String key, String value )
+            {
+                return value.length();
+            }
+
+        };
+        cache.put( "a", "aaaa" );
+        cache.put( "b", "bbbb" );
+        assertEquals( 8, cache.getWeight() );
+        cache.put( "c", "cccccc" );
+
+        assertEquals( 1, cache.getEvictions() );
+        assertEquals( 10, cache.getWeight() );
+        assertEquals( 2, cache.size() );
+
+        cache.put( "d", "dddddddddddd" );
+        assertEquals( "oversized entry must be retained", 1, cache.size() );
+        assertEquals( 12, cache.getWeight() );
+        assertEquals( 3, cache.getEvictions() );
+
+        cache.remove( "d" );
+        assertEquals( 0, cache.getWeight() );
+    }
+
+    @Test
+    public void testReplacedValueUpdatesWeight()
+    {
+        LruCache<String, String> cache = new LruCache<String, String>( 0, 0 )
+        {
+
+            @Override
+            protected int weigh( String key, String value )
+            {
+                return value.length();
+            }
+
+        };
+        cache.put( "a", "aaaa" );
+        cache.put( "a", "aa" );
+        assertEquals( 2, cache.getWeight() );
+        assertEquals( 0, cache.getEvictions() );
+    }
+
+    @Test
+    public void testReplacedValueEvictsByWeight()
+    {
+        LruCache<String, String> cache = new LruCache<String, String>( 0, 10 )
+        {
+
+            @Override
+            protected int weigh( String key, String value )
+            {
+                return value.length();
+            }
+
+        };
+        cache.put( "a", "aaaa" );
+        cache.put( "b", "bbbb" );
+        cache.put( "b", "bbbbbbbb" );
+
+        assertEquals( 1, cache.getEvictions() );
+        assertEquals( 8, cache.getWeight() );
+        assertNull( cache.get( "a" ) );
+    }
+
+    @Test
+    public void testKeysAreSnapshotInAccessOrder()
+    {
+        LruCache<String, String> cache = new LruCache<String, String>( 0, 0 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        cache.get( "a" );
+
+        Collection<String> keys = cache.keys();
+        cache.put( "c", "C" );
+        assertEquals( Arrays.asList( "b", "a" ), keys );
+    }
+
+}
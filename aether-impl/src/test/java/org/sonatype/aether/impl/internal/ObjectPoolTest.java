@@ -0,0 +1,118 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ObjectPoolTest
+{
+
+    @Test
+    public void testInternReturnsPooledInstance()
+    {
+        ObjectPool<String> pool = new ObjectPool<String>();
+        String s1 = new String( "test" );
+        String s2 = new String( "test" );
+
+        assertSame( s1, pool.intern( s1 ) );
+        assertSame( s1, pool.intern( s2 ) );
+        assertEquals( 1, pool.getHits() );
+        assertEquals( 1, pool.getMisses() );
+        assertEquals( 0, pool.getEvictions() );
+    }
+
+    @Test
+    public void testBoundedPoolEvictsLeastRecentlyUsedInstance()
+    {
+        ObjectPool<String> pool = new ObjectPool<String>( 2 );
+        String a = new String( "a" );
+        String b = new String( "b" );
+        String c = new String( "c" );
+
+        pool.intern( a );
+        pool.intern( b );
+        pool.intern( new String( "a" ) );
+        pool.intern( c );
+
+        assertSame( a, pool.intern( new String( "a" ) ) );
+        assertSame( c, pool.intern( new String( "c" ) ) );
+        String b2 = new String( "b" );
+        assertSame( b2, pool.intern( b2 ) );
+        assertEquals( 3, pool.getHits() );
+        assertEquals( 4, pool.getMisses() );
+        assertEquals( 2, pool.getEvictions() );
+    }
+
+    @Test
+    public void testConcurrentInternYieldsSingleInstance()
+        throws Exception
+    {
+        final ObjectPool<String> pool = new ObjectPool<String>();
+        final int values = 2000;
+        final String[] canonical = new String[values];
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        for ( int i = 0; i < values; i++ )
+        {
+            canonical[i] = pool.intern( "value-" + i );
+        }
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for ( int t = 0; t < 8; t++ )
+        {
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for ( int i = 0; i < values; i++ )
+                        {
+                            String pooled = pool.intern( new String( "value-" + i ) );
+                            if ( pooled != canonical[i] )
+                            {
+                                throw new AssertionError( "pool yielded different instance for value-" + i );
+                            }
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        error.compareAndSet( null, e );
+                    }
+                }
+            };
+            thread.start();
+            threads.add( thread );
+        }
+
+        start.countDown();
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        if ( error.get() != null )
+        {
+            throw new AssertionError( error.get() );
+        }
+        assertEquals( 8 * values, pool.getHits() );
+        assertEquals( values, pool.getMisses() );
+    }
+
+}
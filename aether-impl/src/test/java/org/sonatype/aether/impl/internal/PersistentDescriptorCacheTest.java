@@ -0,0 +1,237 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.RepositoryEvent.EventType;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
+import org.sonatype.aether.resolution.ArtifactDescriptorRequest;
+import org.sonatype.aether.resolution.ArtifactDescriptorResult;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.test.util.TestFileUtils;
+import org.sonatype.aether.util.DefaultRequestTrace;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+import org.sonatype.aether.util.listener.DefaultRepositoryEvent;
+
+public class PersistentDescriptorCacheTest
+{
+
+    private static final String CONFIG_KEY = "aether.collector.persistentDescriptorCache";
+
+    private TestRepositorySystemSession session;
+
+    private Artifact artifact;
+
+    private File pom;
+
+    private File parentPom;
+
+    private Map<String, String> systemProperties;
+
+    private ArtifactDescriptorRequest request;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        systemProperties = new HashMap<String, String>();
+        systemProperties.put( "java.version", "1.6" );
+        session = new TestRepositorySystemSession()
+        {
+            @Override
+            public Map<String, String> getSystemProperties()
+            {
+                return systemProperties;
+            }
+        };
+        session.setConfigProperties( Collections.<String, Object> singletonMap( CONFIG_KEY, Boolean.TRUE ) );
+
+        artifact = new DefaultArtifact( "gid:aid:jar:1.0" );
+
+        pom = writePom( new DefaultArtifact( "gid:aid:pom:1.0" ) );
+        parentPom = writePom( new DefaultArtifact( "gid:parent:pom:1.0" ) );
+
+        request = new ArtifactDescriptorRequest();
+        request.setArtifact( artifact );
+        request.setRepositories( Arrays.asList( new RemoteRepository( "central", "default", "file:///repo" ) ) );
+        request.setRequestContext( "project" );
+    }
+
+    @After
+    public void teardown()
+        throws Exception
+    {
+        TestFileUtils.delete( session.getLocalRepository().getBasedir() );
+    }
+
+    private File writePom( Artifact pomArtifact )
+        throws Exception
+    {
+        String path = session.getLocalRepositoryManager().getPathForLocalArtifact( pomArtifact );
+        File file = new File( session.getLocalRepository().getBasedir(), path );
+        TestFileUtils.write( "<project/>", file );
+        return file;
+    }
+
+    private void resolved( PersistentDescriptorCache cache, ArtifactDescriptorRequest request, File file )
+    {
+        Artifact pomArtifact = new DefaultArtifact( "gid:any:pom:1.0" ).setFile( file );
+        DefaultRepositoryEvent event =
+            new DefaultRepositoryEvent( EventType.ARTIFACT_RESOLVED, session,
+                                        DefaultRequestTrace.newChild( null, request ).newChild( new ArtifactRequest() ) );
+        event.setArtifact( pomArtifact );
+        event.setFile( file );
+        cache.new InputRecorder().artifactResolved( event );
+    }
+
+    private void put( ArtifactDescriptorResult result )
+    {
+        PersistentDescriptorCache cache = PersistentDescriptorCache.newInstance( session );
+        resolved( cache, result.getRequest(), pom );
+        resolved( cache, result.getRequest(), parentPom );
+        cache.put( result );
+    }
+
+    private ArtifactDescriptorResult newResult()
+    {
+        ArtifactDescriptorResult result = new ArtifactDescriptorResult( request );
+        result.setArtifact( artifact.setProperties( Collections.singletonMap( "type", "jar" ) ) );
+        result.addRelocation( new DefaultArtifact( "old:aid:jar:1.0" ) );
+        result.addAlias( new DefaultArtifact( "alias:aid:jar:1.0" ) );
+        result.addDependency( new Dependency( new DefaultArtifact( "gid:dep:jar:2.0" ), "compile", true,
+                                              Arrays.asList( new Exclusion( "ex", "cluded", "", "jar" ) ) ) );
+        result.addDependency( new Dependency( new DefaultArtifact( "gid:dep2:jar:[1,2)" ), "test" ) );
+        result.addManagedDependency( new Dependency( new DefaultArtifact( "gid:managed:jar:3.0" ), "runtime" ) );
+        RemoteRepository repo = new RemoteRepository( "snapshots", "default", "http://localhost/snapshots" );
+        repo.setPolicy( false, new RepositoryPolicy( false, RepositoryPolicy.UPDATE_POLICY_NEVER,
+                                                     RepositoryPolicy.CHECKSUM_POLICY_IGNORE ) );
+        result.addRepository( repo );
+        result.setProperties( Collections.<String, Object> singletonMap( "key", "value" ) );
+        return result;
+    }
+
+    @Test
+    public void testRoundTrip()
+    {
+        ArtifactDescriptorResult expected = newResult();
+        put( expected );
+
+        ArtifactDescriptorResult actual = PersistentDescriptorCache.newInstance( session ).get( request );
+
+        assertNotNull( actual );
+        assertSame( request, actual.getRequest() );
+        assertEquals( expected.getArtifact(), actual.getArtifact() );
+        assertEquals( expected.getRelocations(), actual.getRelocations() );
+        assertEquals( expected.getAliases(), actual.getAliases() );
+        assertEquals( expected.getDependencies(), actual.getDependencies() );
+        assertEquals( expected.getManagedDependencies(), actual.getManagedDependencies() );
+        assertEquals( expected.getProperties(), actual.getProperties() );
+        assertEquals( 1, actual.getRepositories().size() );
+        RemoteRepository repo = actual.getRepositories().get( 0 );
+        assertEquals( "snapshots", repo.getId() );
+        assertEquals( "http://localhost/snapshots", repo.getUrl() );
+        assertFalse( repo.getPolicy( false ).isEnabled() );
+        assertEquals( RepositoryPolicy.UPDATE_POLICY_NEVER, repo.getPolicy( false ).getUpdatePolicy() );
+        assertTrue( repo.getPolicy( true ).isEnabled() );
+    }
+
+    @Test
+    public void testInvalidatedByPomUpdate()
+        throws Exception
+    {
+        put( newResult() );
+
+        TestFileUtils.write( "<project><modelVersion>4.0.0</modelVersion></project>", pom );
+
+        assertNull( PersistentDescriptorCache.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testInvalidatedByParentPomUpdate()
+        throws Exception
+    {
+        put( newResult() );
+
+        TestFileUtils.write( "<project><modelVersion>4.0.0</modelVersion></project>", parentPom );
+
+        assertNull( PersistentDescriptorCache.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testInvalidatedByDifferentSystemProperties()
+    {
+        put( newResult() );
+
+        systemProperties.put( "java.version", "1.7" );
+
+        assertNull( PersistentDescriptorCache.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testNotCachedWithoutTracedPom()
+    {
+        PersistentDescriptorCache.newInstance( session ).put( newResult() );
+
+        assertNull( PersistentDescriptorCache.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testNotCachedWithExceptions()
+    {
+        ArtifactDescriptorResult result = newResult();
+        result.addException( new IllegalStateException( "missing parent POM" ) );
+        put( result );
+
+        assertNull( PersistentDescriptorCache.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testInvalidatedByDifferentRepositories()
+    {
+        put( newResult() );
+
+        request.setRepositories( Arrays.asList( new RemoteRepository( "other", "default", "file:///other" ) ) );
+
+        assertNull( PersistentDescriptorCache.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testSnapshotsNotCached()
+    {
+        artifact = new DefaultArtifact( "gid:aid:jar:1.0-SNAPSHOT" );
+        request.setArtifact( artifact );
+
+        put( newResult() );
+
+        assertNull( PersistentDescriptorCache.newInstance( session ).get( request ) );
+    }
+
+    @Test
+    public void testDisabledByDefault()
+    {
+        session.setConfigProperties( null );
+        assertNull( PersistentDescriptorCache.newInstance( session ) );
+    }
+
+}
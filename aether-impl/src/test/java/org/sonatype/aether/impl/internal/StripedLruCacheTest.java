@@ -0,0 +1,50 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class StripedLruCacheTest
+{
+
+    @Test
+    public void testEvictsLeastRecentlyUsedEntry()
+    {
+        StripedLruCache<String, String> cache = new StripedLruCache<String, String>( 2 );
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        assertEquals( "A", cache.get( "a" ) );
+        cache.put( "c", "C" );
+
+        assertEquals( 2, cache.size() );
+        assertEquals( "A", cache.get( "a" ) );
+        assertNull( cache.get( "b" ) );
+        assertEquals( 1, cache.getEvictions() );
+    }
+
+    @Test
+    public void testCapacityIsDistributedAcrossStripes()
+    {
+        StripedLruCache<Integer, Integer> cache = new StripedLruCache<Integer, Integer>( 4096 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            cache.put( Integer.valueOf( i ), Integer.valueOf( i ) );
+        }
+
+        assertTrue( String.valueOf( cache.size() ), cache.size() <= 4096 );
+        assertTrue( String.valueOf( cache.size() ), cache.size() > 4000 );
+        assertEquals( cache.size(), new HashSet<Integer>( cache.keys() ).size() );
+        assertEquals( Integer.valueOf( 9999 ), cache.get( Integer.valueOf( 9999 ) ) );
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.Test;
+import org.sonatype.aether.spi.log.NullLogger;
+import org.sonatype.aether.test.util.TestFileUtils;
+
+public class TrackingFileLocksTest
+{
+
+    @Test
+    public void testKeyIsCanonicalPath()
+        throws Exception
+    {
+        TrackingFileLocks locks = new TrackingFileLocks( 4 );
+        File file = TestFileUtils.createTempFile( "" );
+        File alias = new File( file.getParentFile(), "./" + file.getName() );
+
+        String key = locks.getKey( file, NullLogger.INSTANCE );
+        assertEquals( file.getCanonicalPath(), key );
+        assertEquals( key, locks.getKey( alias, NullLogger.INSTANCE ) );
+    }
+
+    @Test
+    public void testConcurrentReadersDoNotBlock()
+        throws Exception
+    {
+        final TrackingFileLocks locks = new TrackingFileLocks( 4 );
+        final File file = TestFileUtils.createTempFile( "key=value" );
+        final String key = locks.getKey( file, NullLogger.INSTANCE );
+
+        Lock lock = locks.readLock( key );
+        locks.lockShared( key, file, 0 );
+        try
+        {
+            final CountDownLatch done = new CountDownLatch( 1 );
+            final Throwable[] error = new Throwable[1];
+            Thread reader = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Lock lock = locks.readLock( key );
+                        locks.lockShared( key, file, 0 );
+                        locks.unlockShared( key );
+                        lock.unlock();
+                        done.countDown();
+                    }
+                    catch ( Throwable e )
+                    {
+                        error[0] = e;
+                    }
+                }
+            };
+            reader.start();
+            assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+            reader.join();
+            assertNull( error[0] );
+        }
+        finally
+        {
+            locks.unlockShared( key );
+            lock.unlock();
+        }
+
+        assertEquals( 2, locks.getAcquisitionCount() );
+        assertEquals( 0, locks.getContentionCount() );
+    }
+
+    @Test
+    public void testContentionIsRecorded()
+        throws Exception
+    {
+        final TrackingFileLocks locks = new TrackingFileLocks( 4 );
+        final String key = locks.getKey( TestFileUtils.createTempFile( "" ), NullLogger.INSTANCE );
+
+        Lock lock = locks.readLock( key );
+        Thread writer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                locks.writeLock( key ).unlock();
+            }
+        };
+        try
+        {
+            writer.start();
+            Thread.sleep( 100 );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        writer.join();
+
+        assertEquals( 2, locks.getAcquisitionCount() );
+        assertEquals( 1, locks.getContentionCount() );
+        assertTrue( locks.getWaitTime() > 0 );
+    }
+
+    @Test
+    public void testLockHeldElsewhereTimesOut()
+        throws Exception
+    {
+        TrackingFileLocks locks = new TrackingFileLocks( 4 );
+        File file = TestFileUtils.createTempFile( "key=value" );
+
+        RandomAccessFile holder = new RandomAccessFile( file, "rw" );
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            final FileLock foreign = holder.getChannel().lock();
+
+            long start = System.currentTimeMillis();
+            try
+            {
+                locks.lock( raf.getChannel(), 1, false, 200 );
+                fail( "lock acquired despite being held elsewhere" );
+            }
+            catch ( IOException e )
+            {
+                assertTrue( System.currentTimeMillis() - start >= 200 );
+            }
+
+            Thread releaser = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Thread.sleep( 100 );
+                        foreign.release();
+                    }
+                    catch ( Exception e )
+                    {
+                        throw new IllegalStateException( e );
+                    }
+                }
+            };
+            releaser.start();
+            locks.lock( raf.getChannel(), 1, false, 10 * 1000 ).release();
+            releaser.join();
+        }
+        finally
+        {
+            raf.close();
+            holder.close();
+        }
+    }
+
+}
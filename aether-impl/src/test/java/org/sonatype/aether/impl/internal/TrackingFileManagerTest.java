@@ -100,6 +100,39 @@ public class TrackingFileManagerTest
         }
     }
 
+    @Test
+    public void testReadCachedUntilModified()
+        throws Exception
+    {
+        TrackingFileManager tfm = new TrackingFileManager();
+
+        File propFile = TestFileUtils.createTempFile( "key1=value1\n" );
+        Properties props = tfm.read( propFile );
+        assertSame( props, tfm.read( propFile ) );
+
+        TestFileUtils.write( "key1=value1\nkey2=value2\n", propFile );
+        props = tfm.read( propFile );
+        assertEquals( String.valueOf( props ), 2, props.size() );
+        assertSame( props, tfm.read( propFile ) );
+    }
+
+    @Test
+    public void testUpdateWritesThroughCache()
+        throws Exception
+    {
+        TrackingFileManager tfm = new TrackingFileManager();
+
+        File propFile = TestFileUtils.createTempFile( "key1=value1\n" );
+        assertEquals( 1, tfm.read( propFile ).size() );
+
+        Map<String, String> updates = new HashMap<String, String>();
+        updates.put( "key2", "value2" );
+        Properties props = tfm.update( propFile, updates );
+
+        assertSame( props, tfm.read( propFile ) );
+        assertEquals( String.valueOf( props ), 2, props.size() );
+    }
+
     @Test
     public void testLockingOnCanonicalPath()
         throws Exception
@@ -0,0 +1,250 @@
+package org.sonatype.aether.impl.internal;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+import org.sonatype.aether.test.util.TestFileUtils;
+
+public class TrackingLogTest
+{
+
+    private File basedir;
+
+    private TrackingFileManager legacy;
+
+    private TrackingLog log;
+
+    @Before
+    public void setup()
+        throws Exception
+    {
+        basedir = TestFileUtils.createTempDir();
+        legacy = new TrackingFileManager();
+        log = new TrackingLog( basedir, null );
+    }
+
+    @After
+    public void teardown()
+        throws Exception
+    {
+        log.close();
+        TestFileUtils.delete( basedir );
+    }
+
+    private File newTrackingFile( String path )
+    {
+        return new File( basedir, path );
+    }
+
+    private static Map<String, String> updates( String key, String value )
+    {
+        Map<String, String> updates = new HashMap<String, String>();
+        updates.put( key, value );
+        return updates;
+    }
+
+    @Test
+    public void testUpdateAndRead()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/_maven.repositories" );
+        assertNull( log.read( file, legacy ) );
+
+        log.update( file, updates( "key1", "value1" ), legacy );
+        log.update( file, updates( "key2", "value2" ), legacy );
+        Properties props = log.update( file, updates( "key1", null ), legacy );
+        assertEquals( Collections.singletonMap( "key2", "value2" ), props );
+        assertFalse( file.exists() );
+
+        log.close();
+        log = new TrackingLog( basedir, null );
+        assertEquals( props, log.read( file, legacy ) );
+    }
+
+    @Test
+    public void testLazyImportOfTrackingFiles()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/_maven.repositories" );
+        file.getParentFile().mkdirs();
+        TestFileUtils.write( "key1=value1\n", file );
+
+        Properties props = log.update( file, updates( "key2", "value2" ), legacy );
+        assertEquals( 2, props.size() );
+        assertEquals( "value1", props.get( "key1" ) );
+
+        File other = newTrackingFile( "gid/aid/2/_maven.repositories" );
+        other.getParentFile().mkdirs();
+        TestFileUtils.write( "key3=value3\n", other );
+        assertEquals( "value3", log.read( other, legacy ).get( "key3" ) );
+
+        TestFileUtils.write( "key3=changed\n", other );
+        assertEquals( "value3", log.read( other, legacy ).get( "key3" ) );
+    }
+
+    @Test
+    public void testDelete()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/aid-1.jar.lastUpdated" );
+        log.update( file, updates( "key", "value" ), legacy );
+        log.delete( file );
+        assertNull( log.read( file, legacy ) );
+
+        log.close();
+        log = new TrackingLog( basedir, null );
+        assertNull( log.read( file, legacy ) );
+    }
+
+    @Test
+    public void testCorruptedTailIsDiscarded()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/_maven.repositories" );
+        log.update( file, updates( "key1", "value1" ), legacy );
+        log.close();
+
+        File logFile = new File( basedir, TrackingLog.FILE_NAME );
+        long length = logFile.length();
+        RandomAccessFile raf = new RandomAccessFile( logFile, "rw" );
+        try
+        {
+            raf.seek( length );
+            raf.writeInt( 64 );
+            raf.writeInt( 0 );
+            raf.write( new byte[12] );
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        log = new TrackingLog( basedir, null );
+        assertEquals( "value1", log.read( file, legacy ).get( "key1" ) );
+
+        log.update( file, updates( "key2", "value2" ), legacy );
+        log.close();
+
+        log = new TrackingLog( basedir, null );
+        Properties props = log.read( file, legacy );
+        assertEquals( 2, props.size() );
+    }
+
+    @Test
+    public void testCompaction()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/_maven.repositories" );
+        File logFile = new File( basedir, TrackingLog.FILE_NAME );
+
+        long maxLength = 0;
+        for ( int i = 0; i < 1000; i++ )
+        {
+            log.update( file, updates( "key", "value" + i ), legacy );
+            maxLength = Math.max( maxLength, logFile.length() );
+        }
+        assertTrue( logFile.length() < maxLength );
+        assertFalse( new File( basedir, TrackingLog.FILE_NAME + ".snapshot" ).exists() );
+
+        TrackingLog other = new TrackingLog( basedir, null );
+        try
+        {
+            assertEquals( "value999", other.read( file, legacy ).get( "key" ) );
+        }
+        finally
+        {
+            other.close();
+        }
+    }
+
+    @Test
+    public void testInterruptedCompactionIsCompleted()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/_maven.repositories" );
+        log.update( file, updates( "key", "value" ), legacy );
+        log.close();
+
+        File logFile = new File( basedir, TrackingLog.FILE_NAME );
+        File snapshotFile = new File( basedir, TrackingLog.FILE_NAME + ".snapshot" );
+        TestFileUtils.copy( logFile, snapshotFile );
+        TestFileUtils.write( "garbage", logFile );
+
+        log = new TrackingLog( basedir, null );
+        assertEquals( "value", log.read( file, legacy ).get( "key" ) );
+        assertFalse( snapshotFile.exists() );
+    }
+
+    @Test
+    public void testReadsAreServedFromSnapshot()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/_maven.repositories" );
+        log.update( file, updates( "key", "value" ), legacy );
+
+        File logFile = new File( basedir, TrackingLog.FILE_NAME );
+        assertTrue( logFile.delete() );
+
+        assertEquals( "value", log.read( file, legacy ).get( "key" ) );
+    }
+
+    @Test
+    public void testInterruptedCompactionIsCompletedOnUpdate()
+        throws Exception
+    {
+        File file = newTrackingFile( "gid/aid/1/_maven.repositories" );
+        log.update( file, updates( "key", "value" ), legacy );
+
+        File logFile = new File( basedir, TrackingLog.FILE_NAME );
+        File snapshotFile = new File( basedir, TrackingLog.FILE_NAME + ".snapshot" );
+        TestFileUtils.copy( logFile, snapshotFile );
+        TestFileUtils.write( "garbage", logFile );
+
+        File other = newTrackingFile( "gid/aid/2/_maven.repositories" );
+        log.update( other, updates( "key", "other" ), legacy );
+        assertFalse( snapshotFile.exists() );
+        assertEquals( "value", log.read( file, legacy ).get( "key" ) );
+
+        log.close();
+        log = new TrackingLog( basedir, null );
+        assertEquals( "value", log.read( file, legacy ).get( "key" ) );
+        assertEquals( "other", log.read( other, legacy ).get( "key" ) );
+    }
+
+    @Test
+    public void testCloseReleasesSharedInstance()
+        throws Exception
+    {
+        TestRepositorySystemSession session = new TestRepositorySystemSession();
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( "aether.localRepository.trackingLog", "true" );
+        session.setConfigProperties( config );
+
+        TrackingLog shared = TrackingLog.getInstance( session, basedir, null );
+        assertSame( shared, TrackingLog.getInstance( session, basedir, null ) );
+
+        shared.close();
+        TrackingLog reopened = TrackingLog.getInstance( session, basedir, null );
+        assertNotSame( shared, reopened );
+        reopened.close();
+    }
+
+}
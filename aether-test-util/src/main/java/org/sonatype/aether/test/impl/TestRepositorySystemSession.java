@@ -69,6 +69,8 @@ public class TestRepositorySystemSession
 
     private MirrorSelector mirrorSelector;
 
+    private RepositoryCache cache;
+
     public TestRepositorySystemSession()
         throws IOException
     {
@@ -281,7 +283,12 @@ public class TestRepositorySystemSession
 
     public RepositoryCache getCache()
     {
-        return null;
+        return cache;
+    }
+
+    public void setCache( RepositoryCache cache )
+    {
+        this.cache = cache;
     }
 
     public void setRepositoryListener( RepositoryListener repositoryListener )
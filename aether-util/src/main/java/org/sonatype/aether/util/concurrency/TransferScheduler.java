@@ -0,0 +1,449 @@
+package org.sonatype.aether.util.concurrency;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.util.ConfigUtils;
+
+/**
+ * A scheduler for transfer tasks that is shared by all repository connectors and resolvers of the running system.
+ * Instead of creating a thread pool per call or per connector, components obtain a lightweight executor from the
+ * scheduler whose tasks are run by a common set of reusable worker threads. The number of concurrently running tasks
+ * is bounded globally ({@link ConfigurationProperties#TRANSFER_THREADS}), per host
+ * ({@link ConfigurationProperties#TRANSFER_THREADS_PER_HOST}) and per executor. Pending tasks are queued per executor,
+ * the executors with pending tasks are grouped by session and the sessions are served in a round-robin fashion so that
+ * a session submitting many tasks cannot starve other sessions.
+ * <p>
+ * A task that is submitted from within a task already running on the scheduler, e.g. the downloads of a repository
+ * connector invoked by a resolution task, is not queued since the enclosing task might hold the very slots the nested
+ * task waits for. Instead, it is started on a worker thread right away if its executor and its host have a free slot.
+ * Such nested tasks are not subject to the global limit, their parent already occupies a slot. Once the limit of the
+ * executor or the host is reached, the nested task is run by the submitting thread (caller-runs). A submitting thread
+ * that holds no slot of the task's host first waits for a free host slot, a thread that already transfers from some
+ * host takes the slot without waiting to avoid a deadlock between tasks holding slots of different hosts.
+ *
+ * @see #getExecutor(RepositorySystemSession, String, int)
+ */
+public final class TransferScheduler
+{
+
+    private static final TransferScheduler INSTANCE = new TransferScheduler();
+
+    private final ThreadPoolExecutor workers;
+
+    private final ThreadLocal<Channel> running = new ThreadLocal<Channel>();
+
+    private final Map<Object, SessionQueue> queues = new IdentityHashMap<Object, SessionQueue>();
+
+    private final LinkedList<SessionQueue> rotation = new LinkedList<SessionQueue>();
+
+    private final Map<String, Integer> hosts = new HashMap<String, Integer>();
+
+    private int active;
+
+    private int queued;
+
+    /**
+     * Gets the scheduler shared by all components of the running system.
+     *
+     * @return The shared transfer scheduler, never {@code null}.
+     */
+    public static TransferScheduler getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets an executor backed by the shared transfer scheduler if the specified session has been configured to use it
+     * via {@link ConfigurationProperties#SHARED_TRANSFER_EXECUTOR}.
+     *
+     * @param session The repository system session whose tasks will be executed, must not be {@code null}.
+     * @param host The host to which the tasks will transfer data, may be {@code null} or empty if the tasks aren't
+     *            subject to a per-host limit.
+     * @param threads The maximum number of tasks of the executor that may run concurrently.
+     * @return The executor or {@code null} if the session doesn't use the shared transfer scheduler.
+     */
+    public static Executor getExecutor( RepositorySystemSession session, String host, int threads )
+    {
+        if ( !ConfigUtils.getBoolean( session, ConfigurationProperties.DEFAULT_SHARED_TRANSFER_EXECUTOR,
+                                      ConfigurationProperties.SHARED_TRANSFER_EXECUTOR ) )
+        {
+            return null;
+        }
+        return INSTANCE.newExecutor( session, host, threads );
+    }
+
+    TransferScheduler()
+    {
+        workers =
+            new ThreadPoolExecutor( 0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                                    new WorkerThreadFactory() );
+    }
+
+    /**
+     * Creates a new executor whose tasks are run by this scheduler. The executor needs not be shut down.
+     *
+     * @param session The repository system session whose tasks will be executed, must not be {@code null}.
+     * @param host The host to which the tasks will transfer data, may be {@code null} or empty if the tasks aren't
+     *            subject to a per-host limit.
+     * @param threads The maximum number of tasks of the executor that may run concurrently.
+     * @return The executor, never {@code null}.
+     */
+    public Executor newExecutor( RepositorySystemSession session, String host, int threads )
+    {
+        if ( session == null )
+        {
+            throw new IllegalArgumentException( "session missing" );
+        }
+
+        int total =
+            ConfigUtils.getInteger( session, ConfigurationProperties.DEFAULT_TRANSFER_THREADS,
+                                    ConfigurationProperties.TRANSFER_THREADS );
+        int perHost =
+            ConfigUtils.getInteger( session, ConfigurationProperties.DEFAULT_TRANSFER_THREADS_PER_HOST,
+                                    ConfigurationProperties.TRANSFER_THREADS_PER_HOST );
+
+        return new Channel( session, ( host != null && host.length() > 0 ) ? host : null, Math.max( 1, threads ),
+                            Math.max( 1, perHost ), Math.max( 1, total ) );
+    }
+
+    /**
+     * Gets the number of tasks that are currently running on worker threads of this scheduler, excluding nested tasks
+     * that are executed by the submitting thread.
+     *
+     * @return The number of running tasks.
+     */
+    public synchronized int getActiveCount()
+    {
+        return active;
+    }
+
+    /**
+     * Gets the number of tasks that wait for execution.
+     *
+     * @return The number of queued tasks.
+     */
+    public synchronized int getQueuedCount()
+    {
+        return queued;
+    }
+
+    void submit( Channel channel, Runnable command )
+    {
+        Channel current = running.get();
+        if ( current != null )
+        {
+            submitNested( current, channel, command );
+            return;
+        }
+
+        synchronized ( this )
+        {
+            SessionQueue queue = queues.get( channel.session );
+            if ( queue == null )
+            {
+                queue = new SessionQueue( channel.session );
+                queues.put( channel.session, queue );
+                rotation.addLast( queue );
+            }
+            queue.add( channel, command );
+            queued++;
+
+            dispatch();
+        }
+    }
+
+    private void submitNested( Channel current, Channel channel, Runnable command )
+    {
+        synchronized ( this )
+        {
+            if ( channel.active < channel.threads && isHostAvailable( channel ) )
+            {
+                start( new Task( channel, command ) );
+                return;
+            }
+        }
+
+        runInline( current, channel, command );
+    }
+
+    private void runInline( Channel current, Channel channel, Runnable command )
+    {
+        if ( channel.host == null || channel.host.equals( current.host ) )
+        {
+            command.run();
+            return;
+        }
+
+        acquireHost( channel.host, channel.perHost, current.host == null );
+        running.set( channel );
+        try
+        {
+            command.run();
+        }
+        finally
+        {
+            running.set( current );
+            releaseHost( channel.host );
+        }
+    }
+
+    private synchronized void acquireHost( String host, int perHost, boolean wait )
+    {
+        boolean interrupted = false;
+        while ( wait && getHostCount( host ) >= perHost )
+        {
+            try
+            {
+                wait();
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+            }
+        }
+        hosts.put( host, Integer.valueOf( getHostCount( host ) + 1 ) );
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void releaseHost( String host )
+    {
+        decrementHostCount( host );
+        dispatch();
+    }
+
+    private void decrementHostCount( String host )
+    {
+        int count = getHostCount( host ) - 1;
+        if ( count > 0 )
+        {
+            hosts.put( host, Integer.valueOf( count ) );
+        }
+        else
+        {
+            hosts.remove( host );
+        }
+        notifyAll();
+    }
+
+    private void start( Task task )
+    {
+        active++;
+        task.channel.active++;
+        if ( task.channel.host != null )
+        {
+            hosts.put( task.channel.host, Integer.valueOf( getHostCount( task.channel.host ) + 1 ) );
+        }
+
+        workers.execute( task );
+    }
+
+    private void dispatch()
+    {
+        for ( Task task = poll(); task != null; task = poll() )
+        {
+            queued--;
+            start( task );
+        }
+    }
+
+    private Task poll()
+    {
+        for ( int i = rotation.size(); i > 0; i-- )
+        {
+            SessionQueue queue = rotation.removeFirst();
+            Task task = queue.poll();
+            if ( queue.channels.isEmpty() )
+            {
+                queues.remove( queue.session );
+            }
+            else
+            {
+                rotation.addLast( queue );
+            }
+            if ( task != null )
+            {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean isEligible( Channel channel )
+    {
+        return active < channel.total && channel.active < channel.threads && isHostAvailable( channel );
+    }
+
+    private boolean isHostAvailable( Channel channel )
+    {
+        return channel.host == null || getHostCount( channel.host ) < channel.perHost;
+    }
+
+    private int getHostCount( String host )
+    {
+        Integer count = hosts.get( host );
+        return ( count != null ) ? count.intValue() : 0;
+    }
+
+    synchronized void completed( Task task )
+    {
+        active--;
+        task.channel.active--;
+        if ( task.channel.host != null )
+        {
+            decrementHostCount( task.channel.host );
+        }
+
+        dispatch();
+    }
+
+    class Channel
+        implements Executor
+    {
+
+        final Object session;
+
+        final String host;
+
+        final int threads;
+
+        final int perHost;
+
+        final int total;
+
+        final LinkedList<Runnable> pending = new LinkedList<Runnable>();
+
+        int active;
+
+        Channel( Object session, String host, int threads, int perHost, int total )
+        {
+            this.session = session;
+            this.host = host;
+            this.threads = threads;
+            this.perHost = perHost;
+            this.total = total;
+        }
+
+        public void execute( Runnable command )
+        {
+            if ( command == null )
+            {
+                throw new IllegalArgumentException( "command missing" );
+            }
+            submit( this, command );
+        }
+
+    }
+
+    class SessionQueue
+    {
+
+        final Object session;
+
+        /**
+         * The executors of the session with pending tasks, each holding its tasks in submission order.
+         */
+        final LinkedList<Channel> channels = new LinkedList<Channel>();
+
+        SessionQueue( Object session )
+        {
+            this.session = session;
+        }
+
+        void add( Channel channel, Runnable command )
+        {
+            if ( channel.pending.isEmpty() )
+            {
+                channels.addLast( channel );
+            }
+            channel.pending.addLast( command );
+        }
+
+        Task poll()
+        {
+            for ( Iterator<Channel> it = channels.iterator(); it.hasNext(); )
+            {
+                Channel channel = it.next();
+                if ( isEligible( channel ) )
+                {
+                    Runnable command = channel.pending.removeFirst();
+                    if ( channel.pending.isEmpty() )
+                    {
+                        it.remove();
+                    }
+                    return new Task( channel, command );
+                }
+            }
+            return null;
+        }
+
+    }
+
+    class Task
+        implements Runnable
+    {
+
+        final Channel channel;
+
+        final Runnable command;
+
+        Task( Channel channel, Runnable command )
+        {
+            this.channel = channel;
+            this.command = command;
+        }
+
+        public void run()
+        {
+            running.set( channel );
+            try
+            {
+                command.run();
+            }
+            finally
+            {
+                running.remove();
+                completed( this );
+            }
+        }
+
+    }
+
+    static class WorkerThreadFactory
+        implements ThreadFactory
+    {
+
+        private final AtomicInteger counter = new AtomicInteger( 1 );
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "aether-transfer-" + counter.getAndIncrement() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.sonatype.aether.util.concurrency;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.util.ConfigUtils;
+
+/**
+ * An executor that runs each task on a new virtual thread, bounding the number of concurrently running tasks by a
+ * semaphore rather than by the size of a thread pool. Virtual threads are only available on Java 21+ runtimes, their
+ * support is detected via reflection such that this class can be loaded on any runtime.
+ *
+ * @see ConfigurationProperties#VIRTUAL_THREADS
+ */
+public final class VirtualThreadExecutor
+    implements Executor
+{
+
+    private static final ThreadFactory FACTORY = newVirtualThreadFactory();
+
+    private final Semaphore permits;
+
+    private static ThreadFactory newVirtualThreadFactory()
+    {
+        try
+        {
+            Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+            Class<?> type = Class.forName( "java.lang.Thread$Builder" );
+            Method name = type.getMethod( "name", String.class, Long.TYPE );
+            builder = name.invoke( builder, "aether-transfer-", Long.valueOf( 1 ) );
+            return (ThreadFactory) type.getMethod( "factory" ).invoke( builder );
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+        catch ( LinkageError e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Indicates whether the current runtime supports virtual threads.
+     *
+     * @return {@code true} if virtual threads are available, {@code false} otherwise.
+     */
+    public static boolean isSupported()
+    {
+        return FACTORY != null;
+    }
+
+    /**
+     * Gets an executor running its tasks on virtual threads if the specified session has been configured to use them
+     * via {@link ConfigurationProperties#VIRTUAL_THREADS} and the current runtime supports them.
+     *
+     * @param session The repository system session whose tasks will be executed, must not be {@code null}.
+     * @return The executor or {@code null} if virtual threads are not enabled or not supported.
+     */
+    public static Executor getExecutor( RepositorySystemSession session )
+    {
+        if ( !isSupported()
+            || !ConfigUtils.getBoolean( session, ConfigurationProperties.DEFAULT_VIRTUAL_THREADS,
+                                        ConfigurationProperties.VIRTUAL_THREADS ) )
+        {
+            return null;
+        }
+        int concurrency =
+            ConfigUtils.getInteger( session, ConfigurationProperties.DEFAULT_VIRTUAL_THREADS_CONCURRENCY,
+                                    ConfigurationProperties.VIRTUAL_THREADS_CONCURRENCY );
+        return new VirtualThreadExecutor( concurrency );
+    }
+
+    /**
+     * Creates a new executor with the specified concurrency.
+     *
+     * @param concurrency The maximum number of tasks that may run concurrently.
+     * @throws IllegalStateException If the current runtime does not support virtual threads.
+     */
+    public VirtualThreadExecutor( int concurrency )
+    {
+        if ( !isSupported() )
+        {
+            throw new IllegalStateException( "virtual threads are not supported by the current runtime" );
+        }
+        permits = new Semaphore( Math.max( 1, concurrency ) );
+    }
+
+    public void execute( final Runnable command )
+    {
+        if ( command == null )
+        {
+            throw new IllegalArgumentException( "command missing" );
+        }
+
+        FACTORY.newThread( new Runnable()
+        {
+            public void run()
+            {
+                permits.acquireUninterruptibly();
+                try
+                {
+                    command.run();
+                }
+                finally
+                {
+                    permits.release();
+                }
+            }
+        } ).start();
+    }
+
+}
@@ -291,18 +291,7 @@ public class DefaultDependencyNode
 
     public boolean accept( DependencyVisitor visitor )
     {
-        if ( visitor.visitEnter( this ) )
-        {
-            for ( DependencyNode child : getChildren() )
-            {
-                if ( !child.accept( visitor ) )
-                {
-                    break;
-                }
-            }
-        }
-
-        return visitor.visitLeave( this );
+        return DependencyGraphWalker.accept( this, visitor );
     }
 
     @Override
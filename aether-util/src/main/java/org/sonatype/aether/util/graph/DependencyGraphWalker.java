@@ -0,0 +1,87 @@
+package org.sonatype.aether.util.graph;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.List;
+
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.graph.DependencyVisitor;
+
+/**
+ * A depth-first traversal of a dependency graph that uses an explicit stack instead of recursion and hence is not
+ * limited by the depth of the graph. The order of the callbacks to the visitor and the handling of their return values
+ * is identical to the recursive traversal documented by {@link DependencyNode#accept(DependencyVisitor)}, i.e. the
+ * children of a node are skipped if {@link DependencyVisitor#visitEnter(DependencyNode)} returns {@code false} and the
+ * remaining siblings of a node are skipped if {@link DependencyVisitor#visitLeave(DependencyNode)} returns
+ * {@code false}.
+ */
+public final class DependencyGraphWalker
+{
+
+    private DependencyGraphWalker()
+    {
+        // hide constructor
+    }
+
+    /**
+     * Traverses the graph rooted at the specified node.
+     *
+     * @param node The root node of the graph to traverse, must not be {@code null}.
+     * @param visitor The visitor to call back, must not be {@code null}.
+     * @return The result of {@link DependencyVisitor#visitLeave(DependencyNode)} for the root node.
+     */
+    public static boolean accept( DependencyNode node, DependencyVisitor visitor )
+    {
+        Stack<Frame> frames = new Stack<Frame>();
+        frames.push( new Frame( node, visitor.visitEnter( node ) ) );
+
+        while ( true )
+        {
+            Frame frame = frames.peek();
+
+            if ( frame.children != null && frame.index < frame.children.size() )
+            {
+                DependencyNode child = frame.children.get( frame.index++ );
+                frames.push( new Frame( child, visitor.visitEnter( child ) ) );
+                continue;
+            }
+
+            boolean proceed = visitor.visitLeave( frame.node );
+            frames.pop();
+
+            Frame parent = frames.peek();
+            if ( parent == null )
+            {
+                return proceed;
+            }
+            if ( !proceed )
+            {
+                parent.children = null;
+            }
+        }
+    }
+
+    static final class Frame
+    {
+
+        final DependencyNode node;
+
+        List<DependencyNode> children;
+
+        int index;
+
+        Frame( DependencyNode node, boolean enter )
+        {
+            this.node = node;
+            this.children = enter ? node.getChildren() : null;
+        }
+
+    }
+
+}
@@ -42,6 +42,10 @@ public class ClassicDependencyManager
 
     private final Map<Object, Collection<Exclusion>> managedExclusions;
 
+    private final int hashCode;
+
+    private ClassicDependencyManager child;
+
     /**
      * Creates a new dependency manager without any management information.
      */
@@ -60,6 +64,14 @@ public class ClassicDependencyManager
         this.managedScopes = managedScopes;
         this.managedLocalPaths = managedLocalPaths;
         this.managedExclusions = managedExclusions;
+
+        int hash = 17;
+        hash = hash * 31 + depth;
+        hash = hash * 31 + managedVersions.hashCode();
+        hash = hash * 31 + managedScopes.hashCode();
+        hash = hash * 31 + managedLocalPaths.hashCode();
+        hash = hash * 31 + managedExclusions.hashCode();
+        this.hashCode = hash;
     }
 
     public DependencyManager deriveChildManager( DependencyCollectionContext context )
@@ -70,8 +82,7 @@ public class ClassicDependencyManager
         }
         else if ( depth == 1 )
         {
-            return new ClassicDependencyManager( depth + 1, managedVersions, managedScopes, managedLocalPaths,
-                                                 managedExclusions );
+            return getChild();
         }
 
         Map<Object, String> managedVersions = this.managedVersions;
@@ -131,10 +142,30 @@ public class ClassicDependencyManager
             }
         }
 
+        if ( managedVersions == this.managedVersions && managedScopes == this.managedScopes
+            && managedLocalPaths == this.managedLocalPaths && managedExclusions == this.managedExclusions )
+        {
+            return getChild();
+        }
+
         return new ClassicDependencyManager( depth + 1, managedVersions, managedScopes, managedLocalPaths,
                                              managedExclusions );
     }
 
+    private DependencyManager getChild()
+    {
+        // unsynchronized, a child computed twice by racing collections is equal and thus harmless
+        ClassicDependencyManager child = this.child;
+        if ( child == null )
+        {
+            child =
+                new ClassicDependencyManager( depth + 1, managedVersions, managedScopes, managedLocalPaths,
+                                              managedExclusions );
+            this.child = child;
+        }
+        return child;
+    }
+
     public DependencyManagement manageDependency( Dependency dependency )
     {
         DependencyManagement management = null;
@@ -223,19 +254,15 @@ public class ClassicDependencyManager
         }
 
         ClassicDependencyManager that = (ClassicDependencyManager) obj;
-        return depth == that.depth && managedVersions.equals( that.managedVersions )
-            && managedScopes.equals( that.managedScopes ) && managedExclusions.equals( that.managedExclusions );
+        return hashCode == that.hashCode && depth == that.depth && managedVersions.equals( that.managedVersions )
+            && managedScopes.equals( that.managedScopes ) && managedLocalPaths.equals( that.managedLocalPaths )
+            && managedExclusions.equals( that.managedExclusions );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = 17;
-        hash = hash * 31 + depth;
-        hash = hash * 31 + managedVersions.hashCode();
-        hash = hash * 31 + managedScopes.hashCode();
-        hash = hash * 31 + managedExclusions.hashCode();
-        return hash;
+        return hashCode;
     }
 
     static class Key
@@ -28,6 +28,8 @@ public class AndDependencySelector
 
     private final Collection<DependencySelector> selectors;
 
+    private final int hashCode;
+
     /**
      * Creates a new selector from the specified selectors.
      * 
@@ -44,6 +46,7 @@ public class AndDependencySelector
         {
             this.selectors = Collections.emptySet();
         }
+        this.hashCode = hash( this.selectors );
     }
 
     /**
@@ -61,6 +64,14 @@ public class AndDependencySelector
         {
             this.selectors = Collections.emptySet();
         }
+        this.hashCode = hash( this.selectors );
+    }
+
+    private int hash( Collection<DependencySelector> selectors )
+    {
+        int hash = getClass().hashCode();
+        hash = hash * 31 + selectors.hashCode();
+        return hash;
     }
 
     /**
@@ -145,15 +156,13 @@ public class AndDependencySelector
         }
 
         AndDependencySelector that = (AndDependencySelector) obj;
-        return selectors.equals( that.selectors );
+        return hashCode == that.hashCode && selectors.equals( that.selectors );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = getClass().hashCode();
-        hash = hash * 31 + selectors.hashCode();
-        return hash;
+        return hashCode;
     }
 
 }
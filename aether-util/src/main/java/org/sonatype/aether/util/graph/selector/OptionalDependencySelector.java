@@ -24,6 +24,8 @@ public class OptionalDependencySelector
 
     private final int depth;
 
+    private OptionalDependencySelector child;
+
     /**
      * Creates a new selector to exclude optional transitive dependencies.
      */
@@ -49,7 +51,14 @@ public class OptionalDependencySelector
             return this;
         }
 
-        return new OptionalDependencySelector( depth + 1 );
+        // the child only depends on the depth and can be reused for all dependencies
+        OptionalDependencySelector child = this.child;
+        if ( child == null )
+        {
+            child = new OptionalDependencySelector( depth + 1 );
+            this.child = child;
+        }
+        return child;
     }
 
     @Override
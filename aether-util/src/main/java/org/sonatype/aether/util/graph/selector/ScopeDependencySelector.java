@@ -35,6 +35,10 @@ public class ScopeDependencySelector
 
     private final Collection<String> excluded;
 
+    private final int hashCode;
+
+    private ScopeDependencySelector child;
+
     /**
      * Creates a new selector using the specified includes and excludes.
      * 
@@ -62,6 +66,7 @@ public class ScopeDependencySelector
         {
             this.excluded = Collections.emptySet();
         }
+        this.hashCode = hash( transitive, this.included, this.excluded );
     }
 
     /**
@@ -79,6 +84,16 @@ public class ScopeDependencySelector
         this.transitive = transitive;
         this.included = included;
         this.excluded = excluded;
+        this.hashCode = hash( transitive, included, excluded );
+    }
+
+    private static int hash( boolean transitive, Collection<String> included, Collection<String> excluded )
+    {
+        int hash = 17;
+        hash = hash * 31 + ( transitive ? 1 : 0 );
+        hash = hash * 31 + included.hashCode();
+        hash = hash * 31 + excluded.hashCode();
+        return hash;
     }
 
     public boolean selectDependency( Dependency dependency )
@@ -100,7 +115,14 @@ public class ScopeDependencySelector
             return this;
         }
 
-        return new ScopeDependencySelector( true, included, excluded );
+        // all transitive dependencies share the same selector
+        ScopeDependencySelector child = this.child;
+        if ( child == null )
+        {
+            child = new ScopeDependencySelector( true, included, excluded );
+            this.child = child;
+        }
+        return child;
     }
 
     @Override
@@ -116,17 +138,14 @@ public class ScopeDependencySelector
         }
 
         ScopeDependencySelector that = (ScopeDependencySelector) obj;
-        return transitive == that.transitive && included.equals( that.included ) && excluded.equals( that.excluded );
+        return hashCode == that.hashCode && transitive == that.transitive && included.equals( that.included )
+            && excluded.equals( that.excluded );
     }
 
     @Override
     public int hashCode()
     {
-        int hash = 17;
-        hash = hash * 31 + ( transitive ? 1 : 0 );
-        hash = hash * 31 + included.hashCode();
-        hash = hash * 31 + excluded.hashCode();
-        return hash;
+        return hashCode;
     }
 
 }
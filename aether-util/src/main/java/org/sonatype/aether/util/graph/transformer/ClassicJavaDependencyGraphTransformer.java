@@ -0,0 +1,62 @@
+package org.sonatype.aether.util.graph.transformer;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.aether.RepositoryException;
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.collection.DependencyGraphTransformer;
+import org.sonatype.aether.graph.DependencyNode;
+
+/**
+ * A dependency graph transformer that produces the same result as the chain of {@link ConflictMarker},
+ * {@link JavaEffectiveScopeCalculator}, {@link NearestVersionConflictResolver} and
+ * {@link JavaDependencyContextRefiner} but derives the conflict ids, their topological sorting and the conflict groups
+ * for the scope calculation from a single {@link DependencyNodeIndex} rather than walking the graph once per step.
+ * Like the individual transformers, this transformer stores the information about the conflict ids in the
+ * transformation context using the keys {@link TransformationContextKeys#CONFLICT_IDS},
+ * {@link TransformationContextKeys#SORTED_CONFLICT_IDS}, {@link TransformationContextKeys#CYCLIC_CONFLICT_IDS} and
+ * {@link TransformationContextKeys#NODE_INDEX}.
+ */
+public class ClassicJavaDependencyGraphTransformer
+    implements DependencyGraphTransformer
+{
+
+    public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
+        throws RepositoryException
+    {
+        new ConflictMarker().transformGraph( node, context );
+
+        DependencyNodeIndex index = (DependencyNodeIndex) context.get( TransformationContextKeys.NODE_INDEX );
+        Map<?, ?> conflictIds = (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_IDS );
+
+        new ConflictIdSorter().topsortConflictIds( index, context );
+
+        List<?> sortedConflictIds = (List<?>) context.get( TransformationContextKeys.SORTED_CONFLICT_IDS );
+        Boolean cyclicConflictIds = (Boolean) context.get( TransformationContextKeys.CYCLIC_CONFLICT_IDS );
+
+        JavaEffectiveScopeCalculator scopeCalculator = new JavaEffectiveScopeCalculator();
+        scopeCalculator.resolve( node, scopeCalculator.buildConflictGroups( index ), sortedConflictIds, conflictIds,
+                                 cyclicConflictIds );
+
+        new NearestVersionConflictResolver().resolve( node, sortedConflictIds, conflictIds );
+
+        // nodes pruned by the conflict resolution are no longer part of the graph, refining them is harmless
+        JavaDependencyContextRefiner refiner = new JavaDependencyContextRefiner();
+        for ( int i = 0, n = index.getNodeCount(); i < n; i++ )
+        {
+            refiner.refine( index.getNode( i ) );
+        }
+
+        return node;
+    }
+
+}
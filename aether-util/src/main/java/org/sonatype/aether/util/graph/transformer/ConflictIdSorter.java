@@ -12,8 +12,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,7 +29,9 @@ import org.sonatype.aether.graph.DependencyNode;
  * context holds a {@code List<Object>} that denotes the topologically sorted conflict ids. The list will be stored
  * using the key {@link TransformationContextKeys#SORTED_CONFLICT_IDS}. In addition, the transformer will store a
  * {@code Boolean} using the key {@link TransformationContextKeys#CYCLIC_CONFLICT_IDS} that indicates whether the
- * conflict ids have cyclic dependencies.
+ * conflict ids have cyclic dependencies. The transformer uses the {@link DependencyNodeIndex} stored using the key
+ * {@link TransformationContextKeys#NODE_INDEX} if it matches the conflict ids, otherwise it indexes the graph itself
+ * and stores the new index in the context.
  * 
  * @author Benjamin Bentmann
  */
@@ -51,45 +51,72 @@ public class ConflictIdSorter
             conflictIds = (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_IDS );
         }
 
-        Map<Object, ConflictId> ids = new LinkedHashMap<Object, ConflictId>( 256 );
-
+        DependencyNodeIndex index = (DependencyNodeIndex) context.get( TransformationContextKeys.NODE_INDEX );
+        if ( index == null || !index.matches( node, conflictIds ) )
         {
-            ConflictId id = null;
-            Object key = conflictIds.get( node );
-            if ( key != null )
-            {
-                id = new ConflictId( key, 0 );
-                ids.put( key, id );
-            }
-
-            Map<DependencyNode, Object> visited = new IdentityHashMap<DependencyNode, Object>( conflictIds.size() );
-
-            buildConflitIdDAG( ids, node, id, 0, visited, conflictIds );
+            index = new DependencyNodeIndex( node );
+            index.setConflictIds( conflictIds );
+            context.put( TransformationContextKeys.NODE_INDEX, index );
         }
 
-        topsortConflictIds( ids.values(), context );
+        topsortConflictIds( index, context );
 
         return node;
     }
 
-    private void buildConflitIdDAG( Map<Object, ConflictId> ids, DependencyNode node, ConflictId id, int depth,
-                                    Map<DependencyNode, Object> visited, Map<?, ?> conflictIds )
+    void topsortConflictIds( DependencyNodeIndex index, DependencyGraphTransformationContext context )
+    {
+        topsortConflictIds( buildConflictIdDAG( index ), context );
+    }
+
+    private List<ConflictId> buildConflictIdDAG( DependencyNodeIndex index )
     {
-        if ( visited.put( node, Boolean.TRUE ) != null )
+        // replays the edges in the order of a depth-first walk that visits each node only once
+        List<ConflictId> ids = new ArrayList<ConflictId>( index.getConflictIdCount() + 1 );
+        ConflictId[] conflictIds = new ConflictId[index.getConflictIdCount()];
+        ConflictId nullId = null;
+
+        ConflictId rootId = null;
+        int rootOrdinal = index.getConflictId( 0 );
+        if ( rootOrdinal >= 0 )
         {
-            return;
+            rootId = new ConflictId( index.getConflictKey( rootOrdinal ), 0 );
+            conflictIds[rootOrdinal] = rootId;
+            ids.add( rootId );
         }
 
-        depth++;
-
-        for ( DependencyNode child : node.getChildren() )
+        for ( int i = 0, n = index.getEdgeCount(); i < n; i++ )
         {
-            Object key = conflictIds.get( child );
-            ConflictId childId = ids.get( key );
+            int parent = index.getEdgeParent( i );
+            int child = index.getEdgeChild( i );
+
+            ConflictId id;
+            if ( parent == 0 )
+            {
+                id = rootId;
+            }
+            else
+            {
+                int ordinal = index.getConflictId( parent );
+                id = ( ordinal >= 0 ) ? conflictIds[ordinal] : nullId;
+            }
+
+            int depth = index.getDepth( parent ) + 1;
+            int ordinal = index.getConflictId( child );
+            ConflictId childId = ( ordinal >= 0 ) ? conflictIds[ordinal] : nullId;
             if ( childId == null )
             {
-                childId = new ConflictId( key, depth );
-                ids.put( key, childId );
+                if ( ordinal >= 0 )
+                {
+                    childId = new ConflictId( index.getConflictKey( ordinal ), depth );
+                    conflictIds[ordinal] = childId;
+                }
+                else
+                {
+                    childId = new ConflictId( null, depth );
+                    nullId = childId;
+                }
+                ids.add( childId );
             }
             else
             {
@@ -100,9 +127,9 @@ public class ConflictIdSorter
             {
                 id.add( childId );
             }
-
-            buildConflitIdDAG( ids, child, childId, depth, visited, conflictIds );
         }
+
+        return ids;
     }
 
     private void topsortConflictIds( Collection<ConflictId> conflictIds, DependencyGraphTransformationContext context )
@@ -209,13 +236,25 @@ public class ConflictIdSorter
 
         public void pullup( int depth )
         {
-            if ( depth < minDepth )
+            if ( depth >= minDepth )
+            {
+                return;
+            }
+            minDepth = depth;
+
+            List<ConflictId> pending = new ArrayList<ConflictId>();
+            pending.add( this );
+            while ( !pending.isEmpty() )
             {
-                minDepth = depth;
-                depth++;
-                for ( ConflictId child : children )
+                ConflictId id = pending.remove( pending.size() - 1 );
+                int childDepth = id.minDepth + 1;
+                for ( ConflictId child : id.children )
                 {
-                    child.pullup( depth );
+                    if ( childDepth < child.minDepth )
+                    {
+                        child.minDepth = childDepth;
+                        pending.add( child );
+                    }
                 }
             }
         }
@@ -8,7 +8,6 @@ package org.sonatype.aether.util.graph.transformer;
  *   http://www.eclipse.org/legal/epl-v10.html
  *******************************************************************************/
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,7 +26,8 @@ import org.sonatype.aether.graph.DependencyNode;
  * A dependency graph transformer that identifies conflicting dependencies. When this transformer has executed, the
  * transformation context holds a {@code Map<DependencyNode, Object>} where dependency nodes that belong to the same
  * conflict group will have an equal conflict identifier. This map is stored using the key
- * {@link TransformationContextKeys#CONFLICT_IDS}.
+ * {@link TransformationContextKeys#CONFLICT_IDS}. Furthermore, the transformer numbers the nodes and their conflict ids
+ * and stores the resulting {@link DependencyNodeIndex} using the key {@link TransformationContextKeys#NODE_INDEX}.
  * 
  * @author Benjamin Bentmann
  */
@@ -35,8 +35,6 @@ public class ConflictMarker
     implements DependencyGraphTransformer
 {
 
-    private final Object SEEN = Boolean.TRUE;
-
     /**
      * After the execution of this method, every DependencyNode with an attached dependency is member of one conflict
      * group.
@@ -46,25 +44,26 @@ public class ConflictMarker
     public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
         throws RepositoryException
     {
-        Map<DependencyNode, Object> nodes = new IdentityHashMap<DependencyNode, Object>( 1024 );
+        DependencyNodeIndex index = new DependencyNodeIndex( node );
         Map<Object, ConflictGroup> groups = new HashMap<Object, ConflictGroup>( 1024 );
 
-        analyze( node, nodes, groups );
+        for ( int i = 0, n = index.getNodeCount(); i < n; i++ )
+        {
+            analyze( index.getNode( i ), groups );
+        }
 
-        Map<DependencyNode, Object> conflictIds = mark( nodes.keySet(), groups );
+        Map<DependencyNode, Object> conflictIds = mark( index, groups );
+
+        index.setConflictIds( conflictIds );
 
         context.put( TransformationContextKeys.CONFLICT_IDS, conflictIds );
+        context.put( TransformationContextKeys.NODE_INDEX, index );
 
         return node;
     }
 
-    private void analyze( DependencyNode node, Map<DependencyNode, Object> nodes, Map<Object, ConflictGroup> groups )
+    private void analyze( DependencyNode node, Map<Object, ConflictGroup> groups )
     {
-        if ( nodes.put( node, SEEN ) != null )
-        {
-            return;
-        }
-
         Set<Object> keys = getKeys( node );
         if ( !keys.isEmpty() )
         {
@@ -126,11 +125,6 @@ public class ConflictMarker
                 }
             }
         }
-
-        for ( DependencyNode child : node.getChildren() )
-        {
-            analyze( child, nodes, groups );
-        }
     }
 
     private Set<Object> merge( Set<Object> keys1, Set<Object> keys2 )
@@ -199,12 +193,14 @@ public class ConflictMarker
         return keys;
     }
 
-    private Map<DependencyNode, Object> mark( Collection<DependencyNode> nodes, Map<Object, ConflictGroup> groups )
+    private Map<DependencyNode, Object> mark( DependencyNodeIndex index, Map<Object, ConflictGroup> groups )
     {
-        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>( nodes.size() + 1 );
+        Map<DependencyNode, Object> conflictIds =
+            new IdentityHashMap<DependencyNode, Object>( index.getNodeCount() + 1 );
 
-        for ( DependencyNode node : nodes )
+        for ( int i = 0, n = index.getNodeCount(); i < n; i++ )
         {
+            DependencyNode node = index.getNode( i );
             Dependency dependency = node.getDependency();
             if ( dependency != null )
             {
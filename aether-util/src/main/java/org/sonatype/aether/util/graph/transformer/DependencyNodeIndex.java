@@ -0,0 +1,334 @@
+package org.sonatype.aether.util.graph.transformer;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.aether.graph.DependencyNode;
+
+/**
+ * A numbering of the nodes of a dependency graph that allows graph transformers to exchange per-node information via
+ * primitive arrays rather than maps keyed by nodes. The nodes are numbered densely in the order of a depth-first walk
+ * that visits each node only once, the root node has the id {@code 0}. The walk uses an explicit stack and is therefore
+ * not limited by the depth of the graph. In addition, the index records the edges in the
+ * order they are encountered by this walk. Note that the index reflects the graph at the time of its creation, later
+ * transformations that remove nodes from the graph leave the index a superset of the current graph.
+ *
+ * @see TransformationContextKeys#NODE_INDEX
+ */
+public final class DependencyNodeIndex
+{
+
+    private final Map<DependencyNode, Integer> ids;
+
+    private DependencyNode[] nodes = new DependencyNode[256];
+
+    private int[] depths = new int[256];
+
+    private int nodeCount;
+
+    private int[] edgeParents = new int[256];
+
+    private int[] edgeChildren = new int[256];
+
+    private int edgeCount;
+
+    private Map<?, ?> conflictIdMap;
+
+    private int conflictIdMapSize;
+
+    private int[] conflictIds;
+
+    private Object[] conflictKeys;
+
+    private Map<Object, int[]> tables;
+
+    /**
+     * Creates a new index for the graph rooted at the specified node.
+     *
+     * @param root The root node of the graph to index, must not be {@code null}.
+     */
+    public DependencyNodeIndex( DependencyNode root )
+    {
+        ids = new IdentityHashMap<DependencyNode, Integer>( 1024 );
+
+        // explicit stack of node ids and the positions of the next child to visit
+        int[] stack = new int[64];
+        int[] positions = new int[64];
+        int size = 0;
+
+        stack[size] = add( root, 0 );
+        positions[size++] = 0;
+
+        while ( size > 0 )
+        {
+            int id = stack[size - 1];
+            List<DependencyNode> children = nodes[id].getChildren();
+            int pos = positions[size - 1];
+            if ( pos >= children.size() )
+            {
+                size--;
+                continue;
+            }
+            positions[size - 1] = pos + 1;
+
+            DependencyNode child = children.get( pos );
+
+            int edge = edgeCount++;
+            if ( edge >= edgeParents.length )
+            {
+                edgeParents = grow( edgeParents );
+                edgeChildren = grow( edgeChildren );
+            }
+            edgeParents[edge] = id;
+
+            Integer existing = ids.get( child );
+            if ( existing != null )
+            {
+                edgeChildren[edge] = existing.intValue();
+                continue;
+            }
+
+            int childId = add( child, depths[id] + 1 );
+            edgeChildren[edge] = childId;
+
+            if ( size >= stack.length )
+            {
+                stack = grow( stack );
+                positions = grow( positions );
+            }
+            stack[size] = childId;
+            positions[size++] = 0;
+        }
+    }
+
+    private int add( DependencyNode node, int depth )
+    {
+        int id = nodeCount++;
+        if ( id >= nodes.length )
+        {
+            nodes = grow( nodes );
+            depths = grow( depths );
+        }
+        nodes[id] = node;
+        depths[id] = depth;
+        ids.put( node, Integer.valueOf( id ) );
+        return id;
+    }
+
+    private static int[] grow( int[] array )
+    {
+        int[] tmp = new int[array.length * 2];
+        System.arraycopy( array, 0, tmp, 0, array.length );
+        return tmp;
+    }
+
+    private static DependencyNode[] grow( DependencyNode[] array )
+    {
+        DependencyNode[] tmp = new DependencyNode[array.length * 2];
+        System.arraycopy( array, 0, tmp, 0, array.length );
+        return tmp;
+    }
+
+    /**
+     * Gets the number of distinct nodes in the graph.
+     *
+     * @return The number of nodes.
+     */
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the node with the specified id.
+     *
+     * @param id The id of the node, must be less than {@link #getNodeCount()}.
+     * @return The node, never {@code null}.
+     */
+    public DependencyNode getNode( int id )
+    {
+        return nodes[id];
+    }
+
+    /**
+     * Gets the id of the specified node.
+     *
+     * @param node The node to get the id for, may be {@code null}.
+     * @return The id of the node or {@code -1} if the node is not part of the index.
+     */
+    public int getId( DependencyNode node )
+    {
+        Integer id = ids.get( node );
+        return ( id != null ) ? id.intValue() : -1;
+    }
+
+    /**
+     * Gets the depth at which the specified node was first encountered during the indexing, the root node has depth
+     * {@code 0}.
+     *
+     * @param id The id of the node.
+     * @return The depth of the node.
+     */
+    public int getDepth( int id )
+    {
+        return depths[id];
+    }
+
+    /**
+     * Gets the number of edges, i.e. parent-child relations, in the graph.
+     *
+     * @return The number of edges.
+     */
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    /**
+     * Gets the id of the parent node of the specified edge.
+     *
+     * @param edge The index of the edge, must be less than {@link #getEdgeCount()}.
+     * @return The id of the parent node.
+     */
+    public int getEdgeParent( int edge )
+    {
+        return edgeParents[edge];
+    }
+
+    /**
+     * Gets the id of the child node of the specified edge.
+     *
+     * @param edge The index of the edge, must be less than {@link #getEdgeCount()}.
+     * @return The id of the child node.
+     */
+    public int getEdgeChild( int edge )
+    {
+        return edgeChildren[edge];
+    }
+
+    /**
+     * Numbers the conflict ids of the nodes densely in the order of their first occurrence.
+     *
+     * @param conflictIds The mapping from nodes to their conflict ids as stored using the key
+     *            {@link TransformationContextKeys#CONFLICT_IDS}, must not be {@code null}.
+     */
+    public void setConflictIds( Map<?, ?> conflictIds )
+    {
+        Map<Object, Integer> ordinals = new HashMap<Object, Integer>( 256 );
+        int[] ords = new int[nodeCount];
+        Object[] keys = new Object[64];
+        for ( int i = 0; i < nodeCount; i++ )
+        {
+            Object key = conflictIds.get( nodes[i] );
+            if ( key == null )
+            {
+                ords[i] = -1;
+                continue;
+            }
+            Integer ordinal = ordinals.get( key );
+            if ( ordinal == null )
+            {
+                ordinal = Integer.valueOf( ordinals.size() );
+                ordinals.put( key, ordinal );
+                if ( ordinal.intValue() >= keys.length )
+                {
+                    Object[] tmp = new Object[keys.length * 2];
+                    System.arraycopy( keys, 0, tmp, 0, keys.length );
+                    keys = tmp;
+                }
+                keys[ordinal.intValue()] = key;
+            }
+            ords[i] = ordinal.intValue();
+        }
+        this.conflictIdMap = conflictIds;
+        this.conflictIdMapSize = conflictIds.size();
+        this.conflictIds = ords;
+        this.conflictKeys = new Object[ordinals.size()];
+        System.arraycopy( keys, 0, conflictKeys, 0, conflictKeys.length );
+    }
+
+    /**
+     * Indicates whether this index covers the graph rooted at the specified node and its conflict ids have been derived
+     * from the specified mapping.
+     *
+     * @param root The root node of the graph, may be {@code null}.
+     * @param conflictIds The mapping from nodes to their conflict ids, may be {@code null}.
+     * @return {@code true} if the index matches the graph and the mapping, {@code false} otherwise.
+     */
+    public boolean matches( DependencyNode root, Map<?, ?> conflictIds )
+    {
+        return root == nodes[0] && conflictIds != null && conflictIdMap == conflictIds
+            && conflictIdMapSize == conflictIds.size();
+    }
+
+    /**
+     * Gets the number of distinct conflict ids.
+     *
+     * @return The number of distinct conflict ids or {@code 0} if the conflict ids have not been set.
+     */
+    public int getConflictIdCount()
+    {
+        return ( conflictKeys != null ) ? conflictKeys.length : 0;
+    }
+
+    /**
+     * Gets the dense number of the conflict id of the specified node.
+     *
+     * @param id The id of the node.
+     * @return The number of the node's conflict id or {@code -1} if the node has no conflict id.
+     */
+    public int getConflictId( int id )
+    {
+        return conflictIds[id];
+    }
+
+    /**
+     * Gets the conflict id with the specified number.
+     *
+     * @param conflictId The number of the conflict id, must be less than {@link #getConflictIdCount()}.
+     * @return The conflict id as stored in the mapping from nodes to conflict ids, never {@code null}.
+     */
+    public Object getConflictKey( int conflictId )
+    {
+        return conflictKeys[conflictId];
+    }
+
+    /**
+     * Gets a side table that allows transformers to record and share an integer value per node. The table is created
+     * on first access, initialized to zeros and indexed by node ids.
+     *
+     * @param key The key of the table, must not be {@code null}.
+     * @return The table, never {@code null}.
+     */
+    public int[] getTable( Object key )
+    {
+        if ( tables == null )
+        {
+            tables = new HashMap<Object, int[]>();
+        }
+        int[] table = tables.get( key );
+        if ( table == null )
+        {
+            table = new int[nodeCount];
+            tables.put( key, table );
+        }
+        return table;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "nodes=" + nodeCount + ", edges=" + edgeCount + ", conflictIds=" + getConflictIdCount();
+    }
+
+}
@@ -8,6 +8,11 @@ package org.sonatype.aether.util.graph.transformer;
  *   http://www.eclipse.org/legal/epl-v10.html
  *******************************************************************************/
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.sonatype.aether.RepositoryException;
 import org.sonatype.aether.collection.DependencyGraphTransformationContext;
 import org.sonatype.aether.collection.DependencyGraphTransformer;
@@ -29,6 +34,32 @@ public class JavaDependencyContextRefiner
 
     public DependencyNode transformGraph( DependencyNode node, DependencyGraphTransformationContext context )
         throws RepositoryException
+    {
+        Map<DependencyNode, Object> visited = new IdentityHashMap<DependencyNode, Object>( 1024 );
+        List<DependencyNode> pending = new ArrayList<DependencyNode>( 64 );
+        pending.add( node );
+
+        while ( !pending.isEmpty() )
+        {
+            DependencyNode n = pending.remove( pending.size() - 1 );
+            if ( visited.put( n, Boolean.TRUE ) != null )
+            {
+                continue;
+            }
+
+            refine( n );
+
+            List<DependencyNode> children = n.getChildren();
+            for ( int i = children.size() - 1; i >= 0; i-- )
+            {
+                pending.add( children.get( i ) );
+            }
+        }
+
+        return node;
+    }
+
+    void refine( DependencyNode node )
     {
         String ctx = node.getRequestContext();
 
@@ -41,13 +72,6 @@ public class JavaDependencyContextRefiner
                 node.setRequestContext( ctx );
             }
         }
-
-        for ( DependencyNode child : node.getChildren() )
-        {
-            transformGraph( child, context );
-        }
-
-        return node;
     }
 
     private String getClasspathScope( DependencyNode node )
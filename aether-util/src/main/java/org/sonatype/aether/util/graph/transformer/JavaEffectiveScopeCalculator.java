@@ -27,7 +27,8 @@ import org.sonatype.aether.util.artifact.JavaScopes;
  * seen in Maven 2.x. For a given set of conflicting nodes, a single scope will be chosen and assigned to all of the
  * nodes. This transformer will query the keys {@link TransformationContextKeys#CONFLICT_IDS} and
  * {@link TransformationContextKeys#SORTED_CONFLICT_IDS} for existing information about conflict ids. In absence of this
- * information, it will automatically invoke the {@link ConflictIdSorter} to calculate it.
+ * information, it will automatically invoke the {@link ConflictIdSorter} to calculate it. The conflict groups are
+ * determined from the {@link DependencyNodeIndex} stored using the key {@link TransformationContextKeys#NODE_INDEX}.
  * 
  * @author Benjamin Bentmann
  */
@@ -55,10 +56,24 @@ public class JavaEffectiveScopeCalculator
 
         Boolean cyclicConflictIds = (Boolean) context.get( TransformationContextKeys.CYCLIC_CONFLICT_IDS );
 
-        Map<Object, ConflictGroup> groups = new HashMap<Object, ConflictGroup>( 256 );
+        DependencyNodeIndex index = (DependencyNodeIndex) context.get( TransformationContextKeys.NODE_INDEX );
+        if ( index == null || !index.matches( node, conflictIds ) )
+        {
+            index = new DependencyNodeIndex( node );
+            index.setConflictIds( conflictIds );
+            context.put( TransformationContextKeys.NODE_INDEX, index );
+        }
+
+        Map<Object, ConflictGroup> groups = buildConflictGroups( index );
 
-        buildConflictGroups( groups, node, null, conflictIds );
+        resolve( node, groups, sortedConflictIds, conflictIds, cyclicConflictIds );
+
+        return node;
+    }
 
+    void resolve( DependencyNode node, Map<Object, ConflictGroup> groups, List<?> sortedConflictIds,
+                  Map<?, ?> conflictIds, Boolean cyclicConflictIds )
+    {
         String rootScope = "";
         if ( node.getDependency() != null )
         {
@@ -87,44 +102,62 @@ public class JavaEffectiveScopeCalculator
             ConflictGroup group = groups.get( key );
             resolve( group, conflictIds, prequisites );
         }
-
-        return node;
     }
 
-    private void buildConflictGroups( Map<Object, ConflictGroup> groups, DependencyNode node, DependencyNode parent,
-                                      Map<?, ?> conflictIds )
+    Map<Object, ConflictGroup> buildConflictGroups( DependencyNodeIndex index )
     {
-        Object key = conflictIds.get( node );
+        int nodeCount = index.getNodeCount();
 
-        ConflictGroup group = groups.get( key );
-        if ( group == null )
+        List<List<DependencyNode>> parents = new ArrayList<List<DependencyNode>>( nodeCount );
+        for ( int i = 0; i < nodeCount; i++ )
         {
-            group = new ConflictGroup( key );
-            groups.put( key, group );
+            parents.add( null );
         }
-
-        List<DependencyNode> parents = group.parents.get( node );
-        boolean visited = parents != null;
-
-        if ( parents == null )
+        for ( int i = 0, n = index.getEdgeCount(); i < n; i++ )
         {
-            parents = new ArrayList<DependencyNode>( 4 );
-            group.parents.put( node, parents );
+            int child = index.getEdgeChild( i );
+            List<DependencyNode> list = parents.get( child );
+            if ( list == null )
+            {
+                list = new ArrayList<DependencyNode>( 4 );
+                parents.set( child, list );
+            }
+            DependencyNode parent = index.getNode( index.getEdgeParent( i ) );
+            list.add( ( parent.getDependency() != null ) ? parent : null );
         }
 
-        if ( parent != null )
-        {
-            parents.add( parent );
-        }
+        Map<Object, ConflictGroup> groups = new HashMap<Object, ConflictGroup>( index.getConflictIdCount() * 2 + 2 );
+        ConflictGroup[] conflictGroups = new ConflictGroup[index.getConflictIdCount()];
+        ConflictGroup nullGroup = null;
 
-        if ( !visited )
+        for ( int i = 0; i < nodeCount; i++ )
         {
-            parent = ( node.getDependency() != null ) ? node : null;
-            for ( DependencyNode child : node.getChildren() )
+            int ordinal = index.getConflictId( i );
+            ConflictGroup group = ( ordinal >= 0 ) ? conflictGroups[ordinal] : nullGroup;
+            if ( group == null )
             {
-                buildConflictGroups( groups, child, parent, conflictIds );
+                Object key = ( ordinal >= 0 ) ? index.getConflictKey( ordinal ) : null;
+                group = new ConflictGroup( key );
+                groups.put( key, group );
+                if ( ordinal >= 0 )
+                {
+                    conflictGroups[ordinal] = group;
+                }
+                else
+                {
+                    nullGroup = group;
+                }
             }
+
+            List<DependencyNode> list = parents.get( i );
+            if ( list == null )
+            {
+                list = new ArrayList<DependencyNode>( 4 );
+            }
+            group.parents.put( index.getNode( i ), list );
         }
+
+        return groups;
     }
 
     private void resolve( ConflictGroup group, Map<?, ?> conflictIds, Set<?> prerequisites )
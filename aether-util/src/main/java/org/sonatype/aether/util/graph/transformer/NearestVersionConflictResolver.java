@@ -8,7 +8,10 @@ package org.sonatype.aether.util.graph.transformer;
  *   http://www.eclipse.org/legal/epl-v10.html
  *******************************************************************************/
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -31,7 +34,9 @@ import org.sonatype.aether.version.VersionConstraint;
  * conflicting nodes, one node will be chosen as the winner and the other nodes are removed from the dependency graph.
  * This transformer will query the keys {@link TransformationContextKeys#CONFLICT_IDS} and
  * {@link TransformationContextKeys#SORTED_CONFLICT_IDS} for existing information about conflict ids. In absence of this
- * information, it will automatically invoke the {@link ConflictIdSorter} to calculate it.
+ * information, it will automatically invoke the {@link ConflictIdSorter} to calculate it. To avoid walking the entire
+ * graph for each conflict group, the transformer initially determines for each node which conflict ids are reachable
+ * from it and thereby restricts the walk for a conflict group to those subgraphs that contain members of the group.
  * 
  * @author Benjamin Bentmann
  */
@@ -57,23 +62,77 @@ public class NearestVersionConflictResolver
             throw new RepositoryException( "conflict groups have not been identified" );
         }
 
+        resolve( node, sortedConflictIds, conflictIds );
+
+        return node;
+    }
+
+    void resolve( DependencyNode node, List<?> sortedConflictIds, Map<?, ?> conflictIds )
+        throws RepositoryException
+    {
+        Map<Object, Integer> indices = new HashMap<Object, Integer>( sortedConflictIds.size() * 2 );
+        for ( Object key : sortedConflictIds )
+        {
+            indices.put( key, Integer.valueOf( indices.size() ) );
+        }
+
+        Map<DependencyNode, BitSet> reachable = new ReachabilityIndexer( conflictIds, indices ).index( node );
+
         Map<DependencyNode, Integer> depths = new IdentityHashMap<DependencyNode, Integer>( conflictIds.size() );
         for ( Object key : sortedConflictIds )
         {
-            ConflictGroup group = new ConflictGroup( key );
+            ConflictGroup group = new ConflictGroup( key, indices.get( key ).intValue() );
             depths.clear();
-            selectVersion( node, null, 0, depths, group, conflictIds, node );
+            selectVersion( node, depths, group, conflictIds, reachable );
             pruneNonSelectedVersions( group, conflictIds );
         }
+    }
 
-        return node;
+    private void selectVersion( DependencyNode root, Map<DependencyNode, Integer> depths, ConflictGroup group,
+                                Map<?, ?> conflictIds, Map<DependencyNode, BitSet> reachable )
+        throws RepositoryException
+    {
+        // depth-first walk using an explicit stack, the children of a node are visited in order
+        List<Frame> frames = new ArrayList<Frame>( 64 );
+        if ( selectVersion( root, null, 0, depths, group, conflictIds, reachable, root ) )
+        {
+            frames.add( new Frame( root, 1 ) );
+        }
+
+        while ( !frames.isEmpty() )
+        {
+            Frame frame = frames.get( frames.size() - 1 );
+            List<DependencyNode> children = frame.node.getChildren();
+            if ( frame.index >= children.size() )
+            {
+                frames.remove( frames.size() - 1 );
+                continue;
+            }
+
+            DependencyNode child = children.get( frame.index++ );
+            if ( selectVersion( child, frame.node, frame.depth, depths, group, conflictIds, reachable, root ) )
+            {
+                frames.add( new Frame( child, frame.depth + 1 ) );
+            }
+        }
     }
 
-    private void selectVersion( DependencyNode node, DependencyNode parent, int depth,
-                                Map<DependencyNode, Integer> depths, ConflictGroup group, Map<?, ?> conflictIds,
-                                DependencyNode root )
+    /**
+     * Records the specified node if it belongs to the conflict group and determines whether its children need to be
+     * visited.
+     */
+    private boolean selectVersion( DependencyNode node, DependencyNode parent, int depth,
+                                   Map<DependencyNode, Integer> depths, ConflictGroup group, Map<?, ?> conflictIds,
+                                   Map<DependencyNode, BitSet> reachable, DependencyNode root )
         throws RepositoryException
     {
+        BitSet ids = reachable.get( node );
+        if ( ids != null && !ids.get( group.index ) )
+        {
+            // pruning of previous groups can only shrink the graph, i.e. the index is conservative
+            return false;
+        }
+
         Integer smallestDepth = depths.get( node );
         if ( smallestDepth == null || smallestDepth.intValue() > depth )
         {
@@ -81,7 +140,7 @@ public class NearestVersionConflictResolver
         }
         else
         {
-            return;
+            return false;
         }
 
         Object key = conflictIds.get( node );
@@ -130,16 +189,11 @@ public class NearestVersionConflictResolver
                 {
                     backtrack( group, conflictIds, root );
                 }
-                return;
+                return false;
             }
         }
 
-        depth++;
-
-        for ( DependencyNode child : node.getChildren() )
-        {
-            selectVersion( child, node, depth, depths, group, conflictIds, root );
-        }
+        return true;
     }
 
     private boolean isAcceptable( ConflictGroup group, Version version )
@@ -242,6 +296,8 @@ public class NearestVersionConflictResolver
 
         final Object key;
 
+        final int index;
+
         final Collection<VersionConstraint> constraints = new HashSet<VersionConstraint>();
 
         final Map<DependencyNode, Position> candidates = new IdentityHashMap<DependencyNode, Position>( 32 );
@@ -254,9 +310,10 @@ public class NearestVersionConflictResolver
 
         boolean pruned;
 
-        public ConflictGroup( Object key )
+        public ConflictGroup( Object key, int index )
         {
             this.key = key;
+            this.index = index;
             this.position = new Position( null, Integer.MAX_VALUE );
         }
 
@@ -268,6 +325,151 @@ public class NearestVersionConflictResolver
 
     }
 
+    /**
+     * Determines for each node of a graph the indices of the conflict ids that occur in the subgraph rooted at the node
+     * (including the node itself). Cycles are handled by calculating the strongly connected components of the graph
+     * (Tarjan), all nodes of a component share the same set of reachable conflict ids.
+     */
+    static final class ReachabilityIndexer
+    {
+
+        private final Map<?, ?> conflictIds;
+
+        private final Map<Object, Integer> indices;
+
+        private final Map<DependencyNode, int[]> visited = new IdentityHashMap<DependencyNode, int[]>( 1024 );
+
+        private final Map<DependencyNode, BitSet> reachable = new IdentityHashMap<DependencyNode, BitSet>( 1024 );
+
+        private final List<DependencyNode> stack = new ArrayList<DependencyNode>();
+
+        private int counter;
+
+        public ReachabilityIndexer( Map<?, ?> conflictIds, Map<Object, Integer> indices )
+        {
+            this.conflictIds = conflictIds;
+            this.indices = indices;
+        }
+
+        public Map<DependencyNode, BitSet> index( DependencyNode root )
+        {
+            // depth-first walk using an explicit stack of frames
+            List<DependencyNode> nodes = new ArrayList<DependencyNode>( 64 );
+            List<int[]> infos = new ArrayList<int[]>( 64 );
+            List<Integer> positions = new ArrayList<Integer>( 64 );
+
+            nodes.add( root );
+            infos.add( enter( root ) );
+            positions.add( Integer.valueOf( 0 ) );
+
+            while ( !nodes.isEmpty() )
+            {
+                int top = nodes.size() - 1;
+                DependencyNode node = nodes.get( top );
+                int[] info = infos.get( top );
+                int pos = positions.get( top ).intValue();
+
+                List<DependencyNode> children = node.getChildren();
+                if ( pos < children.size() )
+                {
+                    positions.set( top, Integer.valueOf( pos + 1 ) );
+                    DependencyNode child = children.get( pos );
+                    int[] childInfo = visited.get( child );
+                    if ( childInfo == null )
+                    {
+                        nodes.add( child );
+                        infos.add( enter( child ) );
+                        positions.add( Integer.valueOf( 0 ) );
+                    }
+                    else if ( childInfo[2] != 0 )
+                    {
+                        info[1] = Math.min( info[1], childInfo[0] );
+                    }
+                    continue;
+                }
+
+                nodes.remove( top );
+                infos.remove( top );
+                positions.remove( top );
+
+                leave( node, info );
+
+                if ( top > 0 )
+                {
+                    int[] parentInfo = infos.get( top - 1 );
+                    parentInfo[1] = Math.min( parentInfo[1], info[1] );
+                }
+            }
+
+            return reachable;
+        }
+
+        private int[] enter( DependencyNode node )
+        {
+            // index, lowlink and on-stack flag of the node
+            int[] info = { counter, counter, 1 };
+            counter++;
+            visited.put( node, info );
+            stack.add( node );
+            return info;
+        }
+
+        private void leave( DependencyNode node, int[] info )
+        {
+            if ( info[1] == info[0] )
+            {
+                int start = stack.size() - 1;
+                while ( stack.get( start ) != node )
+                {
+                    start--;
+                }
+                List<DependencyNode> component = stack.subList( start, stack.size() );
+
+                BitSet ids = new BitSet( indices.size() );
+                for ( DependencyNode member : component )
+                {
+                    Integer index = indices.get( conflictIds.get( member ) );
+                    if ( index != null )
+                    {
+                        ids.set( index.intValue() );
+                    }
+                    for ( DependencyNode child : member.getChildren() )
+                    {
+                        BitSet childIds = reachable.get( child );
+                        if ( childIds != null )
+                        {
+                            ids.or( childIds );
+                        }
+                    }
+                }
+                for ( DependencyNode member : component )
+                {
+                    visited.get( member )[2] = 0;
+                    reachable.put( member, ids );
+                }
+                component.clear();
+            }
+        }
+
+    }
+
+    static final class Frame
+    {
+
+        final DependencyNode node;
+
+        final int depth;
+
+        int index;
+
+        Frame( DependencyNode node, int depth )
+        {
+            this.node = node;
+            this.depth = depth;
+        }
+
+    }
+
     static final class Position
     {
 
@@ -43,6 +43,14 @@ public final class TransformationContextKeys
      */
     public static final Object CYCLIC_CONFLICT_IDS = "cyclicConflictIds";
 
+    /**
+     * The key in the graph transformation context where a {@link DependencyNodeIndex} is stored that numbers the
+     * dependency nodes and, if the conflict ids have been identified, their conflict ids.
+     * 
+     * @see ConflictMarker
+     */
+    public static final Object NODE_INDEX = "nodeIndex";
+
     private TransformationContextKeys()
     {
         // hide constructor
@@ -0,0 +1,283 @@
+package org.sonatype.aether.util.concurrency;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+
+public class TransferSchedulerTest
+{
+
+    private static TestRepositorySystemSession newSession( int threads, int threadsPerHost )
+        throws Exception
+    {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( ConfigurationProperties.SHARED_TRANSFER_EXECUTOR, Boolean.TRUE );
+        config.put( ConfigurationProperties.TRANSFER_THREADS, Integer.valueOf( threads ) );
+        config.put( ConfigurationProperties.TRANSFER_THREADS_PER_HOST, Integer.valueOf( threadsPerHost ) );
+        TestRepositorySystemSession session = new TestRepositorySystemSession();
+        session.setConfigProperties( config );
+        return session;
+    }
+
+    @Test
+    public void testDisabledByDefault()
+        throws Exception
+    {
+        assertNull( TransferScheduler.getExecutor( new TestRepositorySystemSession(), "host", 4 ) );
+        assertNotNull( TransferScheduler.getExecutor( newSession( 4, 4 ), "host", 4 ) );
+    }
+
+    @Test
+    public void testConcurrencyLimits()
+        throws Exception
+    {
+        TransferScheduler scheduler = new TransferScheduler();
+        TestRepositorySystemSession session = newSession( 8, 2 );
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        Runnable task = new Runnable()
+        {
+            public void run()
+            {
+                int current = running.incrementAndGet();
+                synchronized ( peak )
+                {
+                    peak.set( Math.max( peak.get(), current ) );
+                }
+                try
+                {
+                    Thread.sleep( 20 );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+                running.decrementAndGet();
+            }
+        };
+
+        RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+        Executor executor = scheduler.newExecutor( session, "host", 4 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            executor.execute( errorForwarder.wrap( task ) );
+        }
+        errorForwarder.await();
+        assertEquals( 2, peak.get() );
+
+        peak.set( 0 );
+        errorForwarder = new RunnableErrorForwarder();
+        executor = scheduler.newExecutor( session, null, 3 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            executor.execute( errorForwarder.wrap( task ) );
+        }
+        errorForwarder.await();
+        assertEquals( 3, peak.get() );
+
+        assertEquals( 0, scheduler.getQueuedCount() );
+    }
+
+    @Test
+    public void testRoundRobinBetweenSessions()
+        throws Exception
+    {
+        TransferScheduler scheduler = new TransferScheduler();
+        final List<String> order = Collections.synchronizedList( new ArrayList<String>() );
+        final CountDownLatch latch = new CountDownLatch( 1 );
+
+        Executor executor1 = scheduler.newExecutor( newSession( 1, 1 ), null, 4 );
+        Executor executor2 = scheduler.newExecutor( newSession( 1, 1 ), null, 4 );
+
+        RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+        executor1.execute( errorForwarder.wrap( new Runnable()
+        {
+            public void run()
+            {
+                order.add( "a0" );
+                try
+                {
+                    assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            }
+        } ) );
+        for ( int i = 1; i <= 2; i++ )
+        {
+            executor1.execute( errorForwarder.wrap( new RecordingTask( order, "a" + i ) ) );
+        }
+        for ( int i = 0; i <= 2; i++ )
+        {
+            executor2.execute( errorForwarder.wrap( new RecordingTask( order, "b" + i ) ) );
+        }
+        assertEquals( 5, scheduler.getQueuedCount() );
+        latch.countDown();
+        errorForwarder.await();
+
+        assertEquals( "[a0, a1, b0, a2, b1, b2]", order.toString() );
+    }
+
+    @Test
+    public void testNestedTasksRunInCallingThreadOnceLimitReached()
+        throws Exception
+    {
+        TransferScheduler scheduler = new TransferScheduler();
+        final Executor executor = scheduler.newExecutor( newSession( 1, 1 ), "host", 1 );
+        final List<String> order = Collections.synchronizedList( new ArrayList<String>() );
+
+        RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+        executor.execute( errorForwarder.wrap( new Runnable()
+        {
+            public void run()
+            {
+                RunnableErrorForwarder nested = new RunnableErrorForwarder();
+                executor.execute( nested.wrap( new RecordingTask( order, "nested" ) ) );
+                nested.await();
+                order.add( "outer" );
+            }
+        } ) );
+        errorForwarder.await();
+
+        assertEquals( "[nested, outer]", order.toString() );
+    }
+
+    @Test
+    public void testNestedTasksRunConcurrently()
+        throws Exception
+    {
+        TransferScheduler scheduler = new TransferScheduler();
+        TestRepositorySystemSession session = newSession( 1, 4 );
+        Executor outer = scheduler.newExecutor( session, null, 1 );
+        final Executor inner = scheduler.newExecutor( session, "host", 4 );
+
+        final CountDownLatch started = new CountDownLatch( 4 );
+        final Runnable transfer = new Runnable()
+        {
+            public void run()
+            {
+                started.countDown();
+                try
+                {
+                    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+            }
+        };
+
+        RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+        outer.execute( errorForwarder.wrap( new Runnable()
+        {
+            public void run()
+            {
+                RunnableErrorForwarder nested = new RunnableErrorForwarder();
+                for ( int i = 0; i < 4; i++ )
+                {
+                    inner.execute( nested.wrap( transfer ) );
+                }
+                nested.await();
+            }
+        } ) );
+        errorForwarder.await();
+
+        assertEquals( 0, started.getCount() );
+    }
+
+    @Test
+    public void testNestedTasksCountAgainstHostLimit()
+        throws Exception
+    {
+        TransferScheduler scheduler = new TransferScheduler();
+        TestRepositorySystemSession session = newSession( 4, 1 );
+        Executor outer = scheduler.newExecutor( session, null, 4 );
+        final Executor inner = scheduler.newExecutor( session, "host", 4 );
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final Runnable transfer = new Runnable()
+        {
+            public void run()
+            {
+                int current = running.incrementAndGet();
+                synchronized ( peak )
+                {
+                    peak.set( Math.max( peak.get(), current ) );
+                }
+                try
+                {
+                    Thread.sleep( 20 );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+                running.decrementAndGet();
+            }
+        };
+
+        RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+        for ( int i = 0; i < 4; i++ )
+        {
+            outer.execute( errorForwarder.wrap( new Runnable()
+            {
+                public void run()
+                {
+                    RunnableErrorForwarder nested = new RunnableErrorForwarder();
+                    inner.execute( nested.wrap( transfer ) );
+                    nested.await();
+                }
+            } ) );
+        }
+        errorForwarder.await();
+
+        assertEquals( 1, peak.get() );
+    }
+
+    static class RecordingTask
+        implements Runnable
+    {
+
+        private final List<String> order;
+
+        private final String name;
+
+        RecordingTask( List<String> order, String name )
+        {
+            this.order = order;
+            this.name = name;
+        }
+
+        public void run()
+        {
+            order.add( name );
+        }
+
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.sonatype.aether.util.concurrency;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.sonatype.aether.ConfigurationProperties;
+import org.sonatype.aether.test.impl.TestRepositorySystemSession;
+
+public class VirtualThreadExecutorTest
+{
+
+    private static TestRepositorySystemSession newSession( int concurrency )
+        throws Exception
+    {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put( ConfigurationProperties.VIRTUAL_THREADS, Boolean.TRUE );
+        config.put( ConfigurationProperties.VIRTUAL_THREADS_CONCURRENCY, Integer.valueOf( concurrency ) );
+        TestRepositorySystemSession session = new TestRepositorySystemSession();
+        session.setConfigProperties( config );
+        return session;
+    }
+
+    @Test
+    public void testDetectionOfRuntimeSupport()
+        throws Exception
+    {
+        assertNull( VirtualThreadExecutor.getExecutor( new TestRepositorySystemSession() ) );
+
+        Executor executor = VirtualThreadExecutor.getExecutor( newSession( 4 ) );
+        assertEquals( VirtualThreadExecutor.isSupported(), executor != null );
+
+        if ( !VirtualThreadExecutor.isSupported() )
+        {
+            try
+            {
+                new VirtualThreadExecutor( 4 );
+                fail( "unsupported runtime not detected" );
+            }
+            catch ( IllegalStateException e )
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrencyBoundedBySemaphore()
+        throws Exception
+    {
+        Executor executor = VirtualThreadExecutor.getExecutor( newSession( 3 ) );
+        if ( executor == null )
+        {
+            // virtual threads not supported by this runtime
+            return;
+        }
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        Runnable task = new Runnable()
+        {
+            public void run()
+            {
+                int current = running.incrementAndGet();
+                synchronized ( peak )
+                {
+                    peak.set( Math.max( peak.get(), current ) );
+                }
+                try
+                {
+                    Thread.sleep( 20 );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IllegalStateException( e );
+                }
+                running.decrementAndGet();
+            }
+        };
+
+        RunnableErrorForwarder errorForwarder = new RunnableErrorForwarder();
+        for ( int i = 0; i < 20; i++ )
+        {
+            executor.execute( errorForwarder.wrap( task ) );
+        }
+        errorForwarder.await();
+        assertEquals( 3, peak.get() );
+    }
+
+}
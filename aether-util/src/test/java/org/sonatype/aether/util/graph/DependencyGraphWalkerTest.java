@@ -0,0 +1,155 @@
+package org.sonatype.aether.util.graph;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.graph.DependencyVisitor;
+import org.sonatype.aether.test.util.DependencyGraphParser;
+
+public class DependencyGraphWalkerTest
+{
+
+    private DependencyNode parse( String resource )
+        throws Exception
+    {
+        return new DependencyGraphParser( "visitor/tree/" ).parse( resource );
+    }
+
+    private static boolean acceptRecursively( DependencyNode node, DependencyVisitor visitor )
+    {
+        if ( visitor.visitEnter( node ) )
+        {
+            for ( DependencyNode child : node.getChildren() )
+            {
+                if ( !acceptRecursively( child, visitor ) )
+                {
+                    break;
+                }
+            }
+        }
+
+        return visitor.visitLeave( node );
+    }
+
+    private void assertSameOrder( DependencyNode root, String skipChildrenOf, String stopAfter )
+    {
+        RecordingVisitor expected = new RecordingVisitor( skipChildrenOf, stopAfter );
+        boolean expectedResult = acceptRecursively( root, new TreeDependencyVisitor( expected ) );
+
+        RecordingVisitor actual = new RecordingVisitor( skipChildrenOf, stopAfter );
+        boolean actualResult = DependencyGraphWalker.accept( root, new TreeDependencyVisitor( actual ) );
+
+        assertEquals( expected.buffer.toString(), actual.buffer.toString() );
+        assertEquals( expectedResult, actualResult );
+    }
+
+    @Test
+    public void testSameOrderAsRecursiveTraversal()
+        throws Exception
+    {
+        DependencyNode root = parse( "cycles.txt" );
+
+        RecordingVisitor rec = new RecordingVisitor( null, null );
+        assertTrue( DependencyGraphWalker.accept( root, new TreeDependencyVisitor( rec ) ) );
+        assertEquals( ">a >b >c <c <b >d <d <a ", rec.buffer.toString() );
+
+        assertSameOrder( root, null, null );
+        assertSameOrder( root, "b", null );
+        assertSameOrder( root, "a", null );
+    }
+
+    @Test
+    public void testEarlyTermination()
+        throws Exception
+    {
+        DependencyNode root = parse( "cycles.txt" );
+
+        RecordingVisitor rec = new RecordingVisitor( null, "c" );
+        DependencyGraphWalker.accept( root, new TreeDependencyVisitor( rec ) );
+        assertEquals( ">a >b >c <c <b >d <d <a ", rec.buffer.toString() );
+
+        rec = new RecordingVisitor( null, "b" );
+        DependencyGraphWalker.accept( root, new TreeDependencyVisitor( rec ) );
+        assertEquals( ">a >b >c <c <b <a ", rec.buffer.toString() );
+
+        assertSameOrder( root, null, "b" );
+        assertSameOrder( root, null, "c" );
+        assertSameOrder( root, null, "a" );
+    }
+
+    @Test
+    public void testDeepGraph()
+    {
+        DependencyNode root = new DefaultDependencyNode();
+        DependencyNode node = root;
+        for ( int i = 0; i < 100000; i++ )
+        {
+            DependencyNode child = new DefaultDependencyNode();
+            node.getChildren().add( child );
+            node = child;
+        }
+
+        final int[] counts = new int[2];
+        root.accept( new DependencyVisitor()
+        {
+            public boolean visitEnter( DependencyNode node )
+            {
+                counts[0]++;
+                return true;
+            }
+
+            public boolean visitLeave( DependencyNode node )
+            {
+                counts[1]++;
+                return true;
+            }
+        } );
+        assertEquals( 100001, counts[0] );
+        assertEquals( 100001, counts[1] );
+    }
+
+    private static class RecordingVisitor
+        implements DependencyVisitor
+    {
+
+        final StringBuilder buffer = new StringBuilder( 256 );
+
+        private final String skipChildrenOf;
+
+        private final String stopAfter;
+
+        RecordingVisitor( String skipChildrenOf, String stopAfter )
+        {
+            this.skipChildrenOf = skipChildrenOf;
+            this.stopAfter = stopAfter;
+        }
+
+        private String getId( DependencyNode node )
+        {
+            return node.getDependency().getArtifact().getArtifactId();
+        }
+
+        public boolean visitEnter( DependencyNode node )
+        {
+            buffer.append( '>' ).append( getId( node ) ).append( ' ' );
+            return !getId( node ).equals( skipChildrenOf );
+        }
+
+        public boolean visitLeave( DependencyNode node )
+        {
+            buffer.append( '<' ).append( getId( node ) ).append( ' ' );
+            return !getId( node ).equals( stopAfter );
+        }
+
+    }
+
+}
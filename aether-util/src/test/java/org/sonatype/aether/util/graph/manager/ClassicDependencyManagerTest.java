@@ -0,0 +1,73 @@
+package org.sonatype.aether.util.graph.manager;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.DependencyCollectionContext;
+import org.sonatype.aether.collection.DependencyManager;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class ClassicDependencyManagerTest
+{
+
+    private static DependencyCollectionContext newContext( final Dependency... managedDependencies )
+    {
+        return new DependencyCollectionContext()
+        {
+            public RepositorySystemSession getSession()
+            {
+                return null;
+            }
+
+            public Dependency getDependency()
+            {
+                return null;
+            }
+
+            public List<Dependency> getManagedDependencies()
+            {
+                return Arrays.asList( managedDependencies );
+            }
+        };
+    }
+
+    @Test
+    public void testDerivationWithoutManagementReusesInstances()
+    {
+        DependencyManager manager = new ClassicDependencyManager();
+        DependencyManager child = manager.deriveChildManager( newContext() );
+        DependencyManager grandChild = child.deriveChildManager( newContext() );
+
+        assertSame( child, manager.deriveChildManager( newContext() ) );
+        assertSame( grandChild, child.deriveChildManager( newContext() ) );
+        assertSame( grandChild, grandChild.deriveChildManager( newContext() ) );
+    }
+
+    @Test
+    public void testEqualDerivationsAreEqual()
+    {
+        Dependency managed = new Dependency( new DefaultArtifact( "gid:aid:jar:1.0" ), "runtime" );
+
+        DependencyManager manager1 = new ClassicDependencyManager().deriveChildManager( newContext( managed ) );
+        DependencyManager manager2 = new ClassicDependencyManager().deriveChildManager( newContext( managed ) );
+        DependencyManager manager3 = new ClassicDependencyManager().deriveChildManager( newContext() );
+
+        assertEquals( manager1, manager2 );
+        assertEquals( manager1.hashCode(), manager2.hashCode() );
+        assertFalse( manager1.equals( manager3 ) );
+    }
+
+}
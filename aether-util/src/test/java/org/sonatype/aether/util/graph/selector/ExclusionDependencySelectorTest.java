@@ -0,0 +1,80 @@
+package org.sonatype.aether.util.graph.selector;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.sonatype.aether.RepositorySystemSession;
+import org.sonatype.aether.collection.DependencyCollectionContext;
+import org.sonatype.aether.collection.DependencySelector;
+import org.sonatype.aether.graph.Dependency;
+import org.sonatype.aether.graph.Exclusion;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class ExclusionDependencySelectorTest
+{
+
+    private static DependencyCollectionContext newContext( Exclusion... exclusions )
+    {
+        final Dependency dependency =
+            new Dependency( new DefaultArtifact( "gid:aid:jar:1.0" ), "compile", false, Arrays.asList( exclusions ) );
+        return new DependencyCollectionContext()
+        {
+            public RepositorySystemSession getSession()
+            {
+                return null;
+            }
+
+            public Dependency getDependency()
+            {
+                return dependency;
+            }
+
+            public List<Dependency> getManagedDependencies()
+            {
+                return Collections.emptyList();
+            }
+        };
+    }
+
+    @Test
+    public void testDerivationWithoutNewExclusionsReturnsSameInstance()
+    {
+        Exclusion exclusion = new Exclusion( "ex", "cluded", "*", "*" );
+        DependencySelector selector = new ExclusionDependencySelector();
+
+        assertSame( selector, selector.deriveChildSelector( newContext() ) );
+
+        DependencySelector child = selector.deriveChildSelector( newContext( exclusion ) );
+        assertNotSame( selector, child );
+        assertSame( child, child.deriveChildSelector( newContext( exclusion ) ) );
+    }
+
+    @Test
+    public void testEqualDerivationsAreEqual()
+    {
+        Exclusion exclusion1 = new Exclusion( "ex", "cluded", "*", "*" );
+        Exclusion exclusion2 = new Exclusion( "other", "*", "*", "*" );
+        DependencySelector selector = new ExclusionDependencySelector();
+
+        DependencySelector child1 =
+            selector.deriveChildSelector( newContext( exclusion1 ) ).deriveChildSelector( newContext( exclusion2 ) );
+        DependencySelector child2 = selector.deriveChildSelector( newContext( exclusion2, exclusion1 ) );
+
+        assertEquals( child1, child2 );
+        assertEquals( child1.hashCode(), child2.hashCode() );
+        assertFalse( child1.equals( selector.deriveChildSelector( newContext( exclusion1 ) ) ) );
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.sonatype.aether.util.graph.transformer;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.collection.DependencyGraphTransformer;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.test.util.DependencyGraphParser;
+
+public class ClassicJavaDependencyGraphTransformerTest
+    extends AbstractDependencyGraphTransformerTest
+{
+
+    private void assertSameAsChain( String resource, String... substitutions )
+        throws Exception
+    {
+        DependencyGraphParser parser = new DependencyGraphParser( "transformer/scope-calculator/" );
+        parser.setSubstitutions( Arrays.asList( substitutions ) );
+
+        DependencyGraphTransformer chain =
+            new ChainedDependencyGraphTransformer( new ConflictMarker(), new JavaEffectiveScopeCalculator(),
+                                                   new NearestVersionConflictResolver(),
+                                                   new JavaDependencyContextRefiner() );
+        DependencyGraphTransformationContext chainContext = newContext();
+        DependencyNode expected = chain.transformGraph( setProjectContext( parser.parse( resource ) ), chainContext );
+
+        DependencyNode actual =
+            new ClassicJavaDependencyGraphTransformer().transformGraph( setProjectContext( parser.parse( resource ) ),
+                                                                       context );
+
+        assertEquals( resource, dump( expected ), dump( actual ) );
+        assertNotNull( context.get( TransformationContextKeys.CONFLICT_IDS ) );
+        assertEquals( chainContext.get( TransformationContextKeys.SORTED_CONFLICT_IDS ),
+                      context.get( TransformationContextKeys.SORTED_CONFLICT_IDS ) );
+        assertEquals( chainContext.get( TransformationContextKeys.CYCLIC_CONFLICT_IDS ),
+                      context.get( TransformationContextKeys.CYCLIC_CONFLICT_IDS ) );
+    }
+
+    private DependencyNode setProjectContext( DependencyNode node )
+    {
+        node.setRequestContext( "project" );
+        for ( DependencyNode child : node.getChildren() )
+        {
+            setProjectContext( child );
+        }
+        return node;
+    }
+
+    private String dump( DependencyNode node )
+    {
+        StringBuilder buffer = new StringBuilder( 1024 );
+        dump( buffer, node, "" );
+        return buffer.toString();
+    }
+
+    private void dump( StringBuilder buffer, DependencyNode node, String indent )
+    {
+        buffer.append( indent ).append( node.getDependency() ).append( ' ' ).append( node.getRequestContext() );
+        buffer.append( '\n' );
+        for ( DependencyNode child : node.getChildren() )
+        {
+            dump( buffer, child, indent + "  " );
+        }
+    }
+
+    @Test
+    public void testSameResultAsChainedTransformers()
+        throws Exception
+    {
+        String[] resources =
+            { "conflict-and-inheritance.txt", "conflicting-direct-nodes.txt", "direct-nodes-winning.txt",
+                "direct-with-conflict-and-inheritance.txt", "dueling-scopes.txt", "inheritance.txt",
+                "multiple-inheritance.txt", "system-1.txt", "system-2.txt" };
+        for ( String resource : resources )
+        {
+            context = newContext();
+            assertSameAsChain( resource, "provided", "test" );
+            context = newContext();
+            assertSameAsChain( resource, "runtime", "compile" );
+        }
+    }
+
+}
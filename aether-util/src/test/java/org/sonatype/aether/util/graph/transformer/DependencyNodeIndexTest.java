@@ -0,0 +1,98 @@
+package org.sonatype.aether.util.graph.transformer;
+
+/*******************************************************************************
+ * Copyright (c) 2010-2011 Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.sonatype.aether.collection.DependencyGraphTransformationContext;
+import org.sonatype.aether.graph.DependencyNode;
+import org.sonatype.aether.test.util.DependencyGraphParser;
+
+public class DependencyNodeIndexTest
+{
+
+    private DependencyGraphParser parser = new DependencyGraphParser( "transformer/conflict-id-sorter/" );
+
+    @Test
+    public void testNumbering()
+        throws Exception
+    {
+        DependencyNode root = parser.parse( "cycle.txt" );
+        DependencyNodeIndex index = new DependencyNodeIndex( root );
+
+        assertEquals( 0, index.getId( root ) );
+        assertSame( root, index.getNode( 0 ) );
+        assertEquals( 0, index.getDepth( 0 ) );
+
+        DependencyNode child = root.getChildren().get( 0 );
+        assertEquals( 1, index.getId( child ) );
+        assertEquals( 1, index.getDepth( 1 ) );
+        assertEquals( -1, index.getId( null ) );
+
+        int edges = 0;
+        for ( int i = 0; i < index.getNodeCount(); i++ )
+        {
+            edges += index.getNode( i ).getChildren().size();
+        }
+        assertEquals( edges, index.getEdgeCount() );
+        assertEquals( 0, index.getEdgeParent( 0 ) );
+        assertEquals( 1, index.getEdgeChild( 0 ) );
+
+        int[] table = index.getTable( "test" );
+        assertEquals( index.getNodeCount(), table.length );
+        assertSame( table, index.getTable( "test" ) );
+    }
+
+    @Test
+    public void testConflictIds()
+        throws Exception
+    {
+        DependencyNode root = parser.parse( "cycles.txt" );
+        DependencyGraphTransformationContext context = new SimpleDependencyGraphTransformationContext();
+        new ConflictMarker().transformGraph( root, context );
+
+        Map<?, ?> conflictIds = (Map<?, ?>) context.get( TransformationContextKeys.CONFLICT_IDS );
+        DependencyNodeIndex index = (DependencyNodeIndex) context.get( TransformationContextKeys.NODE_INDEX );
+
+        assertTrue( index.matches( root, conflictIds ) );
+        assertFalse( index.matches( root.getChildren().get( 0 ), conflictIds ) );
+        assertEquals( 4, index.getConflictIdCount() );
+        assertEquals( -1, index.getConflictId( 0 ) );
+        for ( int i = 1; i < index.getNodeCount(); i++ )
+        {
+            assertEquals( conflictIds.get( index.getNode( i ) ),
+                          index.getConflictKey( index.getConflictId( i ) ) );
+        }
+    }
+
+    @Test
+    public void testSortingIndependentOfMarkerIndex()
+        throws Exception
+    {
+        for ( String resource : new String[] { "cycle.txt", "cycles.txt", "no-conflicts.txt", "simple.txt" } )
+        {
+            DependencyNode root = parser.parse( resource );
+            DependencyGraphTransformationContext context = new SimpleDependencyGraphTransformationContext();
+            new ConflictMarker().transformGraph( root, context );
+            new ConflictIdSorter().transformGraph( root, context );
+            Object sorted = context.get( TransformationContextKeys.SORTED_CONFLICT_IDS );
+            Object cyclic = context.get( TransformationContextKeys.CYCLIC_CONFLICT_IDS );
+
+            context.put( TransformationContextKeys.NODE_INDEX, null );
+            new ConflictIdSorter().transformGraph( root, context );
+
+            assertEquals( resource, context.get( TransformationContextKeys.SORTED_CONFLICT_IDS ), sorted );
+            assertEquals( resource, context.get( TransformationContextKeys.CYCLIC_CONFLICT_IDS ), cyclic );
+        }
+    }
+
+}
@@ -10,6 +10,8 @@ package org.sonatype.aether.util.graph.transformer;
 
 import static org.junit.Assert.*;
 
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
@@ -431,4 +433,43 @@ public class NearestVersionConflictResolverTest
         assertEquals( 0, root.getChildren().get( 1 ).getChildren().size() );
     }
 
+    @Test
+    public void testReachabilityIndexOfCyclicGraph()
+        throws Exception
+    {
+        DependencyNode root = new DependencyGraphParser( "transformer/version-resolver/" ).parse( "cycle.txt" );
+
+        Map<DependencyNode, Object> conflictIds = new IdentityHashMap<DependencyNode, Object>();
+        Map<Object, Integer> indices = new HashMap<Object, Integer>();
+        DependencyNode a = root.getChildren().get( 0 );
+        DependencyNode b = a.getChildren().get( 0 );
+        DependencyNode c = b.getChildren().get( 0 );
+        DependencyNode a2 = c.getChildren().get( 0 );
+        DependencyNode c2 = root.getChildren().get( 1 );
+        conflictIds.put( root, "root" );
+        conflictIds.put( a, "a" );
+        conflictIds.put( a2, "a" );
+        conflictIds.put( b, "b" );
+        conflictIds.put( c, "c" );
+        conflictIds.put( c2, "c" );
+        indices.put( "root", Integer.valueOf( 0 ) );
+        indices.put( "a", Integer.valueOf( 1 ) );
+        indices.put( "b", Integer.valueOf( 2 ) );
+        indices.put( "c", Integer.valueOf( 3 ) );
+
+        Map<DependencyNode, BitSet> reachable =
+            new NearestVersionConflictResolver.ReachabilityIndexer( conflictIds, indices ).index( root );
+
+        BitSet cycle = new BitSet();
+        cycle.set( 1, 4 );
+        BitSet all = new BitSet();
+        all.set( 0, 4 );
+        assertEquals( all, reachable.get( root ) );
+        assertEquals( cycle, reachable.get( a ) );
+        assertEquals( cycle, reachable.get( b ) );
+        assertEquals( cycle, reachable.get( c ) );
+        assertEquals( cycle, reachable.get( a2 ) );
+        assertEquals( cycle, reachable.get( c2 ) );
+    }
+
 }